@@ -0,0 +1,72 @@
+package com.unir.app.read;
+
+import com.unir.benchmark.EmployeeFixtures;
+import com.unir.config.EmbeddedDatabase;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exportación de los países a XML con {@link CountryXmlExporter} en sus dos modos (H2 en modo Oracle):
+ * - SQLXML: el XML se genera en la base de datos y se lee como SQLXML en streaming.
+ * - CLIENT: se leen las columnas y el XML se genera en la aplicación.
+ *
+ * El documento se escribe en un stream que solo cuenta los bytes, para medir la exportación sin el disco.
+ * Cada operación exporta todos los países. Para comparar la memoria reservada por exportación hay que
+ * ejecutarlo con el profiler de GC: java -jar target/benchmarks.jar CountryXmlExportBenchmark -prof gc.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CountryXmlExportBenchmark {
+
+    @Param({"SQLXML", "CLIENT"})
+    private CountryXmlExporter.Mode mode;
+
+    @Param({"600"})
+    private int countries;
+
+    private Connection oracle;
+    private CountryXmlExporter exporter;
+
+    @Setup
+    public void setUp() throws SQLException {
+        oracle = EmbeddedDatabase.oracle("xml-export-benchmark").getConnection();
+        EmployeeFixtures.populateCountries(oracle, countries);
+        exporter = new CountryXmlExporter(mode);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        oracle.close();
+    }
+
+    @Benchmark
+    public long export() throws SQLException, IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        exporter.export(oracle, "%", out);
+        return out.bytes;
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+
+        private long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
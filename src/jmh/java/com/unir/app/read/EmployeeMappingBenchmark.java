@@ -0,0 +1,51 @@
+package com.unir.app.read;
+
+import com.unir.benchmark.EmployeeFixtures;
+import com.unir.config.EmbeddedDatabase;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendimiento de la conversión de filas de employees en {@link com.unir.model.MySqlEmployee}
+ * con {@link MySqlApplication#mapEmployee(ResultSet)}. El resultado se expresa en filas por segundo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmployeeMappingBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    private Connection connection;
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = EmbeddedDatabase.mysql("mapping-benchmark").getConnection();
+        EmployeeFixtures.populate(connection, EmployeeFixtures.employees(ROWS, 1, 42), 9);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void mapEmployees(Blackhole blackhole) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet employees = statement.executeQuery("select * from employees")) {
+            while (employees.next()) {
+                blackhole.consume(MySqlApplication.mapEmployee(employees));
+            }
+        }
+    }
+}
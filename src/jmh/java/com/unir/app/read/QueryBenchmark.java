@@ -0,0 +1,72 @@
+package com.unir.app.read;
+
+import com.unir.benchmark.EmployeeFixtures;
+import com.unir.config.EmbeddedDatabase;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendimiento y latencia de las consultas de lectura: recuento de empleados por departamento (H2 en modo MySQL)
+ * y países como XML (H2 en modo Oracle).
+ *
+ * H2 no implementa XMLELEMENT ni XMLATTRIBUTES, así que la consulta de países usa sus equivalentes
+ * XMLNODE y XMLATTR, que generan el mismo documento en el servidor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBenchmark {
+
+    private static final String COUNTRIES_AS_XML = "SELECT\n" +
+            "  XMLNODE('countryXml', XMLATTR('name', c.country_name) || ' ' ||\n" +
+            "          XMLATTR('code', c.region_id) || ' ' || XMLATTR('id', c.country_id))\n" +
+            "  AS CountryXml\n" +
+            "FROM  countries c\n" +
+            "WHERE c.country_name LIKE ?";
+
+    @Param({"50000"})
+    private int employees;
+
+    private Connection mysql;
+    private Connection oracle;
+
+    @Setup
+    public void setUp() throws SQLException {
+        mysql = EmbeddedDatabase.mysql("query-benchmark").getConnection();
+        EmployeeFixtures.populate(mysql, EmployeeFixtures.employees(employees, 1, 42), 9);
+        oracle = EmbeddedDatabase.oracle("query-benchmark").getConnection();
+        EmployeeFixtures.populateCountries(oracle, 600);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        mysql.close();
+        oracle.close();
+    }
+
+    @Benchmark
+    public int departmentCount() throws SQLException {
+        return MySqlApplication.countEmployeesOfDepartment(mysql, "d001");
+    }
+
+    @Benchmark
+    public void countriesAsXml(Blackhole blackhole) throws SQLException {
+        try (PreparedStatement selectCountries = oracle.prepareStatement(COUNTRIES_AS_XML)) {
+            selectCountries.setString(1, "S%");
+            try (ResultSet countries = selectCountries.executeQuery()) {
+                while (countries.next()) {
+                    blackhole.consume(countries.getString("CountryXml"));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.unir.app.transfer;
+
+import com.unir.benchmark.EmployeeFixtures;
+import com.unir.config.ConnectionPool;
+import com.unir.config.EmbeddedDatabase;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copia de la tabla employees de una base de datos H2 en modo MySQL a otra en modo Oracle
+ * con {@link TableCopier}, con distinto número de escritores.
+ *
+ * La tabla de destino se crea en la primera copia y se vacía antes de cada operación.
+ * El resultado se expresa en filas por segundo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TableCopyBenchmark {
+
+    private static final int ROWS = 50_000;
+
+    @Param({"1", "2", "4"})
+    private int writers;
+
+    @Param({"1000"})
+    private int batchSize;
+
+    private ConnectionPool target;
+    private TableCopier copier;
+
+    @Setup
+    public void setUp() throws SQLException {
+        ConnectionPool source = EmbeddedDatabase.mysql("copy-source");
+        try (Connection connection = source.getConnection()) {
+            EmployeeFixtures.populate(connection, EmployeeFixtures.employees(ROWS, 1, 42), 9);
+        }
+        target = EmbeddedDatabase.oracle("copy-target");
+        copier = new TableCopier(source.getDataSource(), target.getDataSource(), writers, batchSize, writers * 4);
+        copier.copy("employees", "employees");
+    }
+
+    @Setup(Level.Invocation)
+    public void truncate() throws SQLException {
+        try (Connection connection = target.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("TRUNCATE TABLE employees");
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public CopyResult copy() throws SQLException {
+        return copier.copy("employees", "employees");
+    }
+}
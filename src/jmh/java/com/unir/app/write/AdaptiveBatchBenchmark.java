@@ -0,0 +1,69 @@
+package com.unir.app.write;
+
+import com.unir.benchmark.EmployeeFixtures;
+import com.unir.config.AdaptiveBatchSettings;
+import com.unir.config.EmbeddedDatabase;
+import com.unir.model.MySqlEmployee;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tamaño de lote fijo frente a adaptativo, con la estrategia PREFETCH_KEYS sobre una base de datos H2 en modo MySQL.
+ *
+ * Mismos datos que {@link UpsertBenchmark}: la mitad de las filas son actualizaciones y la otra mitad inserciones.
+ * Con batchSize = 0 el tamaño es adaptativo y parte de 5, el antiguo valor fijo, para medir lo que tarda en corregirlo.
+ * Cada operación abre un escritor nuevo, así que el controlador empieza de cero en cada una.
+ * El resultado se expresa en filas por segundo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AdaptiveBatchBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    @Param({"5", "100", "1000", "0"})
+    private int batchSize;
+
+    private Connection connection;
+    private EmployeeUpsertEngine engine;
+    private List<MySqlEmployee> employees;
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = EmbeddedDatabase.mysql("adaptive-batch-benchmark").getConnection();
+        EmployeeFixtures.populate(connection, EmployeeFixtures.employees(ROWS, 1, 42), 9);
+        employees = EmployeeFixtures.employees(ROWS, ROWS / 2 + 1, 7);
+        if (batchSize == 0) {
+            AdaptiveBatchSettings settings = new AdaptiveBatchSettings();
+            settings.setMinBatchSize(5);
+            settings.setInitialBatchSize(5);
+            settings.setMaxBatchSize(ROWS);
+            engine = new EmployeeUpsertEngine(EmployeeUpsertEngine.Strategy.PREFETCH_KEYS, settings);
+        } else {
+            engine = new EmployeeUpsertEngine(EmployeeUpsertEngine.Strategy.PREFETCH_KEYS, batchSize);
+        }
+        connection.setAutoCommit(false);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.setAutoCommit(true);
+        connection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public UpsertResult upsert() throws SQLException {
+        UpsertResult result = engine.upsert(connection, employees);
+        connection.rollback();
+        return result;
+    }
+}
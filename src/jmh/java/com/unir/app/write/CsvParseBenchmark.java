@@ -0,0 +1,45 @@
+package com.unir.app.write;
+
+import com.unir.benchmark.EmployeeFixtures;
+import com.unir.model.MySqlEmployee;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendimiento de la lectura del fichero CSV de empleados con {@link MySqlApplicationIntake#readData(String)}.
+ * El resultado se expresa en filas por segundo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvParseBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    private Path file;
+
+    @Setup
+    public void writeFile() throws IOException {
+        file = Files.createTempFile("employees", ".csv");
+        EmployeeFixtures.writeCsv(file, EmployeeFixtures.employees(ROWS, 1, 42));
+    }
+
+    @TearDown
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<MySqlEmployee> readData() {
+        return MySqlApplicationIntake.readData(file.toString());
+    }
+}
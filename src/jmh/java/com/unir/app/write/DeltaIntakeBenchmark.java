@@ -0,0 +1,76 @@
+package com.unir.app.write;
+
+import com.unir.benchmark.EmployeeFixtures;
+import com.unir.config.EmbeddedDatabase;
+import com.unir.model.MySqlEmployee;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recarga de un fichero casi sin cambios, sobre una base de datos H2 en modo MySQL:
+ * la estrategia DELTA frente a PREFETCH_KEYS, que actualiza todas las filas existentes.
+ *
+ * La tabla contiene los empleados 1 a 10000.
+ * Cada operación vuelve a cargar los mismos empleados con un porcentaje de ellos modificado.
+ * Al final de cada operación se hace rollback para que todas partan del mismo estado.
+ * El resultado se expresa en filas por segundo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeltaIntakeBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    @Param({"PREFETCH_KEYS", "DELTA"})
+    private EmployeeUpsertEngine.Strategy strategy;
+
+    @Param({"0", "1", "10"})
+    private int changedPercent;
+
+    private Connection connection;
+    private EmployeeUpsertEngine engine;
+    private List<MySqlEmployee> employees;
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = EmbeddedDatabase.mysql("delta-benchmark").getConnection();
+        List<MySqlEmployee> loaded = EmployeeFixtures.employees(ROWS, 1, 42);
+        EmployeeFixtures.populate(connection, loaded, 9);
+
+        // Cambiamos la fecha de contratación de uno de cada 100 / changedPercent empleados
+        employees = new ArrayList<>(loaded);
+        int step = changedPercent == 0 ? Integer.MAX_VALUE : 100 / changedPercent;
+        for (int i = 0; i < ROWS; i += step) {
+            MySqlEmployee employee = employees.get(i);
+            employees.set(i, new MySqlEmployee(employee.getEmployeeId(), employee.getFirstName(),
+                    employee.getLastName(), employee.getGender(),
+                    Date.valueOf(employee.getHireDate().toLocalDate().plusDays(1)), employee.getBirthDate()));
+        }
+        engine = new EmployeeUpsertEngine(strategy, 1000);
+        connection.setAutoCommit(false);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.setAutoCommit(true);
+        connection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public UpsertResult reload() throws SQLException {
+        UpsertResult result = engine.upsert(connection, employees);
+        connection.rollback();
+        return result;
+    }
+}
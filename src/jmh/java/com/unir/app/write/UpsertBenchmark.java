@@ -0,0 +1,65 @@
+package com.unir.app.write;
+
+import com.unir.benchmark.EmployeeFixtures;
+import com.unir.config.ConnectionPool;
+import com.unir.config.EmbeddedDatabase;
+import com.unir.model.MySqlEmployee;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendimiento de las estrategias de {@link EmployeeUpsertEngine} con distintos tamaños de lote,
+ * sobre una base de datos H2 en modo MySQL.
+ *
+ * La tabla contiene los empleados 1 a 10000 y cada operación carga los empleados 5001 a 15000:
+ * la mitad son actualizaciones y la otra mitad inserciones. Al final de cada operación se hace rollback
+ * para que todas partan del mismo estado. El resultado se expresa en filas por segundo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UpsertBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    @Param({"ROW_BY_ROW", "ON_DUPLICATE_KEY", "PREFETCH_KEYS"})
+    private EmployeeUpsertEngine.Strategy strategy;
+
+    @Param({"5", "100", "1000"})
+    private int batchSize;
+
+    private Connection connection;
+    private EmployeeUpsertEngine engine;
+    private List<MySqlEmployee> employees;
+
+    @Setup
+    public void setUp() throws SQLException {
+        ConnectionPool pool = EmbeddedDatabase.mysql("upsert-benchmark");
+        connection = pool.getConnection();
+        EmployeeFixtures.populate(connection, EmployeeFixtures.employees(ROWS, 1, 42), 9);
+        employees = EmployeeFixtures.employees(ROWS, ROWS / 2 + 1, 7);
+        engine = new EmployeeUpsertEngine(strategy, batchSize);
+        connection.setAutoCommit(false);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.setAutoCommit(true);
+        connection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public UpsertResult upsert() throws SQLException {
+        UpsertResult result = engine.upsert(connection, employees);
+        connection.rollback();
+        return result;
+    }
+}
@@ -0,0 +1,122 @@
+package com.unir.benchmark;
+
+import com.unir.app.write.EmployeeUpsertEngine;
+import com.unir.model.MySqlEmployee;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Datos de prueba para los benchmarks. Se generan siempre con la misma semilla
+ * para que los resultados sean reproducibles entre ejecuciones.
+ */
+public class EmployeeFixtures {
+
+    private static final String[] FIRST_NAMES = {"Carla", "Jesus", "Roberto", "Susana", "Lucía", "Mario", "Elena", "Pablo"};
+    private static final String[] LAST_NAMES = {"Pérez", "García", "Fernández", "Ruiz", "López", "Martín", "Gómez", "Díaz"};
+
+    /**
+     * Genera empleados con emp_no consecutivos a partir de firstId.
+     *
+     * @param count - Número de empleados
+     * @param firstId - Primer emp_no
+     * @param seed - Semilla del generador
+     * @return - Empleados
+     */
+    public static List<MySqlEmployee> employees(int count, int firstId, long seed) {
+        Random random = new Random(seed);
+        List<MySqlEmployee> employees = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            LocalDate birth = LocalDate.of(1950, 1, 1).plusDays(random.nextInt(365 * 50));
+            LocalDate hire = birth.plusYears(20).plusDays(random.nextInt(365 * 20));
+            employees.add(new MySqlEmployee(firstId + i,
+                    FIRST_NAMES[random.nextInt(FIRST_NAMES.length)],
+                    LAST_NAMES[random.nextInt(LAST_NAMES.length)],
+                    random.nextBoolean() ? "M" : "F",
+                    Date.valueOf(hire),
+                    Date.valueOf(birth)));
+        }
+        return employees;
+    }
+
+    /**
+     * Escribe los empleados en un fichero con el formato de unirEmployees.csv.
+     */
+    public static void writeCsv(Path file, List<MySqlEmployee> employees) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("employeeId,firstName,lastName,gender,hireDate,birthDate\n");
+            for (MySqlEmployee employee : employees) {
+                writer.write(employee.getEmployeeId() + "," + employee.getFirstName() + "," + employee.getLastName()
+                        + "," + employee.getGender() + "," + employee.getHireDate() + "," + employee.getBirthDate() + "\n");
+            }
+        }
+    }
+
+    /**
+     * Vacía las tablas y las rellena con los empleados, repartidos por igual entre los departamentos.
+     */
+    public static void populate(Connection connection, List<MySqlEmployee> employees, int departments) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DELETE FROM dept_emp");
+            statement.execute("DELETE FROM departments");
+            statement.execute("DELETE FROM employees");
+        }
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO departments VALUES (?, ?)")) {
+            for (int i = 1; i <= departments; i++) {
+                insert.setString(1, department(i));
+                insert.setString(2, "Department " + i);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        new EmployeeUpsertEngine(EmployeeUpsertEngine.Strategy.PREFETCH_KEYS, 1000).upsert(connection, employees);
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO dept_emp VALUES (?, ?, ?, ?)")) {
+            for (MySqlEmployee employee : employees) {
+                insert.setInt(1, employee.getEmployeeId());
+                insert.setString(2, department(employee.getEmployeeId() % departments + 1));
+                insert.setDate(3, employee.getHireDate());
+                insert.setDate(4, Date.valueOf("9999-01-01"));
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    /**
+     * Vacía la tabla de países y la rellena con países de nombre aleatorio. La mitad empieza por S.
+     */
+    public static void populateCountries(Connection connection, int count) throws SQLException {
+        Random random = new Random(42);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DELETE FROM countries");
+        }
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO countries VALUES (?, ?, ?)")) {
+            for (int i = 0; i < count; i++) {
+                insert.setString(1, String.valueOf(new char[]{(char) ('A' + i / 26 % 26), (char) ('A' + i % 26)}));
+                insert.setString(2, (i % 2 == 0 ? "S" : "N") + "country" + random.nextInt(1_000_000));
+                insert.setInt(3, 1 + i % 4);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    /**
+     * @return - Código de departamento con el formato de la base de datos employees, por ejemplo d001
+     */
+    public static String department(int number) {
+        return String.format("d%03d", number);
+    }
+}
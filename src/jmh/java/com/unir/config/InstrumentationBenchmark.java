@@ -0,0 +1,68 @@
+package com.unir.config;
+
+import com.unir.benchmark.EmployeeFixtures;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de la instrumentación de {@link InstrumentedDataSource} sobre H2 en memoria,
+ * comparando la misma conexión del pool con y sin envolver: una consulta por clave y un recorrido de 1000 filas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InstrumentationBenchmark {
+
+    private static final int EMPLOYEES = 1_000;
+
+    @Param({"false", "true"})
+    public boolean instrumented;
+
+    private Connection connection;
+    private PreparedStatement byKey;
+    private PreparedStatement all;
+
+    @Setup
+    public void open() throws SQLException {
+        Connection pooled = EmbeddedDatabase.mysql("instrumentation").getConnection();
+        EmployeeFixtures.populate(pooled, EmployeeFixtures.employees(EMPLOYEES, 1, 42), 5);
+        connection = instrumented ? InstrumentedDataSource.wrap(pooled) : pooled;
+        byKey = connection.prepareStatement("SELECT first_name, last_name FROM employees WHERE emp_no = ?");
+        all = connection.prepareStatement("SELECT emp_no, first_name, hire_date FROM employees");
+    }
+
+    @TearDown
+    public void close() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public void selectByKey(Blackhole blackhole) throws SQLException {
+        byKey.setInt(1, 500);
+        try (ResultSet resultSet = byKey.executeQuery()) {
+            resultSet.next();
+            blackhole.consume(resultSet.getString(1));
+            blackhole.consume(resultSet.getString(2));
+        }
+    }
+
+    @Benchmark
+    public void scan(Blackhole blackhole) throws SQLException {
+        try (ResultSet resultSet = all.executeQuery()) {
+            while (resultSet.next()) {
+                blackhole.consume(resultSet.getInt(1));
+                blackhole.consume(resultSet.getString(2));
+                blackhole.consume(resultSet.getDate(3));
+            }
+        }
+    }
+}
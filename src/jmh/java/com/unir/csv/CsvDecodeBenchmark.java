@@ -0,0 +1,110 @@
+package com.unir.csv;
+
+import com.opencsv.CSVParserBuilder;
+import com.opencsv.CSVReader;
+import com.opencsv.CSVReaderBuilder;
+import com.unir.benchmark.EmployeeFixtures;
+import com.unir.model.MySqlEmployee;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.CharArrayReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.text.SimpleDateFormat;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodificación del CSV de empleados en memoria, sin disco, para comparar:
+ * - openCsv: el código anterior, OpenCSV con String[] por línea y SimpleDateFormat.
+ * - reader: {@link EmployeeCsvReader} con {@link EmployeeCsvDecoder}, creando un MySqlEmployee por fila.
+ * - decoderOnly: solo {@link EmployeeCsvDecoder} sobre una {@link EmployeeRow} reutilizada.
+ *
+ * El resultado se expresa en filas por segundo. Para ver los bytes reservados por fila hay que ejecutarlo
+ * con el profiler de GC: java -jar target/benchmarks.jar CsvDecodeBenchmark -prof gc (métrica gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvDecodeBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    private char[] csv;
+    private int[] lineStarts;
+    private int[] lineEnds;
+
+    @Setup
+    public void generate() throws Exception {
+        Path file = Files.createTempFile("employees", ".csv");
+        try {
+            EmployeeFixtures.writeCsv(file, EmployeeFixtures.employees(ROWS, 1, 42));
+            csv = new String(Files.readAllBytes(file), "UTF-8").toCharArray();
+        } finally {
+            Files.delete(file);
+        }
+
+        // Límites de cada línea sin la cabecera, para medir el decodificador aislado
+        lineStarts = new int[ROWS];
+        lineEnds = new int[ROWS];
+        int line = -1;
+        int start = 0;
+        for (int i = 0; i < csv.length; i++) {
+            if (csv[i] == '\n') {
+                if (line >= 0) {
+                    lineStarts[line] = start;
+                    lineEnds[line] = i;
+                }
+                line++;
+                start = i + 1;
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void openCsv(Blackhole blackhole) throws Exception {
+        SimpleDateFormat format = new SimpleDateFormat("yyy-MM-dd");
+        try (CSVReader reader = new CSVReaderBuilder(new CharArrayReader(csv))
+                .withCSVParser(new CSVParserBuilder().withSeparator(',').build())
+                .build()) {
+            reader.skip(1);
+            String[] line;
+            while ((line = reader.readNext()) != null) {
+                blackhole.consume(new MySqlEmployee(
+                        Integer.parseInt(line[0]),
+                        line[1],
+                        line[2],
+                        line[3],
+                        new Date(format.parse(line[4]).getTime()),
+                        new Date(format.parse(line[5]).getTime())));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void reader(Blackhole blackhole) throws Exception {
+        try (EmployeeCsvReader reader = new EmployeeCsvReader(new CharArrayReader(csv))) {
+            while (reader.hasNext()) {
+                blackhole.consume(reader.next());
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void decoderOnly(Blackhole blackhole) {
+        EmployeeCsvDecoder decoder = EmployeeCsvDecoder.shared();
+        EmployeeRow row = new EmployeeRow();
+        for (int i = 0; i < ROWS; i++) {
+            decoder.decode(csv, lineStarts[i], lineEnds[i], row);
+            blackhole.consume(row.getEmployeeId());
+            blackhole.consume(row.getHireEpochDay());
+        }
+    }
+}
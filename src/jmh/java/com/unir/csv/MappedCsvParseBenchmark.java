@@ -0,0 +1,67 @@
+package com.unir.csv;
+
+import com.unir.benchmark.EmployeeFixtures;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lectura de un fichero CSV grande con {@link MappedEmployeeCsvParser} según el número de hilos,
+ * comparada con {@link EmployeeCsvReader} en un solo hilo. El resultado se expresa en filas por segundo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class MappedCsvParseBenchmark {
+
+    private static final int ROWS = 500_000;
+
+    private static final int CHUNK_SIZE = 1024 * 1024;
+
+    @Param({"1", "2", "4"})
+    public int parallelism;
+
+    private Path file;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void writeFile() throws IOException {
+        file = Files.createTempFile("employees", ".csv");
+        EmployeeFixtures.writeCsv(file, EmployeeFixtures.employees(ROWS, 1, 42));
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @TearDown
+    public void deleteFile() throws IOException {
+        pool.shutdown();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void mapped(Blackhole blackhole) throws IOException {
+        try (MappedEmployeeCsvParser parser = new MappedEmployeeCsvParser(file, pool, CHUNK_SIZE)) {
+            while (parser.hasNext()) {
+                blackhole.consume(parser.next());
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void reader(Blackhole blackhole) throws IOException {
+        try (EmployeeCsvReader reader = new EmployeeCsvReader(file.toString())) {
+            while (reader.hasNext()) {
+                blackhole.consume(reader.next());
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.unir.app.loadtest;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mide el heap usado durante una fase de la prueba de carga, tomando una muestra cada intervalo
+ * desde un hilo daemon, y el tiempo de GC de la fase.
+ * El máximo de las muestras es una cota inferior del pico real, que puede caer entre dos muestras.
+ */
+class HeapSampler implements AutoCloseable {
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final AtomicLong peakBytes = new AtomicLong();
+    private final long gcMillisAtStart = gcMillis();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "loadtest-heap-sampler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param intervalMillis - Tiempo entre muestras
+     */
+    HeapSampler(long intervalMillis) {
+        sample();
+        scheduler.scheduleAtFixedRate(this::sample, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return - Máximo de heap usado en las muestras tomadas hasta ahora
+     */
+    long getPeakBytes() {
+        sample();
+        return peakBytes.get();
+    }
+
+    /**
+     * @return - Tiempo de GC acumulado desde que se creó el muestreador
+     */
+    long getGcMillis() {
+        return gcMillis() - gcMillisAtStart;
+    }
+
+    private void sample() {
+        peakBytes.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, collector.getCollectionTime());
+        }
+        return total;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
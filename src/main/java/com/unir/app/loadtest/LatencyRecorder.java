@@ -0,0 +1,58 @@
+package com.unir.app.loadtest;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Latencias de las operaciones de un hilo de la prueba de carga.
+ * Se guardan todas, 8 bytes por operación, para calcular percentiles exactos al final.
+ * Cada hilo tiene el suyo, así que registrar una latencia no necesita sincronización.
+ */
+class LatencyRecorder {
+
+    private long[] values = new long[1024];
+    private int count;
+
+    void record(long nanos) {
+        if (count == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        values[count++] = nanos;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * @param recorders - Latencias de cada hilo
+     * @return - Todas las latencias, ordenadas de menor a mayor
+     */
+    static long[] merge(List<LatencyRecorder> recorders) {
+        int total = 0;
+        for (LatencyRecorder recorder : recorders) {
+            total += recorder.count;
+        }
+        long[] merged = new long[total];
+        int position = 0;
+        for (LatencyRecorder recorder : recorders) {
+            System.arraycopy(recorder.values, 0, merged, position, recorder.count);
+            position += recorder.count;
+        }
+        Arrays.sort(merged);
+        return merged;
+    }
+
+    /**
+     * @param sorted - Latencias ordenadas
+     * @param percentile - Percentil entre 0 y 100
+     * @return - Latencia del percentil, 0 si no hay ninguna
+     */
+    static long percentile(long[] sorted, int percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100d * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
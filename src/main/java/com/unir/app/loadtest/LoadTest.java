@@ -0,0 +1,294 @@
+package com.unir.app.loadtest;
+
+import com.unir.app.read.DepartmentHeadcounts;
+import com.unir.app.write.EmployeeUpsertEngine;
+import com.unir.app.write.StreamingIntakePipeline;
+import com.unir.config.StatementCache;
+import com.unir.config.TableChangeNotifier;
+import com.unir.csv.EmployeeCsvReader;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Cargas de trabajo de la prueba de carga sobre la base de datos de empleados.
+ *
+ * - Carga: pasa un fichero CSV por {@link StreamingIntakePipeline} con concurrency escritores, igual que la carga
+ *   de producción. Cada operación es un bloque del pipeline; la latencia es lo que tarda el escritor en procesarlo.
+ * - Lecturas: concurrency hilos lanzan consultas durante un tiempo. Una de cada diez es el recuento de empleados
+ *   de todos los departamentos de {@link DepartmentHeadcounts}, sin caché; el resto, la consulta de un empleado
+ *   por emp_no.
+ * - Mixta: las lecturas se ejecutan a la vez que una carga, para medir cómo se afectan entre sí.
+ *
+ * Los errores SQL de una lectura se cuentan y la prueba continúa. Un error SQL en la carga cuenta como un error:
+ * el pipeline deshace los cambios de todos los escritores, salvo si el fallo llega al confirmarlos, y entonces
+ * la tabla puede quedar cargada a medias (ver {@link StreamingIntakePipeline#run}). Cualquier otro error detiene
+ * la prueba.
+ */
+@Slf4j
+public class LoadTest {
+
+    // Bloques que caben en la cola de cada escritor de la carga
+    private static final int QUEUE_CAPACITY = 4;
+
+    // Departamentos a los que se asignan los empleados para las lecturas
+    private static final int DEPARTMENTS = 9;
+
+    private static final String SELECT_EMPLOYEE_SQL = "SELECT emp_no, first_name, last_name, gender, hire_date, birth_date "
+            + "FROM employees WHERE emp_no = ?";
+
+    // Intervalo entre muestras del heap
+    private static final long HEAP_SAMPLE_MILLIS = 50;
+
+    private final DataSource dataSource;
+    private final EmployeeUpsertEngine engine;
+    private final int concurrency;
+
+    /**
+     * @param dataSource - Origen de las conexiones. En la prueba mixta se usan hasta 2 * concurrency a la vez
+     * @param engine - Motor de upsert de los escritores de la carga
+     * @param concurrency - Número de hilos de cada carga de trabajo
+     */
+    public LoadTest(DataSource dataSource, EmployeeUpsertEngine engine, int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Se necesita al menos un hilo: " + concurrency);
+        }
+        this.dataSource = dataSource;
+        this.engine = engine;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Carga el fichero CSV en la base de datos.
+     *
+     * @param csv - Fichero CSV de empleados
+     * @return - Resultado de la carga
+     * @throws IOException - Error al leer el fichero
+     */
+    public LoadTestReport intake(Path csv) throws IOException {
+        try (HeapSampler heap = new HeapSampler(HEAP_SAMPLE_MILLIS)) {
+            return runIntake(csv, "Carga " + engine.getStrategy(), heap);
+        }
+    }
+
+    /**
+     * Lanza lecturas durante el tiempo indicado. Los empleados tienen que estar asignados a departamentos
+     * con {@link #assignDepartments()}.
+     *
+     * @param durationMillis - Duración de la prueba
+     * @param firstId - Primer emp_no que se consulta
+     * @param employees - Número de emp_no consecutivos que se consultan
+     * @return - Resultado de las lecturas
+     */
+    public LoadTestReport reads(long durationMillis, int firstId, int employees) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        try (HeapSampler heap = new HeapSampler(HEAP_SAMPLE_MILLIS)) {
+            return runReads(() -> System.nanoTime() < deadline, firstId, employees, "Lecturas", heap);
+        }
+    }
+
+    /**
+     * Lanza lecturas mientras se carga el fichero CSV, hasta que termina la carga.
+     *
+     * @param csv - Fichero CSV de empleados
+     * @param firstId - Primer emp_no que se consulta
+     * @param employees - Número de emp_no consecutivos que se consultan
+     * @return - Resultado de la carga y de las lecturas, en ese orden
+     * @throws IOException - Error al leer el fichero
+     */
+    public List<LoadTestReport> mixed(Path csv, int firstId, int employees) throws IOException {
+        AtomicBoolean intakeRunning = new AtomicBoolean(true);
+        ExecutorService readers = Executors.newSingleThreadExecutor(threads("loadtest-mixed"));
+        try (HeapSampler heap = new HeapSampler(HEAP_SAMPLE_MILLIS)) {
+            Future<LoadTestReport> reads = readers.submit(() ->
+                    runReads(intakeRunning::get, firstId, employees, "Lecturas durante la carga", heap));
+            LoadTestReport intake;
+            try {
+                intake = runIntake(csv, "Carga " + engine.getStrategy() + " con lecturas", heap);
+            } finally {
+                intakeRunning.set(false);
+            }
+            List<LoadTestReport> reports = new ArrayList<>();
+            reports.add(intake);
+            reports.add(await(reads));
+            return reports;
+        } finally {
+            readers.shutdown();
+        }
+    }
+
+    /**
+     * Crea los departamentos d001 a d009 y asigna cada empleado a uno de ellos, para que las lecturas
+     * de recuentos tengan datos. Sustituye los departamentos y las asignaciones anteriores.
+     *
+     * @throws SQLException - Error al escribir las tablas
+     */
+    public void assignDepartments() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DELETE FROM dept_emp");
+                statement.execute("DELETE FROM departments");
+            }
+            try (PreparedStatement insertDepartment = connection.prepareStatement("INSERT INTO departments VALUES (?, ?)");
+                 PreparedStatement assign = connection.prepareStatement("INSERT INTO dept_emp (emp_no, dept_no, from_date, to_date) "
+                         + "SELECT emp_no, ?, hire_date, DATE '9999-01-01' FROM employees WHERE MOD(emp_no, ?) = ?")) {
+                for (int i = 1; i <= DEPARTMENTS; i++) {
+                    insertDepartment.setString(1, department(i));
+                    insertDepartment.setString(2, "Department " + i);
+                    insertDepartment.executeUpdate();
+
+                    assign.setString(1, department(i));
+                    assign.setInt(2, DEPARTMENTS);
+                    assign.setInt(3, i - 1);
+                    assign.executeUpdate();
+                }
+            }
+        }
+        TableChangeNotifier.tablesChanged("dept_emp");
+    }
+
+    private LoadTestReport runIntake(Path csv, String workload, HeapSampler heap) throws IOException {
+        long start = System.nanoTime();
+        // Cada escritor del pipeline registra sus bloques en su propio LatencyRecorder
+        Map<Thread, LatencyRecorder> latencies = new ConcurrentHashMap<>();
+        StreamingIntakePipeline pipeline = new StreamingIntakePipeline(dataSource, engine, concurrency, QUEUE_CAPACITY);
+        pipeline.setChunkListener((rows, elapsedNanos) ->
+                latencies.computeIfAbsent(Thread.currentThread(), thread -> new LatencyRecorder()).record(elapsedNanos));
+
+        long rows = 0;
+        long errors = 0;
+        try (EmployeeCsvReader reader = new EmployeeCsvReader(csv.toString())) {
+            rows = pipeline.run(reader).getRows();
+        } catch (SQLException e) {
+            // Ninguna fila cuenta como escrita, aunque si el fallo llegó al confirmar alguna puede haber quedado
+            errors++;
+            log.warn("Error en la carga de {}. La tabla puede haber quedado cargada a medias: {}", csv, e.getMessage());
+            log.debug("Error en la carga de {}", csv, e);
+        }
+        return report(workload, rows, errors, System.nanoTime() - start, new ArrayList<>(latencies.values()), heap);
+    }
+
+    private LoadTestReport runReads(BooleanSupplier running, int firstId, int employees, String workload, HeapSampler heap) {
+        long start = System.nanoTime();
+        List<String> departments = new ArrayList<>(DEPARTMENTS);
+        for (int i = 1; i <= DEPARTMENTS; i++) {
+            departments.add(department(i));
+        }
+
+        try (DepartmentHeadcounts headcounts = new DepartmentHeadcounts(0, DEPARTMENTS)) {
+            ExecutorService executor = Executors.newFixedThreadPool(concurrency, threads("loadtest-read"));
+            List<LatencyRecorder> latencies = new ArrayList<>(concurrency);
+            List<Future<long[]>> results = new ArrayList<>(concurrency);
+            try {
+                for (int i = 0; i < concurrency; i++) {
+                    LatencyRecorder recorder = new LatencyRecorder();
+                    Random random = new Random(i);
+                    latencies.add(recorder);
+                    results.add(executor.submit(() -> read(running, random, firstId, employees, headcounts, departments, recorder)));
+                }
+            } finally {
+                executor.shutdown();
+            }
+
+            long rows = 0;
+            long errors = 0;
+            for (Future<long[]> result : results) {
+                long[] counts = await(result);
+                rows += counts[0];
+                errors += counts[1];
+            }
+            return report(workload, rows, errors, System.nanoTime() - start, latencies, heap);
+        }
+    }
+
+    /**
+     * Bucle de un hilo de lecturas.
+     *
+     * @return - Filas leídas y errores
+     */
+    private long[] read(BooleanSupplier running, Random random, int firstId, int employees,
+                        DepartmentHeadcounts headcounts, List<String> departments, LatencyRecorder latencies) throws SQLException {
+        long rows = 0;
+        long errors = 0;
+        try (Connection connection = dataSource.getConnection()) {
+            while (running.getAsBoolean()) {
+                long start = System.nanoTime();
+                try {
+                    if (random.nextInt(10) == 0) {
+                        rows += headcounts.countByDepartment(connection, departments).size();
+                    } else {
+                        PreparedStatement select = StatementCache.prepare(connection, SELECT_EMPLOYEE_SQL);
+                        select.setInt(1, firstId + random.nextInt(employees));
+                        try (ResultSet resultSet = select.executeQuery()) {
+                            while (resultSet.next()) {
+                                rows++;
+                            }
+                        }
+                    }
+                } catch (SQLException e) {
+                    errors++;
+                    log.debug("Error en una lectura", e);
+                }
+                latencies.record(System.nanoTime() - start);
+            }
+        }
+        return new long[]{rows, errors};
+    }
+
+    private LoadTestReport report(String workload, long rows, long errors, long elapsedNanos,
+                                  List<LatencyRecorder> latencies, HeapSampler heap) {
+        long[] sorted = LatencyRecorder.merge(latencies);
+        return new LoadTestReport(workload, concurrency, sorted.length, rows, errors, elapsedNanos,
+                LatencyRecorder.percentile(sorted, 50) / 1000, LatencyRecorder.percentile(sorted, 99) / 1000,
+                LatencyRecorder.percentile(sorted, 100) / 1000, heap.getPeakBytes(), heap.getGcMillis());
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            log.error("Error en la prueba de carga", e.getCause());
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Prueba de carga interrumpida", e);
+        }
+    }
+
+    private static ThreadFactory threads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * @return - Código de departamento con el formato de la base de datos employees, por ejemplo d001
+     */
+    private static String department(int number) {
+        return String.format("d%03d", number);
+    }
+}
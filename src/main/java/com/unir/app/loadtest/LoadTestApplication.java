@@ -0,0 +1,76 @@
+package com.unir.app.loadtest;
+
+import com.unir.app.write.EmployeeUpsertEngine;
+import com.unir.config.ConnectionPool;
+import com.unir.config.EmbeddedDatabase;
+import com.unir.config.PoolSettings;
+import com.unir.csv.EmployeeCsvGenerator;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Prueba de carga de extremo a extremo sobre una base de datos H2 embebida en modo MySQL, sin servidor externo.
+ * Las opciones se indican con propiedades de sistema (ver {@link LoadTestOptions}).
+ *
+ * Genera un fichero CSV de empleados con {@link EmployeeCsvGenerator} y ejecuta tres fases con {@link LoadTest}:
+ * 1. Carga del fichero en la tabla vacía.
+ * 2. Lecturas durante readSeconds segundos.
+ * 3. Lecturas mientras se vuelve a cargar el mismo fichero, que ahora son todo actualizaciones.
+ * Al final muestra el resultado de cada fase: rendimiento, latencias p50 y p99 y heap usado.
+ * Si la carga de la fase 1 falla, no se ejecutan las demás.
+ */
+@Slf4j
+public class LoadTestApplication {
+
+    private static final int FIRST_ID = 1;
+
+    public static void main(String[] args) {
+
+        LoadTestOptions options = LoadTestOptions.fromSystemProperties();
+
+        // Cada hilo tiene su conexión, y en la fase mixta hay hilos de carga y de lectura a la vez
+        PoolSettings settings = new PoolSettings();
+        settings.setMaxSize(options.getConcurrency() * 2 + 1);
+        ConnectionPool pool = EmbeddedDatabase.mysql("loadtest", settings);
+
+        Path file = null;
+        try {
+            file = options.getFile() != null ? Paths.get(options.getFile()) : Files.createTempFile("loadtest", ".csv");
+            long start = System.nanoTime();
+            int employees = new EmployeeCsvGenerator(options.getSeed(), options.getDuplicateRatio())
+                    .generate(file, options.getRows(), FIRST_ID);
+            log.info("Fichero {} generado en {} ms: {} filas, {} empleados distintos", file,
+                    (System.nanoTime() - start) / 1_000_000, options.getRows(), employees);
+
+            LoadTest loadTest = new LoadTest(pool.getDataSource(),
+                    new EmployeeUpsertEngine(options.getStrategy(), options.getBatchSize()), options.getConcurrency());
+            List<LoadTestReport> reports = new ArrayList<>();
+            LoadTestReport intake = loadTest.intake(file);
+            reports.add(intake);
+            if (intake.getErrors() == 0) {
+                loadTest.assignDepartments();
+                reports.add(loadTest.reads(options.getReadSeconds() * 1000L, FIRST_ID, employees));
+                reports.addAll(loadTest.mixed(file, FIRST_ID, employees));
+            } else {
+                // Las lecturas medirían una tabla vacía o cargada a medias
+                log.warn("La carga inicial ha fallado; no se ejecutan las fases de lecturas");
+            }
+
+            reports.forEach(report -> log.info("Prueba de carga. {}", report));
+            log.info("Heap máximo de la JVM: {} MB", Runtime.getRuntime().maxMemory() / (1024 * 1024));
+
+        } catch (Exception e) {
+            log.error("Error en la prueba de carga", e);
+        } finally {
+            if (file != null && options.getFile() == null) {
+                file.toFile().delete();
+            }
+        }
+        log.info("Estadísticas del pool: {}", pool.getStatistics());
+    }
+}
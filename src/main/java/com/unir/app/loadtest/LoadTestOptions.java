@@ -0,0 +1,57 @@
+package com.unir.app.loadtest;
+
+import com.unir.app.write.EmployeeUpsertEngine;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Opciones de la prueba de carga. Se leen de propiedades de sistema, por ejemplo:
+ * -Dloadtest.rows=1000000 -Dloadtest.duplicateRatio=0.2 -Dloadtest.concurrency=8 -Dloadtest.readSeconds=30
+ * -Dloadtest.strategy=DELTA -Dloadtest.batchSize=1000 -Dloadtest.file=empleados.csv
+ */
+@Getter
+@Setter
+public class LoadTestOptions {
+
+    // Filas del fichero CSV generado
+    private int rows = 100_000;
+
+    // Proporción de filas que repiten un empleado anterior
+    private double duplicateRatio = 0.1;
+
+    // Semilla del generador, para repetir la prueba con el mismo fichero
+    private long seed = 42;
+
+    // Hilos de cada carga de trabajo. En la fase mixta se usan el doble de conexiones
+    private int concurrency = 4;
+
+    // Duración de la fase de lecturas
+    private int readSeconds = 10;
+
+    // Estrategia de upsert de la carga
+    private EmployeeUpsertEngine.Strategy strategy = EmployeeUpsertEngine.Strategy.PREFETCH_KEYS;
+
+    // Tamaño de lote de los escritores de la carga
+    private int batchSize = 1000;
+
+    // Fichero CSV generado. Si no se indica se usa un fichero temporal que se borra al terminar
+    private String file;
+
+    /**
+     * @return - Opciones leídas de las propiedades de sistema loadtest.*
+     */
+    public static LoadTestOptions fromSystemProperties() {
+        LoadTestOptions options = new LoadTestOptions();
+        options.setRows(Integer.getInteger("loadtest.rows", options.getRows()));
+        options.setDuplicateRatio(Double.parseDouble(
+                System.getProperty("loadtest.duplicateRatio", String.valueOf(options.getDuplicateRatio()))));
+        options.setSeed(Long.getLong("loadtest.seed", options.getSeed()));
+        options.setConcurrency(Integer.getInteger("loadtest.concurrency", options.getConcurrency()));
+        options.setReadSeconds(Integer.getInteger("loadtest.readSeconds", options.getReadSeconds()));
+        options.setStrategy(EmployeeUpsertEngine.Strategy.valueOf(
+                System.getProperty("loadtest.strategy", options.getStrategy().name())));
+        options.setBatchSize(Integer.getInteger("loadtest.batchSize", options.getBatchSize()));
+        options.setFile(System.getProperty("loadtest.file"));
+        return options;
+    }
+}
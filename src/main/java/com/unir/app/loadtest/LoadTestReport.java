@@ -0,0 +1,48 @@
+package com.unir.app.loadtest;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Resultado de una fase de la prueba de carga: operaciones y filas procesadas, errores, tiempo total,
+ * latencia por operación, máximo de heap usado y tiempo de GC durante la fase.
+ * Una operación es un bloque confirmado en la carga, o una consulta en las lecturas.
+ */
+@AllArgsConstructor
+@Getter
+public class LoadTestReport {
+    private String workload;
+    private int concurrency;
+    private long operations;
+    private long rows;
+    private long errors;
+    private long elapsedNanos;
+    private long latencyP50Micros;
+    private long latencyP99Micros;
+    private long latencyMaxMicros;
+    private long heapPeakBytes;
+    private long gcMillis;
+
+    /**
+     * @return - Operaciones por segundo
+     */
+    public double getOperationsPerSecond() {
+        return elapsedNanos == 0 ? 0 : operations * 1_000_000_000d / elapsedNanos;
+    }
+
+    /**
+     * @return - Filas por segundo
+     */
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rows * 1_000_000_000d / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s con %d hilos: %d operaciones (%d filas, %d errores) en %d ms, %.0f op/seg, %.0f filas/seg. "
+                        + "Latencia por operación: p50 %.2f ms, p99 %.2f ms, máx %.2f ms. Heap máximo %d MB, GC %d ms",
+                workload, concurrency, operations, rows, errors, elapsedNanos / 1_000_000, getOperationsPerSecond(),
+                getRowsPerSecond(), latencyP50Micros / 1000d, latencyP99Micros / 1000d, latencyMaxMicros / 1000d,
+                heapPeakBytes / (1024 * 1024), gcMillis);
+    }
+}
@@ -0,0 +1,200 @@
+package com.unir.app.read;
+
+import com.unir.config.Dialect;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.transform.stax.StAXSource;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLXML;
+
+/**
+ * Exporta los países a un único documento XML, escrito en streaming con un XMLStreamWriter:
+ *
+ * {@code <countries><countryXml name="Spain" code="1" id="ES"/>...</countries>}
+ *
+ * Ningún país se convierte en un String completo ni se guarda el documento en memoria. Hay dos modos:
+ * - SQLXML: la base de datos genera cada elemento con SQL/XML (XMLELEMENT en Oracle, XMLNODE en H2)
+ *   y se lee con la interfaz SQLXML como un XMLStreamReader, cuyos eventos se copian a la salida.
+ * - CLIENT: se leen las columnas normales y el elemento se genera en la aplicación.
+ *   Transfiere menos datos y no necesita el módulo XDB de Oracle.
+ *
+ * Los atributos con valor NULL no se escriben, igual que hace XMLATTRIBUTES.
+ * Para comparar los dos modos está CountryXmlExportBenchmark (con -prof gc para la memoria).
+ * Con elementos tan pequeños, el modo SQLXML cuesta sobre todo el parser que el driver crea para cada valor.
+ */
+@Slf4j
+public class CountryXmlExporter {
+
+    /**
+     * Dónde se genera el XML de cada país.
+     */
+    public enum Mode {
+        SQLXML,
+        CLIENT
+    }
+
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    private static final String ORACLE_SQLXML = "SELECT XMLELEMENT(\"countryXml\", XMLATTRIBUTES("
+            + "c.country_name AS \"name\", c.region_id AS \"code\", c.country_id AS \"id\")) "
+            + "FROM countries c WHERE c.country_name LIKE ? ORDER BY c.country_id";
+
+    private static final String H2_SQLXML = "SELECT XMLNODE('countryXml', XMLATTR('name', c.country_name) "
+            + "|| XMLATTR('code', c.region_id) || XMLATTR('id', c.country_id), NULL, FALSE) "
+            + "FROM countries c WHERE c.country_name LIKE ? ORDER BY c.country_id";
+
+    private static final String CLIENT_SQL = "SELECT c.country_name, c.region_id, c.country_id "
+            + "FROM countries c WHERE c.country_name LIKE ? ORDER BY c.country_id";
+
+    private final Mode mode;
+
+    /**
+     * @param mode - Dónde se genera el XML de cada país
+     */
+    public CountryXmlExporter(Mode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Exporta los países a un fichero.
+     *
+     * @param connection - Conexión a la base de datos
+     * @param namePattern - Patrón LIKE del nombre de los países, % para todos
+     * @param output - Fichero de salida. Se sobrescribe si existe
+     * @return - Número de países exportados
+     * @throws SQLException - Error al leer de la base de datos
+     * @throws IOException - Error al escribir el fichero
+     */
+    public long export(Connection connection, String namePattern, Path output) throws SQLException, IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(output), 64 * 1024)) {
+            return export(connection, namePattern, out);
+        }
+    }
+
+    /**
+     * Exporta los países a un stream, codificados en UTF-8. El stream no se cierra.
+     *
+     * @param connection - Conexión a la base de datos
+     * @param namePattern - Patrón LIKE del nombre de los países, % para todos
+     * @param out - Salida del documento
+     * @return - Número de países exportados
+     * @throws SQLException - Error al leer de la base de datos
+     * @throws IOException - Error al generar o escribir el XML
+     */
+    public long export(Connection connection, String namePattern, OutputStream out) throws SQLException, IOException {
+        long start = System.nanoTime();
+        Dialect dialect = Dialect.of(connection);
+        long countries = 0;
+
+        try (PreparedStatement statement = connection.prepareStatement(sql(dialect),
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            statement.setFetchSize(dialect.getStreamingFetchSize());
+            statement.setString(1, namePattern);
+
+            XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter(out, "UTF-8");
+            try (ResultSet resultSet = statement.executeQuery()) {
+                writer.writeStartDocument("UTF-8", "1.0");
+                writer.writeCharacters("\n");
+                writer.writeStartElement("countries");
+                writer.writeCharacters("\n");
+                while (resultSet.next()) {
+                    if (mode == Mode.SQLXML) {
+                        copyElement(resultSet.getSQLXML(1), writer);
+                    } else {
+                        writeElement(resultSet, writer);
+                    }
+                    writer.writeCharacters("\n");
+                    countries++;
+                }
+                writer.writeEndElement();
+                writer.writeEndDocument();
+                writer.flush();
+            } finally {
+                writer.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Error al generar el XML de los países", e);
+        }
+
+        log.debug("Exportados {} países en modo {} en {} ms", countries, mode, (System.nanoTime() - start) / 1_000_000);
+        return countries;
+    }
+
+    private String sql(Dialect dialect) throws SQLException {
+        if (mode == Mode.CLIENT) {
+            return CLIENT_SQL;
+        }
+        switch (dialect) {
+            case ORACLE:
+                return ORACLE_SQLXML;
+            case H2:
+                return H2_SQLXML;
+            default:
+                throw new SQLException("La base de datos " + dialect + " no admite SQL/XML. Hay que usar el modo CLIENT");
+        }
+    }
+
+    /**
+     * Copia los eventos de un valor SQLXML a la salida, sin el inicio y el fin de documento.
+     * El valor se libera al terminar.
+     */
+    private static void copyElement(SQLXML xml, XMLStreamWriter writer) throws SQLException, XMLStreamException {
+        try {
+            XMLStreamReader reader = xml.getSource(StAXSource.class).getXMLStreamReader();
+            try {
+                while (reader.hasNext()) {
+                    switch (reader.next()) {
+                        case XMLStreamConstants.START_ELEMENT:
+                            writer.writeStartElement(reader.getLocalName());
+                            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                                writer.writeAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+                            }
+                            break;
+                        case XMLStreamConstants.END_ELEMENT:
+                            writer.writeEndElement();
+                            break;
+                        case XMLStreamConstants.CHARACTERS:
+                        case XMLStreamConstants.SPACE:
+                            writer.writeCharacters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                            break;
+                        case XMLStreamConstants.CDATA:
+                            writer.writeCData(reader.getText());
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } finally {
+            xml.free();
+        }
+    }
+
+    private static void writeElement(ResultSet resultSet, XMLStreamWriter writer) throws SQLException, XMLStreamException {
+        writer.writeEmptyElement("countryXml");
+        writeAttribute(writer, "name", resultSet.getString(1));
+        writeAttribute(writer, "code", resultSet.getString(2));
+        writeAttribute(writer, "id", resultSet.getString(3));
+    }
+
+    private static void writeAttribute(XMLStreamWriter writer, String name, String value) throws XMLStreamException {
+        if (value != null) {
+            writer.writeAttribute(name, value);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.unir.app.read;
+
+import com.unir.config.StatementCache;
+import com.unir.config.TableChangeNotifier;
+import com.unir.config.TtlCache;
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Número de empleados por departamento para varios departamentos a la vez.
+ *
+ * Los departamentos que no están en la caché se consultan todos juntos con un único GROUP BY,
+ * en lugar de una consulta por departamento. Los resultados se guardan en una caché con TTL que se invalida
+ * cuando se confirman cambios en employees o dept_emp desde esta aplicación (ver {@link TableChangeNotifier}).
+ *
+ * Los avisos no llegan de otras JVM, como una carga con MySqlApplicationIntake: esos cambios se ven al caducar el TTL.
+ * Opcionalmente, con freshnessCheckMillis, antes de usar la caché se consulta como mucho una vez por intervalo
+ * el número de filas de employees y dept_emp y el mayor emp_no de dept_emp, y si ha cambiado se invalida la caché.
+ * Está desactivada por defecto: los COUNT(*) recorren las dos tablas enteras, lo que en tablas grandes cuesta
+ * casi tanto como los propios recuentos, y no detecta los cambios de departamento sin alta ni baja.
+ * Solo compensa con un intervalo de varios segundos y cuando otras JVM escriben a menudo.
+ *
+ * Las instancias propias se suscriben a los avisos de cambios y hay que cerrarlas al terminar de usarlas.
+ * La instancia compartida dura lo que la aplicación y cerrarla no tiene efecto.
+ */
+@Slf4j
+public class DepartmentHeadcounts implements AutoCloseable {
+
+    private static final DepartmentHeadcounts SHARED = new DepartmentHeadcounts(
+            Long.getLong("headcount.cacheTtlMs", 60_000),
+            Integer.getInteger("headcount.cacheSize", 1_000),
+            Long.getLong("headcount.freshnessCheckMs", -1));
+
+    private static final String SIGNATURE_SQL = "select (select count(*) from employees), "
+            + "(select count(*) from dept_emp), (select coalesce(max(emp_no), 0) from dept_emp)";
+
+    private final TtlCache<String, Integer> cache;
+    private final Runnable invalidate;
+
+    // Comprobación de cambios hechos desde otras JVM. Con -1 no se comprueba
+    private final long freshnessCheckNanos;
+    private long checkedAt;
+    private long[] tableSignature;
+
+    /**
+     * Crea una instancia con su propia caché, suscrita a los cambios en employees y dept_emp.
+     * Normalmente basta con la instancia compartida de {@link #shared()}.
+     *
+     * @param ttlMillis - Tiempo que se considera válido un recuento
+     * @param maxSize - Número máximo de departamentos en la caché
+     */
+    public DepartmentHeadcounts(long ttlMillis, int maxSize) {
+        this(ttlMillis, maxSize, -1);
+    }
+
+    /**
+     * Igual que {@link #DepartmentHeadcounts(long, int)}, comprobando también cambios hechos desde otras JVM.
+     *
+     * @param ttlMillis - Tiempo que se considera válido un recuento
+     * @param maxSize - Número máximo de departamentos en la caché
+     * @param freshnessCheckMillis - Intervalo mínimo entre comprobaciones de las tablas en la base de datos. -1 las desactiva
+     */
+    public DepartmentHeadcounts(long ttlMillis, int maxSize, long freshnessCheckMillis) {
+        this.cache = new TtlCache<>(ttlMillis, maxSize);
+        this.freshnessCheckNanos = freshnessCheckMillis < 0 ? -1 : freshnessCheckMillis * 1_000_000;
+
+        // Guardamos la referencia para poder quitar la suscripción en close()
+        this.invalidate = cache::invalidateAll;
+        TableChangeNotifier.addListener("employees", invalidate);
+        TableChangeNotifier.addListener("dept_emp", invalidate);
+    }
+
+    /**
+     * @return - Instancia compartida, configurada con headcount.cacheTtlMs, headcount.cacheSize y headcount.freshnessCheckMs
+     *         (desactivada si no se indica)
+     */
+    public static DepartmentHeadcounts shared() {
+        return SHARED;
+    }
+
+    /**
+     * Devuelve el número de empleados de cada departamento.
+     * Los departamentos sin empleados o inexistentes aparecen con 0.
+     *
+     * @param connection - Conexión a la base de datos
+     * @param departments - Códigos de departamento, por ejemplo d001
+     * @return - Número de empleados por departamento, en el orden pedido
+     * @throws SQLException - Error al ejecutar la consulta
+     */
+    public Map<String, Integer> countByDepartment(Connection connection, Collection<String> departments) throws SQLException {
+        checkFreshness(connection);
+
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String department : departments) {
+            Integer count = cache.get(department);
+            counts.put(department, count);
+            if (count == null) {
+                missing.add(department);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            // Si se invalida la caché mientras consultamos, los recuentos pueden ser de antes del cambio: no se guardan
+            long generation = cache.getGeneration();
+            Map<String, Integer> fetched = query(connection, missing);
+            for (String department : missing) {
+                int count = fetched.getOrDefault(department, 0);
+                cache.put(department, count, generation);
+                counts.put(department, count);
+            }
+        }
+        log.debug("Recuentos por departamento: {} de la caché, {} consultados", departments.size() - missing.size(), missing.size());
+        return counts;
+    }
+
+    /**
+     * @return - Aciertos y fallos de la caché, para comprobar qué parte de las peticiones se resuelve en memoria
+     */
+    public String getCacheStatistics() {
+        return "aciertos=" + cache.getHits() + ", fallos=" + cache.getMisses();
+    }
+
+    /**
+     * Anula la suscripción a los avisos de cambios. No afecta a la instancia compartida.
+     */
+    @Override
+    public void close() {
+        if (this != SHARED) {
+            TableChangeNotifier.removeListener("employees", invalidate);
+            TableChangeNotifier.removeListener("dept_emp", invalidate);
+        }
+    }
+
+    /**
+     * Invalida la caché si las tablas han cambiado desde la última comprobación.
+     * Solo un hilo consulta la base de datos por intervalo; los demás esperan a que termine.
+     */
+    private void checkFreshness(Connection connection) throws SQLException {
+        if (freshnessCheckNanos < 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        synchronized (this) {
+            if (tableSignature != null && now - checkedAt < freshnessCheckNanos) {
+                return;
+            }
+            long[] signature = new long[3];
+            PreparedStatement probe = StatementCache.prepare(connection, SIGNATURE_SQL);
+            try (ResultSet resultSet = probe.executeQuery()) {
+                resultSet.next();
+                for (int i = 0; i < signature.length; i++) {
+                    signature[i] = resultSet.getLong(i + 1);
+                }
+            }
+            if (tableSignature != null && !Arrays.equals(signature, tableSignature)) {
+                log.debug("Las tablas han cambiado fuera de la aplicación, se invalida la caché de recuentos");
+                cache.invalidateAll();
+            }
+            tableSignature = signature;
+            checkedAt = now;
+        }
+    }
+
+    /**
+     * Consulta los departamentos en un único viaje.
+     * El número de parámetros del IN se redondea a la siguiente potencia de 2, repitiendo el último departamento,
+     * para que la caché de sentencias solo tenga unas pocas variantes de la consulta.
+     */
+    private Map<String, Integer> query(Connection connection, List<String> departments) throws SQLException {
+        int parameters = Integer.highestOneBit(departments.size());
+        if (parameters < departments.size()) {
+            parameters <<= 1;
+        }
+
+        StringBuilder sql = new StringBuilder("select dep_rel.dept_no, count(*) as Total\n" +
+                "from employees emp\n" +
+                "inner join dept_emp dep_rel on emp.emp_no = dep_rel.emp_no\n" +
+                "inner join departments dep on dep_rel.dept_no = dep.dept_no\n" +
+                "where dep_rel.dept_no in (");
+        for (int i = 0; i < parameters; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")\ngroup by dep_rel.dept_no");
+
+        PreparedStatement selectCounts = StatementCache.prepare(connection, sql.toString());
+        for (int i = 0; i < parameters; i++) {
+            selectCounts.setString(i + 1, departments.get(Math.min(i, departments.size() - 1)));
+        }
+
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        try (ResultSet resultSet = selectCounts.executeQuery()) {
+            while (resultSet.next()) {
+                counts.put(resultSet.getString(1), resultSet.getInt("Total"));
+            }
+        }
+        return counts;
+    }
+}
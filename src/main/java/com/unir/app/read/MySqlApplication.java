@@ -1,9 +1,15 @@
 package com.unir.app.read;
 
 import com.unir.config.MySqlConnector;
+import com.unir.config.StatementCache;
+import com.unir.config.StreamingQuery;
+import com.unir.model.MySqlEmployee;
 import lombok.extern.slf4j.Slf4j;
 
 import java.sql.*;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
 
 @Slf4j
 public class MySqlApplication {
@@ -13,13 +19,16 @@ public class MySqlApplication {
     public static void main(String[] args) {
 
         //Creamos conexion. No es necesario indicar puerto en host si usamos el default, 1521
-        //Try-with-resources. Se cierra la conexión automáticamente al salir del bloque try
-        try(Connection connection = new MySqlConnector("localhost", DATABASE).getConnection()) {
+        //Try-with-resources. Al salir del bloque try la conexión se cierra y se devuelve al pool
+        //Solo hacemos consultas: la conexión es de una réplica si hay alguna configurada en mysql.replicas
+        try(Connection connection = MySqlConnector.routing("localhost", DATABASE).getReadConnection()) {
 
             log.info("Conexión establecida con la base de datos Oracle");
 
             selectAllEmployeesOfDepartment(connection, "d001");
             selectAllEmployeesOfDepartment(connection, "d002");
+            selectHeadcounts(connection, Arrays.asList("d001", "d002", "d003", "d004", "d005"));
+            streamAllEmployees(connection);
 
         } catch (Exception e) {
             log.error("Error al tratar con la base de datos", e);
@@ -27,21 +36,18 @@ public class MySqlApplication {
     }
 
     /**
-     * Ejemplo de consulta a la base de datos usando Statement.
-     * Statement es la forma más básica de ejecutar consultas a la base de datos.
-     * Es la más insegura, ya que no se protege de ataques de inyección SQL.
-     * No obstante es útil para sentencias DDL.
+     * Ejemplo de consulta de una tabla grande en streaming.
+     * Las filas se leen del servidor según se consumen, así que la memoria no depende del tamaño de la tabla.
+     * El Stream se cierra con try-with-resources, que cierra a su vez la sentencia y el ResultSet.
      * @param connection
      * @throws SQLException
      */
-    private static void selectAllEmployees(Connection connection) throws SQLException {
-        Statement selectEmployees = connection.createStatement();
-        ResultSet employees = selectEmployees.executeQuery("select * from employees");
-
-        while (employees.next()) {
-            log.debug("Employee: {} {}",
-                    employees.getString("first_name"),
-                    employees.getString("last_name"));
+    private static void streamAllEmployees(Connection connection) throws SQLException {
+        try (Stream<MySqlEmployee> employees = StreamingQuery.stream(connection,
+                "select * from employees", MySqlApplication::mapEmployee)) {
+            employees.forEach(employee -> log.debug("Employee: {} {}",
+                    employee.getFirstName(),
+                    employee.getLastName()));
         }
     }
 
@@ -54,18 +60,58 @@ public class MySqlApplication {
      * @throws SQLException
      */
     private static void selectAllEmployeesOfDepartment(Connection connection, String department) throws SQLException {
-        PreparedStatement selectEmployees = connection.prepareStatement("select count(*) as 'Total'\n" +
+        log.debug("Empleados del departamento {}: {}",
+                department,
+                countEmployeesOfDepartment(connection, department));
+    }
+
+    /**
+     * Ejemplo de consulta agregada de varios departamentos en un único viaje a la base de datos.
+     * Los recuentos se guardan en una caché, así que repetir la llamada no vuelve a consultar la base de datos
+     * hasta que caduquen o se carguen nuevos empleados.
+     * @param connection
+     * @param departments - Códigos de los departamentos
+     * @throws SQLException
+     */
+    private static void selectHeadcounts(Connection connection, List<String> departments) throws SQLException {
+        DepartmentHeadcounts.shared().countByDepartment(connection, departments)
+                .forEach((department, total) -> log.debug("Empleados del departamento {}: {}", department, total));
+    }
+
+    /**
+     * Cuenta los empleados de un departamento.
+     * @param connection
+     * @param department - Código del departamento, por ejemplo d001
+     * @return - Número de empleados
+     * @throws SQLException
+     */
+    static int countEmployeesOfDepartment(Connection connection, String department) throws SQLException {
+        // La sentencia se reutiliza de la caché de la conexión: no se vuelve a analizar ni se cierra
+        PreparedStatement selectEmployees = StatementCache.prepare(connection, "select count(*) as Total\n" +
                 "from employees emp\n" +
                 "inner join dept_emp dep_rel on emp.emp_no = dep_rel.emp_no\n" +
                 "inner join departments dep on dep_rel.dept_no = dep.dept_no\n" +
                 "where dep_rel.dept_no = ?;\n");
         selectEmployees.setString(1, department);
-        ResultSet employees = selectEmployees.executeQuery();
-
-        while (employees.next()) {
-            log.debug("Empleados del departamento {}: {}",
-                    department,
-                    employees.getString("Total"));
+        try (ResultSet employees = selectEmployees.executeQuery()) {
+            employees.next(); // Nos movemos a la primera fila
+            return employees.getInt("Total");
         }
     }
+
+    /**
+     * Convierte la fila actual de un ResultSet de la tabla employees en un empleado.
+     * @param employees - ResultSet posicionado en una fila
+     * @return - Empleado
+     * @throws SQLException
+     */
+    static MySqlEmployee mapEmployee(ResultSet employees) throws SQLException {
+        return new MySqlEmployee(
+                employees.getInt("emp_no"),
+                employees.getString("first_name"),
+                employees.getString("last_name"),
+                employees.getString("gender"),
+                employees.getDate("hire_date"),
+                employees.getDate("birth_date"));
+    }
 }
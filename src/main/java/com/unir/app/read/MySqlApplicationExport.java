@@ -0,0 +1,36 @@
+package com.unir.app.read;
+
+import com.unir.config.MySqlConnector;
+import com.unir.config.RoutingDataSource;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.file.Paths;
+
+/**
+ * Exporta la tabla employees a un fichero CSV que se puede volver a cargar con MySqlApplicationIntake.
+ * Opciones (propiedades de sistema):
+ * -Dexport.file=employees-export.csv -Dexport.parallelism=4 -Dexport.pageSize=5000
+ * El paralelismo no debería superar el tamaño máximo del pool (mysql.pool.maxSize).
+ */
+@Slf4j
+public class MySqlApplicationExport {
+
+    private static final String DATABASE = "employees";
+
+    public static void main(String[] args) {
+
+        String file = System.getProperty("export.file", "employees-export.csv");
+        int parallelism = Integer.getInteger("export.parallelism", Runtime.getRuntime().availableProcessors());
+        int pageSize = Integer.getInteger("export.pageSize", 5000);
+
+        // Cada rango se lee con su propia conexión, de las réplicas si hay alguna configurada en mysql.replicas
+        RoutingDataSource routing = MySqlConnector.routing("localhost", DATABASE);
+
+        try {
+            new ParallelEmployeeExporter(routing.getReadDataSource(), parallelism, pageSize).export(Paths.get(file));
+        } catch (Exception e) {
+            log.error("Error al exportar la tabla employees", e);
+        }
+        log.info("Lecturas por base de datos: {}", routing.getStatistics());
+    }
+}
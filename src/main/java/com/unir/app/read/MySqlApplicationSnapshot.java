@@ -0,0 +1,54 @@
+package com.unir.app.read;
+
+import com.unir.config.MySqlConnector;
+import com.unir.config.RoutingDataSource;
+import com.unir.snapshot.EmployeeSnapshot;
+import com.unir.snapshot.SnapshotBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Crea o actualiza la instantánea local de employees y dept_emp y la consulta sin ir a la base de datos.
+ * Opciones (propiedades de sistema):
+ * -Dsnapshot.file=employees.snapshot -Dsnapshot.bucketWidth=1000
+ * Cuanto más estrechos son los bloques, menos filas se releen al actualizar, pero más checksums hay que comparar.
+ */
+@Slf4j
+public class MySqlApplicationSnapshot {
+
+    private static final String DATABASE = "employees";
+
+    public static void main(String[] args) {
+
+        Path file = Paths.get(System.getProperty("snapshot.file", "employees.snapshot"));
+        int bucketWidth = Integer.getInteger("snapshot.bucketWidth", 1000);
+
+        // La instantánea se construye leyendo de una réplica si hay alguna configurada en mysql.replicas
+        RoutingDataSource routing = MySqlConnector.routing("localhost", DATABASE);
+
+        try {
+            try (Connection connection = routing.getReadConnection()) {
+                SnapshotBuilder.refresh(connection, file, bucketWidth);
+            }
+
+            // A partir de aquí no se usa la base de datos
+            try (EmployeeSnapshot snapshot = EmployeeSnapshot.open(file)) {
+                long start = System.nanoTime();
+                log.info("Empleados: {}", snapshot.getEmployees());
+                log.info("Empleados por departamento: {}", snapshot.countByDepartment(
+                        Arrays.asList("d001", "d002", "d003", "d004", "d005")));
+                log.info("Mujeres: {}, hombres: {}", snapshot.countByGender("F"), snapshot.countByGender("M"));
+                log.info("Contratados en 1990: {}", snapshot.countHiredBetween(
+                        LocalDate.of(1990, 1, 1), LocalDate.of(1990, 12, 31)));
+                log.info("Consultas resueltas en {} µs", (System.nanoTime() - start) / 1_000);
+            }
+        } catch (Exception e) {
+            log.error("Error al crear o consultar la instantánea", e);
+        }
+    }
+}
@@ -1,9 +1,13 @@
 package com.unir.app.read;
 
 import com.unir.config.OracleDatabaseConnector;
+import com.unir.config.StatementCache;
+import com.unir.config.StreamingQuery;
 import lombok.extern.slf4j.Slf4j;
 
+import java.nio.file.Paths;
 import java.sql.*;
+import java.util.stream.Stream;
 
 @Slf4j
 public class OracleApplication {
@@ -13,13 +17,15 @@ public class OracleApplication {
     public static void main(String[] args) {
 
         //Creamos conexion. No es necesario indicar puerto en host si usamos el default, 1521
-        //Try-with-resources. Se cierra la conexión automáticamente al salir del bloque try
-        try(Connection connection = new OracleDatabaseConnector("localhost", SERIVCE_NAME).getConnection()) {
+        //Try-with-resources. Al salir del bloque try la conexión se cierra y se devuelve al pool
+        //Solo hay lecturas: la conexión es de una réplica si hay alguna configurada en oracle.replicas
+        try(Connection connection = OracleDatabaseConnector.routing("localhost", SERIVCE_NAME).getReadConnection()) {
 
             log.debug("Conexión establecida con la base de datos Oracle");
 
-            selectAllEmployees(connection);
+            streamAllEmployees(connection);
             selectAllCountriesAsXml(connection);
+            exportCountriesAsXml(connection);
 
         } catch (Exception e) {
             log.error("Error al tratar con la base de datos", e);
@@ -27,21 +33,17 @@ public class OracleApplication {
     }
 
     /**
-     * Ejemplo de consulta a la base de datos usando Statement.
-     * Statement es la forma más básica de ejecutar consultas a la base de datos.
-     * Es la más insegura, ya que no se protege de ataques de inyección SQL.
-     * No obstante, es útil para sentencias DDL.
+     * Ejemplo de consulta de una tabla grande en streaming.
+     * Con Oracle el driver trae por defecto 10 filas en cada viaje; en streaming se usa el fetch size
+     * configurado en oracle.fetchSize, 1000 por defecto.
+     * El Stream se cierra con try-with-resources, que cierra a su vez la sentencia y el ResultSet.
      * @param connection
      * @throws SQLException
      */
-    private static void selectAllEmployees(Connection connection) throws SQLException {
-        Statement selectEmployees = connection.createStatement();
-        ResultSet employees = selectEmployees.executeQuery("select * from EMPLOYEES");
-
-        while (employees.next()) {
-            log.debug("Employee: {} {}",
-                    employees.getString("FIRST_NAME"),
-                    employees.getString("LAST_NAME"));
+    private static void streamAllEmployees(Connection connection) throws SQLException {
+        try (Stream<String> names = StreamingQuery.stream(connection, "select FIRST_NAME, LAST_NAME from EMPLOYEES",
+                employees -> employees.getString("FIRST_NAME") + " " + employees.getString("LAST_NAME"))) {
+            names.forEach(name -> log.debug("Employee: {}", name));
         }
     }
 
@@ -50,11 +52,13 @@ public class OracleApplication {
      * Para usar SQL/XML, es necesario que la base de datos tenga instalado el módulo XDB.
      * En Oracle 19c, XDB viene instalado por defecto.
      * Ademas, se necesitan las dependencias que se encuentran en el pom.xml.
+     * Cada país se convierte en un String completo: para exportar muchos países es mejor {@link CountryXmlExporter}.
      * @param connection
      * @throws SQLException
      */
     private static void selectAllCountriesAsXml(Connection connection) throws SQLException {
-        PreparedStatement selectCountries = connection.prepareStatement("SELECT\n" +
+        // La sentencia se reutiliza de la caché de la conexión: no se vuelve a analizar ni se cierra
+        PreparedStatement selectCountries = StatementCache.prepare(connection, "SELECT\n" +
                 "  XMLELEMENT(\"countryXml\",\n" +
                 "       XMLATTRIBUTES(\n" +
                 "         c.country_name AS \"name\",\n" +
@@ -65,9 +69,23 @@ public class OracleApplication {
                 "WHERE c.country_name LIKE ?");
         selectCountries.setString(1, "S%");
 
-        ResultSet countries = selectCountries.executeQuery();
-        while (countries.next()) {
-            log.debug("Country as XML: {}", countries.getString("CountryXml"));
+        try (ResultSet countries = selectCountries.executeQuery()) {
+            while (countries.next()) {
+                log.debug("Country as XML: {}", countries.getString("CountryXml"));
+            }
         }
     }
+
+    /**
+     * Ejemplo de exportación de los países a un documento XML en streaming.
+     * Opciones (propiedades de sistema): -Dcountries.xmlFile=countries.xml -Dcountries.xmlMode=SQLXML|CLIENT
+     * @param connection
+     * @throws Exception
+     */
+    private static void exportCountriesAsXml(Connection connection) throws Exception {
+        CountryXmlExporter.Mode mode = CountryXmlExporter.Mode.valueOf(System.getProperty("countries.xmlMode", "SQLXML"));
+        String file = System.getProperty("countries.xmlFile", "countries.xml");
+        long countries = new CountryXmlExporter(mode).export(connection, "%", Paths.get(file));
+        log.debug("Exportados {} países a {}", countries, file);
+    }
 }
@@ -0,0 +1,226 @@
+package com.unir.app.read;
+
+import com.opencsv.CSVWriter;
+import com.opencsv.ICSVWriter;
+import com.unir.config.StatementCache;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Exporta la tabla employees a un fichero CSV con el mismo formato que unirEmployees.csv,
+ * de forma que el fichero se puede volver a cargar con MySqlApplicationIntake.
+ *
+ * La tabla se divide en rangos de emp_no que se leen en paralelo, cada uno con su propia conexión del pool.
+ * Dentro de cada rango se pagina por clave (WHERE emp_no > último leído ... LIMIT n), sin OFFSET,
+ * así que cada página cuesta lo mismo independientemente de su posición en la tabla.
+ *
+ * Cada rango se escribe en un fichero temporal y los ficheros se concatenan en orden,
+ * por lo que el resultado queda ordenado por emp_no.
+ */
+@Slf4j
+public class ParallelEmployeeExporter {
+
+    private static final String HEADER = "employeeId,firstName,lastName,gender,hireDate,birthDate\n";
+
+    private static final String PAGE_SQL = "SELECT emp_no, first_name, last_name, gender, hire_date, birth_date "
+            + "FROM employees WHERE emp_no > ? AND emp_no <= ? ORDER BY emp_no LIMIT ?";
+
+    // Rangos por hilo. Con más rangos que hilos, un rango más denso que los demás no retrasa toda la exportación
+    private static final int RANGES_PER_THREAD = 4;
+
+    private final DataSource dataSource;
+    private final int parallelism;
+    private final int pageSize;
+
+    /**
+     * @param dataSource - Origen de las conexiones, normalmente un pool con al menos parallelism conexiones
+     * @param parallelism - Número de rangos que se leen a la vez
+     * @param pageSize - Filas por página dentro de cada rango
+     */
+    public ParallelEmployeeExporter(DataSource dataSource, int parallelism, int pageSize) {
+        if (parallelism < 1 || pageSize < 1) {
+            throw new IllegalArgumentException("El paralelismo y el tamaño de página deben ser mayores que 0");
+        }
+        this.dataSource = dataSource;
+        this.parallelism = parallelism;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Exporta la tabla completa.
+     *
+     * @param output - Fichero de salida. Se sobrescribe si existe
+     * @return - Número de empleados exportados
+     * @throws SQLException - Error al leer de la base de datos
+     * @throws IOException - Error al escribir los ficheros
+     */
+    public long export(Path output) throws SQLException, IOException {
+        long start = System.nanoTime();
+        List<long[]> ranges = ranges();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        List<Future<Part>> parts = new ArrayList<>(ranges.size());
+        long rows = 0;
+
+        try {
+            for (long[] range : ranges) {
+                parts.add(executor.submit(() -> exportRange(range[0], range[1])));
+            }
+
+            // Concatenamos las partes en orden según van terminando
+            try (OutputStream out = Files.newOutputStream(output)) {
+                out.write(HEADER.getBytes(StandardCharsets.UTF_8));
+                for (Future<Part> future : parts) {
+                    Part part = future.get();
+                    try {
+                        Files.copy(part.file, out);
+                        rows += part.rows;
+                    } finally {
+                        Files.delete(part.file);
+                    }
+                }
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            throw new IOException("Error al exportar un rango de empleados", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Exportación interrumpida", e);
+        } finally {
+            executor.shutdownNow();
+            deleteQuietly(parts);
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        log.info("Exportados {} empleados en {} ms con {} hilos, {} filas/seg", rows, elapsedNanos / 1_000_000,
+                parallelism, String.format("%.0f", rows * 1_000_000_000d / Math.max(1, elapsedNanos)));
+        return rows;
+    }
+
+    /**
+     * Divide el intervalo [MIN(emp_no), MAX(emp_no)] en rangos (desde, hasta] del mismo tamaño.
+     */
+    private List<long[]> ranges() throws SQLException {
+        long min;
+        long max;
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT MIN(emp_no), MAX(emp_no) FROM employees")) {
+            resultSet.next();
+            min = resultSet.getLong(1);
+            max = resultSet.getLong(2);
+            if (resultSet.wasNull()) {
+                return new ArrayList<>();
+            }
+        }
+
+        int count = parallelism * RANGES_PER_THREAD;
+        long width = Math.max(1, (max - min + count) / count);
+        List<long[]> ranges = new ArrayList<>(count);
+        for (long from = min - 1; from < max; from += width) {
+            ranges.add(new long[]{from, Math.min(from + width, max)});
+        }
+        return ranges;
+    }
+
+    /**
+     * Lee un rango por páginas y lo escribe en un fichero temporal.
+     *
+     * @param from - emp_no inicial, excluido
+     * @param to - emp_no final, incluido
+     * @return - Fichero temporal con las filas del rango, sin cabecera
+     */
+    private Part exportRange(long from, long to) throws SQLException, IOException {
+        Path file = Files.createTempFile("employees-" + from + "-", ".csv");
+        long rows = 0;
+        try (Connection connection = dataSource.getConnection();
+             ICSVWriter writer = csvWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+
+            PreparedStatement page = StatementCache.prepare(connection, PAGE_SQL);
+
+            String[] line = new String[6];
+            long last = from;
+            int read;
+            do {
+                page.setLong(1, last);
+                page.setLong(2, to);
+                page.setInt(3, pageSize);
+                read = 0;
+                try (ResultSet employees = page.executeQuery()) {
+                    while (employees.next()) {
+                        last = employees.getLong(1);
+                        line[0] = String.valueOf(last);
+                        line[1] = employees.getString(2);
+                        line[2] = employees.getString(3);
+                        line[3] = employees.getString(4);
+                        line[4] = String.valueOf(employees.getDate(5));
+                        line[5] = String.valueOf(employees.getDate(6));
+                        writer.writeNext(line, false);
+                        read++;
+                    }
+                }
+                rows += read;
+            } while (read == pageSize);
+        } catch (SQLException | IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return new Part(file, rows);
+    }
+
+    /**
+     * Escritor CSV que solo entrecomilla los campos que lo necesitan, como en unirEmployees.csv.
+     */
+    private static ICSVWriter csvWriter(Writer writer) {
+        return new CSVWriter(writer, ICSVWriter.DEFAULT_SEPARATOR, ICSVWriter.DEFAULT_QUOTE_CHARACTER,
+                ICSVWriter.DEFAULT_ESCAPE_CHARACTER, "\n");
+    }
+
+    /**
+     * Borra los ficheros temporales de las partes que hayan terminado si la exportación se ha interrumpido.
+     */
+    private static void deleteQuietly(List<Future<Part>> parts) {
+        for (Future<Part> part : parts) {
+            if (part.isDone() && !part.isCancelled()) {
+                try {
+                    Files.deleteIfExists(part.get().file);
+                } catch (Exception e) {
+                    // La parte falló o ya se había borrado
+                }
+            }
+        }
+    }
+
+    /**
+     * Fichero temporal con las filas de un rango.
+     */
+    private static class Part {
+        private final Path file;
+        private final long rows;
+
+        Part(Path file, long rows) {
+            this.file = file;
+            this.rows = rows;
+        }
+    }
+}
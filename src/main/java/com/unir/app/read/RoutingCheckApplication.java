@@ -0,0 +1,175 @@
+package com.unir.app.read;
+
+import com.unir.config.ConnectionPool;
+import com.unir.config.EmbeddedDatabase;
+import com.unir.config.PoolSettings;
+import com.unir.config.ReplicaLag;
+import com.unir.config.RoutingDataSource;
+import com.unir.config.RoutingSettings;
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Comprueba el enrutado de lecturas de {@link RoutingDataSource} sin servidores externos, con un primario y dos
+ * réplicas embebidas (ver {@link EmbeddedDatabase#routing}). Las comprobaciones de las réplicas se lanzan a mano
+ * para que el resultado no dependa del hilo periódico.
+ *
+ * 1. Turnos: las lecturas se reparten a partes iguales entre las dos réplicas.
+ * 2. Obsolescencia acotada: con HEARTBEAT, solo recibe lecturas acotadas la réplica a la que se ha copiado la fila
+ *    del primario, y deja de recibirlas cuando el retraso medido más el tiempo transcurrido supera el límite.
+ * 3. Pool agotado: si todas las conexiones de una réplica están prestadas, la lectura va a la otra,
+ *    pero la réplica sigue recibiendo lecturas al devolverlas.
+ * 4. Fallo: al cerrar el pool de una réplica las lecturas pasan a la otra, y sin réplicas van al primario.
+ *
+ * Si alguna comprobación falla se registra el error.
+ */
+@Slf4j
+public class RoutingCheckApplication {
+
+    private static final String PRIMARY = "routing-check-primary";
+    private static final String REPLICA_1 = "routing-check-replica-1";
+    private static final String REPLICA_2 = "routing-check-replica-2";
+
+    // Retraso máximo de las lecturas acotadas
+    private static final long MAX_STALENESS_MS = 500;
+
+    private static final int READS = 8;
+
+    public static void main(String[] args) {
+
+        RoutingSettings settings = new RoutingSettings();
+        settings.setLag(ReplicaLag.HEARTBEAT);
+        // Las comprobaciones las lanzamos nosotros; el hilo periódico solo hace la primera
+        settings.setHealthCheckIntervalMs(3_600_000);
+        settings.setFailureThreshold(1);
+
+        PoolSettings replicaPool = new PoolSettings();
+        replicaPool.setMinIdle(1);
+        replicaPool.setMaxSize(1);
+        replicaPool.setConnectionTimeoutMs(1_000);
+
+        // Los mismos pools que usará el enrutado, para ocupar o cerrar las réplicas. Se crean antes que él
+        // porque, con una sola conexión, pedirlos después compite con su primera comprobación
+        ConnectionPool replica1 = EmbeddedDatabase.mysql(REPLICA_1, replicaPool);
+        ConnectionPool replica2 = EmbeddedDatabase.mysql(REPLICA_2, replicaPool);
+
+        try (RoutingDataSource routing = EmbeddedDatabase.routing(PRIMARY, Arrays.asList(REPLICA_1, REPLICA_2),
+                replicaPool, settings)) {
+            routing.checkReplicas();
+
+            // 1. Turnos entre las réplicas
+            Map<String, Integer> reads = read(routing, READS, -1);
+            check(reads.getOrDefault(REPLICA_1, 0) == READS / 2 && reads.getOrDefault(REPLICA_2, 0) == READS / 2,
+                    "Las lecturas no se reparten por turnos: " + reads);
+            log.info("Turnos correctos: {}", reads);
+
+            // 2. Obsolescencia acotada. Sin la fila de heartbeat el retraso de las réplicas es desconocido
+            reads = read(routing, READS, MAX_STALENESS_MS);
+            check(reads.getOrDefault(PRIMARY, 0) == READS, "Las lecturas acotadas no van al primario: " + reads);
+
+            copyHeartbeat(replica1);
+            routing.checkReplicas();
+            reads = read(routing, READS, MAX_STALENESS_MS);
+            check(reads.getOrDefault(REPLICA_1, 0) == READS, "Las lecturas acotadas no van a la réplica al día: " + reads);
+
+            // Sin nuevas comprobaciones, el retraso posible crece con el tiempo hasta superar el límite
+            Thread.sleep(MAX_STALENESS_MS + 100);
+            reads = read(routing, READS, MAX_STALENESS_MS);
+            check(reads.getOrDefault(PRIMARY, 0) == READS, "Las lecturas acotadas usan una réplica obsoleta: " + reads);
+            log.info("Obsolescencia acotada correcta: {}", reads);
+
+            // 3. Pool agotado. Cada réplica tiene una sola conexión, que esperamos como mucho un segundo
+            Connection busy = replica1.getConnection();
+            try {
+                reads = read(routing, READS, -1);
+                check(reads.getOrDefault(REPLICA_2, 0) == READS, "Las lecturas esperan a la réplica ocupada: " + reads);
+            } finally {
+                busy.close();
+            }
+            reads = read(routing, READS, -1);
+            check(reads.getOrDefault(REPLICA_1, 0) == READS / 2 && reads.getOrDefault(REPLICA_2, 0) == READS / 2,
+                    "La réplica ocupada ha salido del turno: " + reads);
+            log.info("Pool agotado correcto: {}", reads);
+
+            // 4. Fallo de las réplicas
+            replica1.close();
+            reads = read(routing, READS, -1);
+            check(reads.getOrDefault(REPLICA_2, 0) == READS, "Las lecturas no evitan la réplica caída: " + reads);
+
+            replica2.close();
+            reads = read(routing, READS, -1);
+            check(reads.getOrDefault(PRIMARY, 0) == READS, "Sin réplicas las lecturas no van al primario: " + reads);
+            log.info("Paso al primario correcto: {}", reads);
+
+            log.info("Comprobación del enrutado correcta. {}", routing.getStatistics());
+
+        } catch (Exception e) {
+            log.error("Error en la comprobación del enrutado", e);
+        }
+    }
+
+    /**
+     * Pide varias conexiones de lectura seguidas.
+     *
+     * @return - Lecturas servidas por cada base de datos
+     */
+    private static Map<String, Integer> read(RoutingDataSource routing, int count, long maxStalenessMs) throws SQLException {
+        Map<String, Integer> reads = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            try (Connection connection = routing.getReadConnection(maxStalenessMs)) {
+                reads.merge(database(connection), 1, Integer::sum);
+            }
+        }
+        return reads;
+    }
+
+    /**
+     * Simula la replicación copiando la fila de heartbeat del primario a la réplica.
+     */
+    private static void copyHeartbeat(ConnectionPool replica) throws SQLException {
+        long beat;
+        try (Connection connection = EmbeddedDatabase.mysql(PRIMARY).getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT beat_millis FROM " + ReplicaLag.HEARTBEAT_TABLE + " WHERE id = 1")) {
+            check(resultSet.next(), "El primario no tiene fila de heartbeat");
+            beat = resultSet.getLong(1);
+        }
+
+        try (Connection connection = replica.getConnection()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE IF NOT EXISTS " + ReplicaLag.HEARTBEAT_TABLE
+                        + " (id INT NOT NULL PRIMARY KEY, beat_millis BIGINT NOT NULL)");
+                statement.execute("DELETE FROM " + ReplicaLag.HEARTBEAT_TABLE);
+            }
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO " + ReplicaLag.HEARTBEAT_TABLE + " (id, beat_millis) VALUES (1, ?)")) {
+                insert.setLong(1, beat);
+                insert.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * @return - Nombre de la base de datos embebida de la conexión, sacado de su URL
+     */
+    private static String database(Connection connection) throws SQLException {
+        String url = connection.getMetaData().getURL();
+        int start = url.indexOf("mem:") + "mem:".length();
+        int end = url.indexOf(';', start);
+        return end < 0 ? url.substring(start) : url.substring(start, end);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
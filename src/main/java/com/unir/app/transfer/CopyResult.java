@@ -0,0 +1,36 @@
+package com.unir.app.transfer;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Resultado de la copia de una tabla: filas copiadas, escritores, tiempo total y latencia de extremo a extremo
+ * de los lotes, desde que se lee su primera fila en el origen hasta que se confirma en el destino.
+ */
+@AllArgsConstructor
+@Getter
+public class CopyResult {
+    private String source;
+    private String target;
+    private long rows;
+    private int writers;
+    private long elapsedNanos;
+    private long latencyP50Micros;
+    private long latencyP99Micros;
+    private long latencyMaxMicros;
+
+    /**
+     * @return - Filas copiadas por segundo
+     */
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rows * 1_000_000_000d / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s -> %s: %d filas con %d escritores en %d ms, %.0f filas/seg. "
+                        + "Latencia por lote: p50 %d ms, p99 %d ms, máx %d ms",
+                source, target, rows, writers, elapsedNanos / 1_000_000, getRowsPerSecond(),
+                latencyP50Micros / 1000, latencyP99Micros / 1000, latencyMaxMicros / 1000);
+    }
+}
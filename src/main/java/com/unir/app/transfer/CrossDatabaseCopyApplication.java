@@ -0,0 +1,44 @@
+package com.unir.app.transfer;
+
+import com.unir.config.ConnectionPool;
+import com.unir.config.MySqlConnector;
+import com.unir.config.OracleDatabaseConnector;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Copia tablas entre Oracle y MySQL con {@link TableCopier}.
+ * Opciones (propiedades de sistema):
+ * -Dcopy.from=ORACLE|MYSQL -Dcopy.tables=countries,regions -Dcopy.writers=4 -Dcopy.batchSize=1000 -Dcopy.queueCapacity=16
+ * Cada tabla se copia a una tabla con el mismo nombre en la otra base de datos, que se crea si no existe.
+ * El número de escritores no debería superar el tamaño máximo del pool de destino.
+ */
+@Slf4j
+public class CrossDatabaseCopyApplication {
+
+    private static final String ORACLE_SERVICE_NAME = "orcl";
+    private static final String MYSQL_DATABASE = "employees";
+
+    public static void main(String[] args) {
+
+        boolean fromOracle = "ORACLE".equalsIgnoreCase(System.getProperty("copy.from", "ORACLE"));
+        String[] tables = System.getProperty("copy.tables", "countries").split(",");
+        int writers = Integer.getInteger("copy.writers", 4);
+        int batchSize = Integer.getInteger("copy.batchSize", 1000);
+        int queueCapacity = Integer.getInteger("copy.queueCapacity", writers * 4);
+
+        ConnectionPool oracle = OracleDatabaseConnector.pool("localhost", ORACLE_SERVICE_NAME);
+        ConnectionPool mysql = MySqlConnector.pool("localhost", MYSQL_DATABASE);
+        ConnectionPool source = fromOracle ? oracle : mysql;
+        ConnectionPool target = fromOracle ? mysql : oracle;
+
+        TableCopier copier = new TableCopier(source.getDataSource(), target.getDataSource(), writers, batchSize, queueCapacity);
+        for (String table : tables) {
+            try {
+                log.info("Copia finalizada. {}", copier.copy(table.trim(), table.trim()));
+            } catch (Exception e) {
+                log.error("Error al copiar la tabla {}", table, e);
+            }
+        }
+        log.info("Estadísticas del pool de destino: {}", target.getStatistics());
+    }
+}
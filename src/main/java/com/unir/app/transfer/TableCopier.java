@@ -0,0 +1,398 @@
+package com.unir.app.transfer;
+
+import com.unir.config.Dialect;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Copia tablas entre dos bases de datos, por ejemplo de Oracle a MySQL, con la lectura y la escritura solapadas.
+ *
+ * El hilo que llama a {@link #copy(String, String)} lee la tabla de origen en streaming, con el fetch size
+ * de streaming de su base de datos (ver {@link Dialect}), y la reparte en lotes a través de una cola acotada.
+ * Varios escritores, cada uno con su propia conexión al destino, toman los lotes de la cola y los insertan
+ * con executeBatch. Si los escritores van más lentos que la lectura, la cola se llena y la lectura espera,
+ * así que la memoria no depende del tamaño de la tabla.
+ *
+ * Se copian las columnas que existen en las dos tablas, emparejadas por nombre sin distinguir mayúsculas.
+ * Los valores se convierten al tipo de la columna de destino (ver {@link TypeMapping}). Si la tabla de destino
+ * no existe, se crea con los tipos equivalentes y la misma clave primaria.
+ *
+ * Cada lote se confirma por separado. Si la copia falla, los lotes ya confirmados quedan en el destino.
+ */
+@Slf4j
+public class TableCopier {
+
+    // Marca de fin de datos para los escritores
+    private static final Batch END = new Batch(Collections.<Object[]>emptyList(), 0);
+
+    private final DataSource source;
+    private final DataSource target;
+    private final int writers;
+    private final int batchSize;
+    private final int queueCapacity;
+
+    /**
+     * @param source - Origen de las conexiones de lectura
+     * @param target - Origen de las conexiones de escritura, con al menos writers conexiones
+     * @param writers - Número de escritores en paralelo
+     * @param batchSize - Filas por lote y por transacción
+     * @param queueCapacity - Lotes leídos que caben en la cola a la espera de un escritor
+     */
+    public TableCopier(DataSource source, DataSource target, int writers, int batchSize, int queueCapacity) {
+        if (writers < 1 || batchSize < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Los escritores, el tamaño de lote y la cola deben ser mayores que 0");
+        }
+        this.source = source;
+        this.target = target;
+        this.writers = writers;
+        this.batchSize = batchSize;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Copia todas las filas de una tabla.
+     *
+     * @param sourceTable - Tabla de origen
+     * @param targetTable - Tabla de destino. Se crea si no existe
+     * @return - Resultado de la copia
+     * @throws SQLException - Error al leer, al crear la tabla de destino o al escribir
+     */
+    public CopyResult copy(String sourceTable, String targetTable) throws SQLException {
+        long start = System.nanoTime();
+        try (Connection connection = source.getConnection()) {
+
+            // Antes de abrir la lectura en streaming: con MySQL la conexión no admite otras consultas mientras dura
+            Mapping mapping = prepareTarget(connection, sourceTable, targetTable);
+
+            try (Statement select = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                select.setFetchSize(Dialect.of(connection).getStreamingFetchSize());
+                try (ResultSet rows = select.executeQuery("SELECT * FROM " + sourceTable)) {
+                    return transfer(rows, mapping, sourceTable, targetTable, start);
+                }
+            }
+        }
+    }
+
+    /**
+     * Lee las filas y las reparte entre los escritores. Espera a que terminen.
+     */
+    private CopyResult transfer(ResultSet rows, Mapping mapping, String sourceTable, String targetTable,
+                                long start) throws SQLException {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(queueCapacity);
+        List<Future<long[]>> results = new ArrayList<>(writers);
+        ExecutorService executor = Executors.newFixedThreadPool(writers, new WriterThreadFactory());
+        long rowsRead = 0;
+
+        try {
+            for (int i = 0; i < writers; i++) {
+                results.add(executor.submit(() -> write(queue, mapping, failure)));
+            }
+
+            List<Object[]> batch = new ArrayList<>(batchSize);
+            long batchStart = 0;
+            while (failure.get() == null && rows.next()) {
+                if (batch.isEmpty()) {
+                    batchStart = System.nanoTime();
+                }
+                Object[] row = new Object[mapping.readers.length];
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = mapping.readers[i].read(rows, mapping.sourceColumns[i]);
+                }
+                batch.add(row);
+                rowsRead++;
+                if (batch.size() == batchSize) {
+                    put(queue, new Batch(batch, batchStart), failure);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                put(queue, new Batch(batch, batchStart), failure);
+            }
+            for (int i = 0; i < writers; i++) {
+                put(queue, END, failure);
+            }
+        } catch (SQLException | RuntimeException e) {
+            // Error de lectura: avisamos a los escritores para que paren
+            failure.compareAndSet(null, e);
+        } finally {
+            executor.shutdown();
+        }
+
+        // Latencias de todos los lotes, en nanosegundos
+        List<long[]> latencies = new ArrayList<>(writers);
+        long rowsWritten = 0;
+        for (Future<long[]> result : results) {
+            try {
+                long[] writer = result.get();
+                rowsWritten += writer[0];
+                latencies.add(Arrays.copyOfRange(writer, 1, writer.length));
+            } catch (ExecutionException e) {
+                failure.compareAndSet(null, e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure.compareAndSet(null, e);
+            }
+        }
+
+        Throwable error = failure.get();
+        if (error instanceof SQLException) {
+            throw (SQLException) error;
+        } else if (error != null) {
+            throw new SQLException("Error al copiar " + sourceTable + " a " + targetTable, error);
+        }
+
+        long[] sorted = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        CopyResult result = new CopyResult(sourceTable, targetTable, rowsWritten, writers, System.nanoTime() - start,
+                percentile(sorted, 50) / 1000, percentile(sorted, 99) / 1000, percentile(sorted, 100) / 1000);
+        log.debug("Leídas {} filas de {}. {}", rowsRead, sourceTable, result);
+        return result;
+    }
+
+    /**
+     * Bucle de un escritor: inserta y confirma lotes de la cola hasta la marca de fin.
+     *
+     * @return - Filas escritas seguidas de la latencia de cada lote, en nanosegundos
+     */
+    private long[] write(BlockingQueue<Batch> queue, Mapping mapping, AtomicReference<Throwable> failure) throws Exception {
+        long rows = 0;
+        long[] result = new long[16];
+        int batches = 0;
+
+        try (Connection connection = target.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement(mapping.insertSql)) {
+                Batch batch;
+                while ((batch = queue.poll(100, TimeUnit.MILLISECONDS)) != END && failure.get() == null) {
+                    if (batch == null) {
+                        continue;
+                    }
+                    for (Object[] row : batch.rows) {
+                        for (int i = 0; i < row.length; i++) {
+                            mapping.binders[i].bind(insert, i + 1, row[i]);
+                        }
+                        insert.addBatch();
+                    }
+                    insert.executeBatch();
+                    connection.commit();
+                    rows += batch.rows.size();
+
+                    if (batches + 1 == result.length) {
+                        result = Arrays.copyOf(result, result.length * 2);
+                    }
+                    result[++batches] = System.nanoTime() - batch.readStart;
+                }
+            } catch (Exception e) {
+                failure.compareAndSet(null, e);
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+        result[0] = rows;
+        return Arrays.copyOf(result, batches + 1);
+    }
+
+    /**
+     * Comprueba la tabla de destino, la crea si no existe, y empareja sus columnas con las de origen.
+     */
+    private Mapping prepareTarget(Connection sourceConnection, String sourceTable, String targetTable) throws SQLException {
+        try (Connection connection = target.getConnection();
+             Statement targetStatement = connection.createStatement();
+             Statement sourceStatement = sourceConnection.createStatement();
+             ResultSet sourceColumns = sourceStatement.executeQuery(emptySelect(sourceTable))) {
+
+            Dialect dialect = Dialect.of(connection);
+            if (!exists(dialect, targetStatement, targetTable)) {
+                String ddl = createTableSql(dialect, sourceConnection.getMetaData(), sourceTable,
+                        sourceColumns.getMetaData(), targetTable);
+                log.info("La tabla {} no existe en el destino. Se crea: {}", targetTable, ddl);
+                targetStatement.execute(ddl);
+            }
+            try (ResultSet targetColumns = targetStatement.executeQuery(emptySelect(targetTable))) {
+                return new Mapping(sourceColumns.getMetaData(), targetColumns.getMetaData(), targetTable);
+            }
+        }
+    }
+
+    /**
+     * Comprueba si existe la tabla. Solo se considera que no existe si la base de datos lo dice así;
+     * cualquier otro error (permisos, conexión) se propaga en lugar de intentar crearla.
+     */
+    private static boolean exists(Dialect dialect, Statement statement, String table) throws SQLException {
+        try {
+            statement.executeQuery(emptySelect(table)).close();
+            return true;
+        } catch (SQLException e) {
+            if (dialect.isMissingTable(e)) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return - Consulta sin filas, para obtener las columnas de una tabla
+     */
+    private static String emptySelect(String table) {
+        return "SELECT * FROM " + table + " WHERE 1 = 0";
+    }
+
+    /**
+     * Sentencia CREATE TABLE con los tipos equivalentes en el destino y la clave primaria de la tabla de origen.
+     */
+    private static String createTableSql(Dialect dialect, DatabaseMetaData sourceDatabase, String sourceTable,
+                                         ResultSetMetaData columns, String targetTable) throws SQLException {
+        StringBuilder sql = new StringBuilder("CREATE TABLE ").append(targetTable).append(" (");
+        for (int i = 1; i <= columns.getColumnCount(); i++) {
+            sql.append(i == 1 ? "" : ", ").append(TypeMapping.columnDefinition(dialect, columns, i));
+        }
+        List<String> primaryKey = primaryKey(sourceDatabase, sourceTable);
+        if (!primaryKey.isEmpty()) {
+            sql.append(", PRIMARY KEY (").append(String.join(", ", primaryKey)).append(")");
+        }
+        return sql.append(")").toString();
+    }
+
+    /**
+     * Columnas de la clave primaria, en orden. Oracle guarda los nombres en mayúsculas y MySQL tal cual,
+     * así que se prueba con el nombre indicado y con las dos variantes.
+     */
+    private static List<String> primaryKey(DatabaseMetaData database, String table) throws SQLException {
+        Set<String> names = new LinkedHashSet<>(Arrays.asList(table, table.toUpperCase(Locale.ROOT),
+                table.toLowerCase(Locale.ROOT)));
+        for (String name : names) {
+            Map<Short, String> columns = new HashMap<>();
+            try (ResultSet keys = database.getPrimaryKeys(null, null, name)) {
+                while (keys.next()) {
+                    columns.put(keys.getShort("KEY_SEQ"), keys.getString("COLUMN_NAME"));
+                }
+            }
+            if (!columns.isEmpty()) {
+                List<String> ordered = new ArrayList<>(columns.size());
+                for (short i = 1; i <= columns.size(); i++) {
+                    ordered.add(columns.get(i));
+                }
+                return ordered;
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Encola un lote esperando mientras la cola esté llena, salvo que algún escritor haya fallado.
+     */
+    private static void put(BlockingQueue<Batch> queue, Batch batch, AtomicReference<Throwable> failure) {
+        try {
+            while (failure.get() == null && !queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+                // La cola está llena: esperamos a que los escritores avancen
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Copia interrumpida", e);
+        }
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100d * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    /**
+     * Filas leídas que se envían juntas a un escritor, con el instante en que se leyó la primera.
+     */
+    private static class Batch {
+        private final List<Object[]> rows;
+        private final long readStart;
+
+        Batch(List<Object[]> rows, long readStart) {
+            this.rows = rows;
+            this.readStart = readStart;
+        }
+    }
+
+    /**
+     * Columnas comunes a las dos tablas, con la forma de leerlas del origen y de escribirlas en el destino.
+     */
+    private static class Mapping {
+        private final int[] sourceColumns;
+        private final TypeMapping.ColumnReader[] readers;
+        private final TypeMapping.ColumnBinder[] binders;
+        private final String insertSql;
+
+        Mapping(ResultSetMetaData source, ResultSetMetaData target, String targetTable) throws SQLException {
+            Map<String, Integer> sourceByName = new HashMap<>();
+            for (int i = 1; i <= source.getColumnCount(); i++) {
+                sourceByName.put(source.getColumnName(i).toLowerCase(Locale.ROOT), i);
+            }
+
+            List<Integer> matched = new ArrayList<>();
+            List<TypeMapping.ColumnReader> columnReaders = new ArrayList<>();
+            List<TypeMapping.ColumnBinder> columnBinders = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            for (int i = 1; i <= target.getColumnCount(); i++) {
+                Integer column = sourceByName.remove(target.getColumnName(i).toLowerCase(Locale.ROOT));
+                if (column == null) {
+                    log.warn("La columna {}.{} no existe en el origen y no se copia", targetTable, target.getColumnName(i));
+                    continue;
+                }
+                matched.add(column);
+                columnReaders.add(TypeMapping.reader(source.getColumnType(column)));
+                columnBinders.add(TypeMapping.binder(target.getColumnType(i)));
+                names.add(target.getColumnName(i));
+            }
+            if (!sourceByName.isEmpty()) {
+                log.warn("Columnas del origen que no existen en {} y no se copian: {}", targetTable, sourceByName.keySet());
+            }
+            if (names.isEmpty()) {
+                throw new SQLException("Las tablas no tienen ninguna columna en común: " + targetTable);
+            }
+
+            this.sourceColumns = matched.stream().mapToInt(Integer::intValue).toArray();
+            this.readers = columnReaders.toArray(new TypeMapping.ColumnReader[0]);
+            this.binders = columnBinders.toArray(new TypeMapping.ColumnBinder[0]);
+            this.insertSql = "INSERT INTO " + targetTable + " (" + String.join(", ", names) + ") VALUES ("
+                    + String.join(", ", Collections.nCopies(names.size(), "?")) + ")";
+        }
+    }
+
+    private static class WriterThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, "copy-writer-" + counter.incrementAndGet());
+        }
+    }
+}
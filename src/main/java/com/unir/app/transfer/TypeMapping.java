@@ -0,0 +1,278 @@
+package com.unir.app.transfer;
+
+import com.unir.config.Dialect;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Conversión de tipos entre bases de datos para copiar tablas.
+ *
+ * - Lectura: los valores se leen con getObject, salvo los CLOB, que se leen como texto, y los CHAR,
+ *   a los que se quitan los espacios de relleno que añade Oracle.
+ * - Escritura: cada valor se convierte al tipo de la columna de destino. Por ejemplo, el NUMBER de Oracle
+ *   llega como BigDecimal y se escribe con setInt en una columna INT de MySQL, y el DATE de Oracle llega
+ *   como Timestamp y se escribe con setDate en una columna DATE. Los valores con decimales o fuera de rango para
+ *   una columna entera provocan un error en lugar de truncarse.
+ * - Creación de tablas: tipo equivalente en la base de datos de destino para cada columna de origen.
+ */
+final class TypeMapping {
+
+    /**
+     * Asigna el valor de una columna a un parámetro de la sentencia de inserción.
+     */
+    @FunctionalInterface
+    interface ColumnBinder {
+        void bind(PreparedStatement statement, int index, Object value) throws SQLException;
+    }
+
+    /**
+     * Lee el valor de una columna del ResultSet de origen.
+     */
+    @FunctionalInterface
+    interface ColumnReader {
+        Object read(ResultSet resultSet, int index) throws SQLException;
+    }
+
+    private TypeMapping() {
+    }
+
+    /**
+     * @param sourceType - Tipo JDBC de la columna de origen (java.sql.Types)
+     * @return - Forma de leer la columna
+     */
+    static ColumnReader reader(int sourceType) {
+        switch (sourceType) {
+            case Types.CLOB:
+            case Types.NCLOB:
+            case Types.LONGVARCHAR:
+            case Types.LONGNVARCHAR:
+                return ResultSet::getString;
+            case Types.CHAR:
+            case Types.NCHAR:
+                return (resultSet, index) -> trimRight(resultSet.getString(index));
+            default:
+                return ResultSet::getObject;
+        }
+    }
+
+    /**
+     * @param targetType - Tipo JDBC de la columna de destino (java.sql.Types)
+     * @return - Conversión y asignación del valor. Los NULL se asignan con setNull
+     */
+    static ColumnBinder binder(int targetType) {
+        ColumnBinder binder;
+        switch (targetType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                binder = (statement, index, value) -> statement.setInt(index, intExact(value));
+                break;
+            case Types.BIGINT:
+                binder = (statement, index, value) -> statement.setLong(index, longExact(value));
+                break;
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                binder = (statement, index, value) -> statement.setBigDecimal(index, decimal(value));
+                break;
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                binder = (statement, index, value) -> statement.setDouble(index, number(value).doubleValue());
+                break;
+            case Types.BIT:
+            case Types.BOOLEAN:
+                binder = (statement, index, value) -> statement.setBoolean(index,
+                        value instanceof Boolean ? (Boolean) value : number(value).intValue() != 0);
+                break;
+            case Types.DATE:
+                binder = (statement, index, value) -> statement.setDate(index, date(value));
+                break;
+            case Types.TIMESTAMP:
+                binder = (statement, index, value) -> statement.setTimestamp(index, timestamp(value));
+                break;
+            case Types.CHAR:
+            case Types.NCHAR:
+            case Types.VARCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.LONGNVARCHAR:
+            case Types.CLOB:
+            case Types.NCLOB:
+                binder = (statement, index, value) -> statement.setString(index, value.toString());
+                break;
+            default:
+                binder = PreparedStatement::setObject;
+                break;
+        }
+        ColumnBinder notNull = binder;
+        return (statement, index, value) -> {
+            if (value == null) {
+                statement.setNull(index, targetType);
+            } else {
+                notNull.bind(statement, index, value);
+            }
+        };
+    }
+
+    /**
+     * Definición de una columna para crear la tabla de destino, por ejemplo "country_id CHAR(2) NOT NULL".
+     *
+     * @param target - Base de datos de destino
+     * @param metaData - Metadatos de la consulta de origen
+     * @param column - Número de la columna, empezando en 1
+     * @return - Definición de la columna
+     * @throws SQLException - Tipo de columna no soportado
+     */
+    static String columnDefinition(Dialect target, ResultSetMetaData metaData, int column) throws SQLException {
+        String nullable = metaData.isNullable(column) == ResultSetMetaData.columnNoNulls ? " NOT NULL" : "";
+        return metaData.getColumnName(column) + " " + columnType(target, metaData, column) + nullable;
+    }
+
+    private static String columnType(Dialect target, ResultSetMetaData metaData, int column) throws SQLException {
+        boolean oracle = target == Dialect.ORACLE;
+        int precision = metaData.getPrecision(column);
+        int scale = metaData.getScale(column);
+        switch (metaData.getColumnType(column)) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                return oracle ? "NUMBER(10)" : "INT";
+            case Types.BIGINT:
+                return oracle ? "NUMBER(19)" : "BIGINT";
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                if (precision <= 0) {
+                    // NUMBER de Oracle sin precisión
+                    return oracle ? "NUMBER" : "DECIMAL(38, 10)";
+                }
+                if (scale == 0 && precision <= 9) {
+                    return oracle ? "NUMBER(" + precision + ")" : "INT";
+                }
+                if (scale == 0 && precision <= 18) {
+                    return oracle ? "NUMBER(" + precision + ")" : "BIGINT";
+                }
+                return (oracle ? "NUMBER(" : "DECIMAL(") + Math.min(precision, 38) + ", " + Math.max(scale, 0) + ")";
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return oracle ? "BINARY_DOUBLE" : target == Dialect.MYSQL ? "DOUBLE" : "DOUBLE PRECISION";
+            case Types.BIT:
+            case Types.BOOLEAN:
+                return oracle ? "NUMBER(1)" : "BOOLEAN";
+            case Types.CHAR:
+            case Types.NCHAR:
+                return "CHAR(" + precision + ")";
+            case Types.VARCHAR:
+            case Types.NVARCHAR:
+                if (oracle) {
+                    return precision <= 4000 ? "VARCHAR2(" + precision + ")" : "CLOB";
+                }
+                return precision <= 16383 ? "VARCHAR(" + precision + ")" : target == Dialect.MYSQL ? "LONGTEXT" : "CLOB";
+            case Types.LONGVARCHAR:
+            case Types.LONGNVARCHAR:
+            case Types.CLOB:
+            case Types.NCLOB:
+                return target == Dialect.MYSQL ? "LONGTEXT" : "CLOB";
+            case Types.DATE:
+                return "DATE";
+            case Types.TIMESTAMP:
+                // El DATE de Oracle incluye la hora y el driver lo describe como TIMESTAMP
+                if (oracle) {
+                    return "DATE".equalsIgnoreCase(metaData.getColumnTypeName(column)) ? "DATE" : "TIMESTAMP";
+                }
+                return target == Dialect.MYSQL ? "DATETIME" : "TIMESTAMP";
+            default:
+                throw new SQLException("Tipo no soportado en la columna " + metaData.getColumnName(column)
+                        + ": " + metaData.getColumnTypeName(column));
+        }
+    }
+
+    private static Number number(Object value) {
+        if (value instanceof Number) {
+            return (Number) value;
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value ? 1 : 0;
+        }
+        return new BigDecimal(value.toString().trim());
+    }
+
+    private static int intExact(Object value) throws SQLException {
+        try {
+            return decimal(value).intValueExact();
+        } catch (ArithmeticException e) {
+            // 22003: valor numérico fuera de rango
+            throw new SQLException("El valor " + value + " no es un entero de 32 bits", "22003", e);
+        }
+    }
+
+    private static long longExact(Object value) throws SQLException {
+        try {
+            return decimal(value).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new SQLException("El valor " + value + " no es un entero de 64 bits", "22003", e);
+        }
+    }
+
+    private static BigDecimal decimal(Object value) {
+        if (value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        }
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return BigDecimal.valueOf(((Number) value).longValue());
+        }
+        return new BigDecimal(number(value).toString());
+    }
+
+    private static Date date(Object value) {
+        if (value instanceof Date) {
+            return (Date) value;
+        }
+        if (value instanceof Timestamp) {
+            return Date.valueOf(((Timestamp) value).toLocalDateTime().toLocalDate());
+        }
+        if (value instanceof LocalDate) {
+            return Date.valueOf((LocalDate) value);
+        }
+        if (value instanceof LocalDateTime) {
+            return Date.valueOf(((LocalDateTime) value).toLocalDate());
+        }
+        return Date.valueOf(value.toString().trim());
+    }
+
+    private static Timestamp timestamp(Object value) {
+        if (value instanceof Timestamp) {
+            return (Timestamp) value;
+        }
+        if (value instanceof Date) {
+            return Timestamp.valueOf(((Date) value).toLocalDate().atStartOfDay());
+        }
+        if (value instanceof LocalDateTime) {
+            return Timestamp.valueOf((LocalDateTime) value);
+        }
+        if (value instanceof LocalDate) {
+            return Timestamp.valueOf(((LocalDate) value).atStartOfDay());
+        }
+        return Timestamp.valueOf(value.toString().trim());
+    }
+
+    private static String trimRight(String value) {
+        if (value == null) {
+            return null;
+        }
+        int end = value.length();
+        while (end > 0 && value.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return value.substring(0, end);
+    }
+}
@@ -0,0 +1,237 @@
+package com.unir.app.write;
+
+import com.opencsv.CSVWriter;
+import com.opencsv.ICSVWriter;
+import com.unir.config.AdaptiveBatchController;
+import com.unir.config.TableChangeNotifier;
+import com.unir.csv.InvalidCsvLineException;
+import com.unir.model.MySqlEmployee;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Carga de empleados por tramos, con punto de control para reanudarla y fichero de filas rechazadas.
+ *
+ * En lugar de una única transacción para todo el fichero, se hace commit cada commitInterval filas y después
+ * se guarda en el punto de control (ver {@link IntakeCheckpoint}) el número de filas del CSV ya confirmadas.
+ * Si la carga se interrumpe, al volver a lanzarla se saltan esas filas y se sigue desde el primer tramo sin confirmar.
+ * Al terminar se borra el punto de control.
+ *
+ * Si un tramo falla, se deshace y se reintenta fila a fila, cada una con su savepoint. Las filas que la base de datos
+ * rechaza se añaden al fichero de rechazados, con el mismo formato que el CSV de entrada para poder corregirlas
+ * y volver a cargarlas, y el resto del tramo se confirma. Las líneas que no se pueden decodificar
+ * ({@link InvalidCsvLineException}) también van al fichero de rechazados, con su texto original, y cuentan
+ * como filas rechazadas en el punto de control.
+ *
+ * Usa una sola conexión, porque el punto de control tiene que ser una parte inicial del fichero.
+ * Con tamaño de lote adaptativo, todos los tramos comparten el mismo controlador, así que el tamaño aprendido
+ * en un tramo se mantiene en los siguientes.
+ * Si el proceso cae justo entre escribir los rechazados de un tramo y guardar el punto de control,
+ * al reanudar esas filas pueden aparecer dos veces en el fichero de rechazados.
+ */
+@Slf4j
+public class CheckpointedIntake {
+
+    private static final String[] HEADER = {"employeeId", "firstName", "lastName", "gender", "hireDate", "birthDate"};
+
+    private final DataSource dataSource;
+    private final EmployeeUpsertEngine engine;
+    private final int commitInterval;
+    private final Path checkpointFile;
+    private final Path rejectedFile;
+
+    /**
+     * @param dataSource - Origen de la conexión
+     * @param engine - Motor de upsert
+     * @param commitInterval - Filas del CSV por transacción
+     * @param checkpointFile - Fichero del punto de control
+     * @param rejectedFile - Fichero CSV al que se añaden las filas rechazadas
+     */
+    public CheckpointedIntake(DataSource dataSource, EmployeeUpsertEngine engine, int commitInterval,
+                              Path checkpointFile, Path rejectedFile) {
+        if (commitInterval < 1) {
+            throw new IllegalArgumentException("El intervalo de commit debe ser mayor que 0: " + commitInterval);
+        }
+        this.dataSource = dataSource;
+        this.engine = engine;
+        this.commitInterval = commitInterval;
+        this.checkpointFile = checkpointFile;
+        this.rejectedFile = rejectedFile;
+    }
+
+    /**
+     * Carga los empleados desde el punto de control, si existe.
+     *
+     * @param source - Fichero CSV. Su nombre, tamaño y fecha se guardan en el punto de control para no reanudar otra carga
+     * @param employees - Empleados del fichero completo, en orden
+     * @return - Resultado de esta ejecución, sin las filas ya confirmadas antes
+     * @throws SQLException - Error al conectar, al confirmar un tramo o al deshacerlo
+     * @throws IOException - Error al leer o escribir el punto de control o el fichero de rechazados
+     */
+    public UpsertResult run(Path source, Iterator<MySqlEmployee> employees) throws SQLException, IOException {
+        long start = System.nanoTime();
+        IntakeCheckpoint checkpoint = IntakeCheckpoint.load(checkpointFile, source);
+        if (checkpoint.getRows() > 0) {
+            log.info("Reanudando la carga de {} después de {} filas confirmadas", source, checkpoint.getRows());
+            for (long i = 0; i < checkpoint.getRows(); i++) {
+                try {
+                    if (!employees.hasNext()) {
+                        throw new IOException("El fichero " + source + " tiene menos filas que el punto de control " + checkpointFile);
+                    }
+                    employees.next();
+                } catch (InvalidCsvLineException e) {
+                    // Ya está en el fichero de rechazados; cuenta como una fila confirmada
+                }
+            }
+        }
+
+        long rows = 0;
+        long inserted = 0;
+        long updated = 0;
+        long skipped = 0;
+        long roundTrips = 0;
+        long rejected = 0;
+
+        AdaptiveBatchController batchController = engine.newBatchController();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                List<MySqlEmployee> chunk = new ArrayList<>(commitInterval);
+                List<InvalidCsvLineException> invalidLines = new ArrayList<>();
+                boolean more = true;
+                while (more) {
+                    try {
+                        more = employees.hasNext();
+                        if (more) {
+                            chunk.add(employees.next());
+                        }
+                    } catch (InvalidCsvLineException e) {
+                        log.warn("{}, se añade a los rechazados: {}", e.getMessage(), e.getCause().getMessage());
+                        invalidLines.add(e);
+                    }
+                    // Filas del CSV del tramo, válidas o no
+                    int chunkRows = chunk.size() + invalidLines.size();
+                    if (chunkRows == 0 || (chunkRows < commitInterval && more)) {
+                        continue;
+                    }
+
+                    // Los rechazados y el punto de control se guardan antes y después del commit del tramo
+                    List<MySqlEmployee> rejectedRows = new ArrayList<>();
+                    UpsertResult result = writeChunk(connection, chunk, checkpoint.getRows(), batchController, rejectedRows);
+                    appendRejected(invalidLines, rejectedRows);
+                    connection.commit();
+                    TableChangeNotifier.tablesChanged("employees");
+                    checkpoint.advance(checkpointFile, chunkRows, invalidLines.size() + rejectedRows.size());
+
+                    rows += result.getRows();
+                    inserted = result.getInserted() < 0 || inserted < 0 ? -1 : inserted + result.getInserted();
+                    updated = result.getUpdated() < 0 || updated < 0 ? -1 : updated + result.getUpdated();
+                    skipped += result.getSkipped();
+                    roundTrips += result.getRoundTrips();
+                    rejected += invalidLines.size() + rejectedRows.size();
+                    chunk.clear();
+                    invalidLines.clear();
+                }
+            } catch (SQLException | IOException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+
+        Files.deleteIfExists(checkpointFile);
+        if (batchController != null) {
+            log.debug("Lotes de la carga: {}", batchController);
+        }
+        if (checkpoint.getRejected() > 0) {
+            log.warn("{} filas rechazadas en total ({} en esta ejecución), guardadas en {}",
+                    checkpoint.getRejected(), rejected, rejectedFile);
+        }
+        return new UpsertResult(engine.getStrategy().name() + " cada " + commitInterval,
+                rows, inserted, updated, skipped, roundTrips, System.nanoTime() - start);
+    }
+
+    /**
+     * Escribe un tramo sin confirmarlo. Si falla, lo deshace y lo reintenta fila a fila.
+     * Un tramo puede estar vacío si todas sus líneas eran inválidas.
+     *
+     * @param firstRow - Filas del fichero anteriores al tramo, para los mensajes
+     * @param batchController - Controlador del tamaño de lote de la carga, o null si es fijo
+     * @param rejectedRows - Lista a la que se añaden las filas rechazadas
+     * @return - Resultado de las filas escritas
+     */
+    private UpsertResult writeChunk(Connection connection, List<MySqlEmployee> chunk, long firstRow,
+                                    AdaptiveBatchController batchController, List<MySqlEmployee> rejectedRows) throws SQLException {
+        try (EmployeeUpsertWriter writer = engine.open(connection, batchController)) {
+            for (MySqlEmployee employee : chunk) {
+                writer.add(employee);
+            }
+            writer.flush();
+            return writer.getResult();
+        } catch (SQLException e) {
+            connection.rollback();
+            log.warn("Error al escribir el tramo que empieza en la fila {}, sus {} empleados se reintentan uno a uno: {}",
+                    firstRow + 1, chunk.size(), e.getMessage());
+        }
+
+        // Los lotes de una fila del reintento no deben influir en el controlador
+        try (EmployeeUpsertWriter writer = engine.open(connection, null)) {
+            for (MySqlEmployee employee : chunk) {
+                Savepoint savepoint = connection.setSavepoint();
+                try {
+                    writer.add(employee);
+                    writer.flush();
+                } catch (SQLException e) {
+                    connection.rollback(savepoint);
+                    writer.discard();
+                    rejectedRows.add(employee);
+                    log.warn("Empleado {} rechazado: {}", employee.getEmployeeId(), e.getMessage());
+                }
+            }
+            return writer.getResult();
+        }
+    }
+
+    /**
+     * Añade las filas rechazadas al fichero, con la cabecera si es nuevo, y lo fuerza a disco antes del commit.
+     * Las líneas no válidas se copian tal cual; las rechazadas por la base de datos se escriben como CSV.
+     */
+    private void appendRejected(List<InvalidCsvLineException> invalidLines, List<MySqlEmployee> rejectedRows) throws IOException {
+        if (invalidLines.isEmpty() && rejectedRows.isEmpty()) {
+            return;
+        }
+        boolean exists = Files.exists(rejectedFile);
+        try (Writer out = Files.newBufferedWriter(rejectedFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+             ICSVWriter writer = new CSVWriter(out, ICSVWriter.DEFAULT_SEPARATOR, ICSVWriter.DEFAULT_QUOTE_CHARACTER,
+                     ICSVWriter.DEFAULT_ESCAPE_CHARACTER, "\n")) {
+            if (!exists) {
+                writer.writeNext(HEADER, false);
+            }
+            // CSVWriter escribe cada fila directamente en out, así que el orden se mantiene
+            for (InvalidCsvLineException invalid : invalidLines) {
+                out.write(invalid.getLine());
+                out.write('\n');
+            }
+            for (MySqlEmployee employee : rejectedRows) {
+                writer.writeNext(new String[]{String.valueOf(employee.getEmployeeId()), employee.getFirstName(),
+                        employee.getLastName(), employee.getGender(), String.valueOf(employee.getHireDate()),
+                        String.valueOf(employee.getBirthDate())}, false);
+            }
+        }
+    }
+}
@@ -0,0 +1,442 @@
+package com.unir.app.write;
+
+import com.unir.config.AdaptiveBatchController;
+import com.unir.config.AdaptiveBatchSettings;
+import com.unir.config.StatementCache;
+import com.unir.model.MySqlEmployee;
+import lombok.Getter;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Motor de inserción o actualización (upsert) de empleados con varias estrategias seleccionables.
+ *
+ * - ROW_BY_ROW: la estrategia original. Un SELECT COUNT(*) por empleado para decidir entre INSERT y UPDATE.
+ * - ON_DUPLICATE_KEY: INSERT ... ON DUPLICATE KEY UPDATE. Con rewriteBatchedStatements=true el driver
+ *   reescribe el lote como una única sentencia de varias filas.
+ * - PREFETCH_KEYS: consulta de una vez las claves del lote con IN (...) y después envía un lote de INSERT
+ *   y otro de UPDATE.
+ * - DELTA: como PREFETCH_KEYS, pero solo actualiza los empleados cuyo contenido ha cambiado. Compara un hash
+ *   de cada fila con el de la fila guardada en employees, y omite las filas iguales.
+ *   Pensada para recargas diarias de ficheros casi sin cambios.
+ *
+ * El tamaño de lote puede ser fijo o adaptativo: en ese caso cada escritor tiene un {@link AdaptiveBatchController},
+ * que lo ajusta según la latencia y el rendimiento de sus propios lotes. Quien abra varios escritores seguidos sobre
+ * la misma conexión, por ejemplo uno por transacción, puede pasarles el mismo controlador para no perder lo aprendido.
+ */
+@Getter
+public class EmployeeUpsertEngine {
+
+    public enum Strategy {
+        ROW_BY_ROW,
+        ON_DUPLICATE_KEY,
+        PREFETCH_KEYS,
+        DELTA
+    }
+
+    // Número máximo de claves por consulta IN (...) en PREFETCH_KEYS y DELTA. Potencia de 2, como los bloques
+    private static final int MAX_KEYS_PER_LOOKUP = 1024;
+
+    private final Strategy strategy;
+    private final int batchSize;
+    private final AdaptiveBatchSettings adaptiveBatch;
+
+    public EmployeeUpsertEngine(Strategy strategy, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("El tamaño de lote debe ser mayor que 0: " + batchSize);
+        }
+        this.strategy = strategy;
+        this.batchSize = batchSize;
+        this.adaptiveBatch = null;
+    }
+
+    /**
+     * Motor con tamaño de lote adaptativo.
+     *
+     * @param strategy - Estrategia de upsert
+     * @param adaptiveBatch - Límites, tamaño inicial y latencia objetivo de los lotes
+     * @throws IllegalArgumentException - Si la configuración no es válida
+     */
+    public EmployeeUpsertEngine(Strategy strategy, AdaptiveBatchSettings adaptiveBatch) {
+        adaptiveBatch.validate();
+        this.strategy = strategy;
+        // Solo se usa si un escritor se abre sin controlador: entonces los lotes tienen el tamaño máximo
+        this.batchSize = adaptiveBatch.getMaxBatchSize();
+        this.adaptiveBatch = adaptiveBatch;
+    }
+
+    /**
+     * Abre un escritor sobre la conexión indicada con la estrategia del motor.
+     * Con tamaño de lote adaptativo, el escritor tiene un controlador nuevo.
+     *
+     * @param connection - Conexión a la base de datos
+     * @return - Escritor por lotes. Hay que hacer flush y cerrarlo al terminar
+     * @throws SQLException - Error al preparar las sentencias
+     */
+    public EmployeeUpsertWriter open(Connection connection) throws SQLException {
+        return open(connection, newBatchController());
+    }
+
+    /**
+     * Abre un escritor que usa el controlador indicado, que conserva el tamaño de lote aprendido por escritores anteriores.
+     *
+     * @param connection - Conexión a la base de datos
+     * @param batchController - Controlador de {@link #newBatchController()}. Con null el tamaño de lote es fijo
+     * @return - Escritor por lotes. Hay que hacer flush y cerrarlo al terminar
+     * @throws SQLException - Error al preparar las sentencias
+     */
+    public EmployeeUpsertWriter open(Connection connection, AdaptiveBatchController batchController) throws SQLException {
+        EmployeeUpsertWriter writer;
+        switch (strategy) {
+            case ROW_BY_ROW:
+                writer = new RowByRowWriter(connection, batchSize);
+                break;
+            case ON_DUPLICATE_KEY:
+                writer = new OnDuplicateKeyWriter(connection, batchSize);
+                break;
+            case PREFETCH_KEYS:
+                writer = new PrefetchKeysWriter(connection, batchSize);
+                break;
+            case DELTA:
+                writer = new DeltaWriter(connection, batchSize);
+                break;
+            default:
+                throw new IllegalStateException("Estrategia no soportada: " + strategy);
+        }
+        writer.setBatchController(batchController);
+        return writer;
+    }
+
+    /**
+     * @return - Controlador nuevo con la configuración del motor, o null si el tamaño de lote es fijo.
+     *           No es thread-safe: cada conexión necesita el suyo
+     */
+    public AdaptiveBatchController newBatchController() {
+        return adaptiveBatch == null ? null : new AdaptiveBatchController(adaptiveBatch);
+    }
+
+    /**
+     * Inserta o actualiza todos los empleados y envía el último lote.
+     * No hace commit.
+     *
+     * @param connection - Conexión a la base de datos
+     * @param employees - Empleados
+     * @return - Resultado de la carga
+     * @throws SQLException - Error al ejecutar las sentencias
+     */
+    public UpsertResult upsert(Connection connection, Iterable<MySqlEmployee> employees) throws SQLException {
+        try (EmployeeUpsertWriter writer = open(connection)) {
+            for (MySqlEmployee employee : employees) {
+                writer.add(employee);
+            }
+            writer.flush();
+            return writer.getResult();
+        }
+    }
+
+    /**
+     * Estrategia original: comprueba la existencia de cada empleado con una consulta.
+     */
+    private static class RowByRowWriter extends EmployeeUpsertWriter {
+
+        private final PreparedStatement selectStatement;
+        private final PreparedStatement insertStatement;
+        private final PreparedStatement updateStatement;
+
+        RowByRowWriter(Connection connection, int batchSize) throws SQLException {
+            super(connection, Strategy.ROW_BY_ROW.name(), batchSize);
+            this.selectStatement = prepare("SELECT COUNT(*) FROM employees WHERE emp_no = ?");
+            this.insertStatement = prepare(INSERT_SQL);
+            this.updateStatement = prepare(UPDATE_SQL);
+        }
+
+        @Override
+        protected void write(List<MySqlEmployee> batch) throws SQLException {
+            int inserts = 0;
+            int updates = 0;
+            for (MySqlEmployee employee : batch) {
+
+                // Comprobamos si el empleado existe
+                selectStatement.setInt(1, employee.getEmployeeId());
+                int rowCount;
+                try (ResultSet resultSet = selectStatement.executeQuery()) {
+                    resultSet.next(); // Nos movemos a la primera fila
+                    rowCount = resultSet.getInt(1);
+                }
+                roundTrips++;
+
+                // Si existe, actualizamos. Si no, insertamos
+                if (rowCount > 0) {
+                    fillUpdateStatement(updateStatement, employee);
+                    updateStatement.addBatch();
+                    updates++;
+                } else {
+                    fillInsertStatement(insertStatement, employee);
+                    insertStatement.addBatch();
+                    inserts++;
+                }
+            }
+            roundTrips += executeBatches(updateStatement, updates, insertStatement, inserts);
+            inserted += inserts;
+            updated += updates;
+        }
+    }
+
+    /**
+     * INSERT ... ON DUPLICATE KEY UPDATE. La base de datos decide si inserta o actualiza.
+     * MySQL no devuelve por separado el número de inserciones y actualizaciones de un lote reescrito.
+     */
+    private static class OnDuplicateKeyWriter extends EmployeeUpsertWriter {
+
+        private final PreparedStatement upsertStatement;
+
+        OnDuplicateKeyWriter(Connection connection, int batchSize) throws SQLException {
+            super(connection, Strategy.ON_DUPLICATE_KEY.name(), batchSize);
+            this.upsertStatement = prepare(INSERT_SQL + " ON DUPLICATE KEY UPDATE first_name = VALUES(first_name), "
+                    + "last_name = VALUES(last_name), gender = VALUES(gender), "
+                    + "hire_date = VALUES(hire_date), birth_date = VALUES(birth_date)");
+            this.inserted = -1;
+            this.updated = -1;
+        }
+
+        @Override
+        protected void write(List<MySqlEmployee> batch) throws SQLException {
+            for (MySqlEmployee employee : batch) {
+                fillInsertStatement(upsertStatement, employee);
+                upsertStatement.addBatch();
+            }
+            upsertStatement.executeBatch();
+            roundTrips++;
+        }
+    }
+
+    /**
+     * Consulta las claves existentes del lote en bloques de IN (...) y separa inserciones de actualizaciones.
+     */
+    private static class PrefetchKeysWriter extends EmployeeUpsertWriter {
+
+        private final PreparedStatement insertStatement;
+        private final PreparedStatement updateStatement;
+
+        PrefetchKeysWriter(Connection connection, int batchSize) throws SQLException {
+            super(connection, Strategy.PREFETCH_KEYS.name(), batchSize);
+            this.insertStatement = prepare(INSERT_SQL);
+            this.updateStatement = prepare(UPDATE_SQL);
+        }
+
+        @Override
+        protected void write(List<MySqlEmployee> batch) throws SQLException {
+            Set<Integer> existing = lookupExistingKeys(batch);
+            int inserts = 0;
+            int updates = 0;
+            for (MySqlEmployee employee : batch) {
+                // add devuelve false si ya existía: el empleado está en la tabla o aparece antes en este mismo lote
+                if (existing.add(employee.getEmployeeId())) {
+                    fillInsertStatement(insertStatement, employee);
+                    insertStatement.addBatch();
+                    inserts++;
+                } else {
+                    fillUpdateStatement(updateStatement, employee);
+                    updateStatement.addBatch();
+                    updates++;
+                }
+            }
+
+            // Primero las inserciones, para que las actualizaciones de empleados repetidos en el lote encuentren la fila
+            roundTrips += executeBatches(insertStatement, inserts, updateStatement, updates);
+            inserted += inserts;
+            updated += updates;
+        }
+
+        /**
+         * Consulta qué claves del lote existen ya en la tabla, en bloques de como mucho MAX_KEYS_PER_LOOKUP claves.
+         */
+        private Set<Integer> lookupExistingKeys(List<MySqlEmployee> batch) throws SQLException {
+            Set<Integer> existing = new HashSet<>();
+            for (int from = 0; from < batch.size(); from += MAX_KEYS_PER_LOOKUP) {
+                int to = Math.min(from + MAX_KEYS_PER_LOOKUP, batch.size());
+                PreparedStatement lookupStatement = prepareLookup(connection, "SELECT emp_no FROM employees", batch, from, to);
+                try (ResultSet resultSet = lookupStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        existing.add(resultSet.getInt(1));
+                    }
+                }
+                roundTrips++;
+            }
+            return existing;
+        }
+    }
+
+    /**
+     * Solo envía las inserciones y las filas que han cambiado respecto a lo que hay en la tabla.
+     *
+     * La consulta de claves trae también las columnas de los empleados que ya existen. Se compara un hash de 64 bits
+     * de la fila guardada con el de la fila nueva y, si coinciden, la fila se omite. Como compara con el contenido
+     * actual de employees, el resultado es correcto aunque la tabla se haya modificado con otras estrategias o
+     * herramientas. A cambio, la consulta trae las columnas de cada empleado existente y no solo su clave.
+     */
+    private static class DeltaWriter extends EmployeeUpsertWriter {
+
+        private static final String LOOKUP_SQL = "SELECT emp_no, first_name, last_name, gender, hire_date, birth_date FROM employees";
+
+        private final PreparedStatement insertStatement;
+        private final PreparedStatement updateStatement;
+
+        DeltaWriter(Connection connection, int batchSize) throws SQLException {
+            super(connection, Strategy.DELTA.name(), batchSize);
+            this.insertStatement = prepare(INSERT_SQL);
+            this.updateStatement = prepare(UPDATE_SQL);
+        }
+
+        @Override
+        protected void write(List<MySqlEmployee> batch) throws SQLException {
+            Map<Integer, Long> fingerprints = lookupFingerprints(batch);
+            int inserts = 0;
+            int updates = 0;
+            for (MySqlEmployee employee : batch) {
+                long hash = fingerprint(employee);
+
+                // Se actualiza el mapa para que una fila repetida en el mismo lote se compare con la anterior
+                Long previous = fingerprints.put(employee.getEmployeeId(), hash);
+                if (previous == null) {
+                    fillInsertStatement(insertStatement, employee);
+                    insertStatement.addBatch();
+                    inserts++;
+                } else if (previous == hash) {
+                    skipped++;
+                } else {
+                    fillUpdateStatement(updateStatement, employee);
+                    updateStatement.addBatch();
+                    updates++;
+                }
+            }
+
+            roundTrips += executeBatches(insertStatement, inserts, updateStatement, updates);
+            inserted += inserts;
+            updated += updates;
+        }
+
+        /**
+         * Consulta qué empleados del lote existen y calcula el hash de su fila guardada.
+         * Usa los mismos bloques que PREFETCH_KEYS.
+         */
+        private Map<Integer, Long> lookupFingerprints(List<MySqlEmployee> batch) throws SQLException {
+            Map<Integer, Long> fingerprints = new HashMap<>();
+            for (int from = 0; from < batch.size(); from += MAX_KEYS_PER_LOOKUP) {
+                int to = Math.min(from + MAX_KEYS_PER_LOOKUP, batch.size());
+                PreparedStatement lookupStatement = prepareLookup(connection, LOOKUP_SQL, batch, from, to);
+                try (ResultSet resultSet = lookupStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        fingerprints.put(resultSet.getInt(1), fingerprint(resultSet.getString(2), resultSet.getString(3),
+                                resultSet.getString(4), resultSet.getDate(5).toLocalDate(), resultSet.getDate(6).toLocalDate()));
+                    }
+                }
+                roundTrips++;
+            }
+            return fingerprints;
+        }
+
+        static long fingerprint(MySqlEmployee employee) {
+            return fingerprint(employee.getFirstName(), employee.getLastName(), employee.getGender(),
+                    employee.getHireDate().toLocalDate(), employee.getBirthDate().toLocalDate());
+        }
+
+        /**
+         * Hash FNV-1a de 64 bits de las columnas de la fila, sin emp_no, que es la clave.
+         * Las fechas se cuentan en días para que no dependan de la zona horaria.
+         */
+        static long fingerprint(String firstName, String lastName, String gender, LocalDate hireDate, LocalDate birthDate) {
+            long hash = 0xcbf29ce484222325L;
+            hash = fnv(hash, firstName);
+            hash = fnv(hash, lastName);
+            hash = fnv(hash, gender);
+            hash = fnv(hash, hireDate.toEpochDay());
+            return fnv(hash, birthDate.toEpochDay());
+        }
+
+        private static long fnv(long hash, String value) {
+            for (int i = 0; i < value.length(); i++) {
+                hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+            }
+            // Separador, para que "ab" + "c" no dé lo mismo que "a" + "bc"
+            return (hash ^ 0xFFFF) * 0x100000001b3L;
+        }
+
+        private static long fnv(long hash, long value) {
+            for (int i = 0; i < 8; i++) {
+                hash = (hash ^ (value & 0xFF)) * 0x100000001b3L;
+                value >>>= 8;
+            }
+            return hash;
+        }
+    }
+
+    /**
+     * Prepara la consulta de claves de un bloque del lote y le asigna las claves.
+     * El número de parámetros del IN se redondea a la siguiente potencia de 2, repitiendo la última clave,
+     * para que la caché de sentencias solo tenga unas pocas variantes de la consulta y un lote pequeño
+     * no envíe cientos de parámetros de relleno.
+     *
+     * @param connection - Conexión del escritor
+     * @param select - Consulta sin la condición sobre emp_no
+     * @param batch - Empleados del lote
+     * @param from - Primer empleado del bloque
+     * @param to - Posición siguiente al último empleado del bloque
+     * @return - Sentencia de la caché, con los parámetros asignados. No se debe cerrar
+     * @throws SQLException - Error al preparar la sentencia
+     */
+    private static PreparedStatement prepareLookup(Connection connection, String select, List<MySqlEmployee> batch,
+                                                   int from, int to) throws SQLException {
+        int keys = to - from;
+        int parameters = Integer.highestOneBit(keys);
+        if (parameters < keys) {
+            parameters <<= 1;
+        }
+
+        PreparedStatement lookupStatement = StatementCache.prepare(connection,
+                select + " WHERE emp_no IN (" + parameters(parameters) + ")");
+        for (int i = 0; i < parameters; i++) {
+            lookupStatement.setInt(i + 1, batch.get(Math.min(from + i, to - 1)).getEmployeeId());
+        }
+        return lookupStatement;
+    }
+
+    /**
+     * @return - Lista de parámetros "?, ?, ..." para una consulta IN (...)
+     */
+    private static String parameters(int count) {
+        StringBuilder sql = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Ejecuta dos lotes en el orden indicado, omitiendo los que estén vacíos.
+     *
+     * @return - Número de viajes a la base de datos
+     */
+    private static int executeBatches(PreparedStatement first, int firstCount,
+                                      PreparedStatement second, int secondCount) throws SQLException {
+        int trips = 0;
+        if (firstCount > 0) {
+            first.executeBatch();
+            trips++;
+        }
+        if (secondCount > 0) {
+            second.executeBatch();
+            trips++;
+        }
+        return trips;
+    }
+}
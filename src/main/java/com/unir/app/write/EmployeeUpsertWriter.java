@@ -0,0 +1,176 @@
+package com.unir.app.write;
+
+import com.unir.config.AdaptiveBatchController;
+import com.unir.config.StatementCache;
+import com.unir.model.MySqlEmployee;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Escritor de empleados por lotes. Acumula empleados con {@link #add(MySqlEmployee)} y los envía
+ * a la base de datos cada vez que se completa un lote, usando la estrategia de la subclase.
+ *
+ * No hace commit: la transacción la gestiona quien abre el escritor.
+ * Las sentencias se toman de la caché de la conexión, así que abrir varios escritores seguidos no vuelve a prepararlas.
+ * Al cerrarlo se descartan los lotes sin enviar, pero no el pendiente de {@link #add(MySqlEmployee)}; hay que llamar antes a {@link #flush()}.
+ * Con un {@link AdaptiveBatchController} el tamaño de lote lo decide el controlador, a partir del tiempo de cada envío.
+ */
+public abstract class EmployeeUpsertWriter implements AutoCloseable {
+
+    protected static final String INSERT_SQL = "INSERT INTO employees (emp_no, first_name, last_name, gender, hire_date, birth_date) "
+            + "VALUES (?, ?, ?, ?, ?, ?)";
+    protected static final String UPDATE_SQL = "UPDATE employees SET first_name = ?, last_name = ?, gender = ?, hire_date = ?, birth_date = ? WHERE emp_no = ?";
+
+    // Capacidad inicial máxima de la lista de empleados pendientes
+    private static final int INITIAL_CAPACITY = 1024;
+
+    protected final Connection connection;
+    private final String strategy;
+    private final int batchSize;
+    private final List<MySqlEmployee> pending;
+    private final List<PreparedStatement> statements = new ArrayList<>();
+    private final long start = System.nanoTime();
+    private AdaptiveBatchController batchController;
+
+    protected long rows;
+    protected long inserted;
+    protected long updated;
+    protected long skipped;
+    protected long roundTrips;
+
+    protected EmployeeUpsertWriter(Connection connection, String strategy, int batchSize) {
+        this.connection = connection;
+        this.strategy = strategy;
+        this.batchSize = batchSize;
+        // Con tamaño adaptativo el máximo puede ser muy grande; la lista crece si hace falta
+        this.pending = new ArrayList<>(Math.min(batchSize, INITIAL_CAPACITY));
+    }
+
+    /**
+     * Añade un empleado al lote actual. Si el lote se completa, se envía a la base de datos.
+     *
+     * @param employee - Empleado a insertar o actualizar
+     * @throws SQLException - Error al enviar el lote
+     */
+    public void add(MySqlEmployee employee) throws SQLException {
+        pending.add(employee);
+        if (pending.size() >= (batchController == null ? batchSize : batchController.getBatchSize())) {
+            flush();
+        }
+    }
+
+    /**
+     * Envía a la base de datos los empleados pendientes, aunque el lote no esté completo.
+     *
+     * @throws SQLException - Error al enviar el lote
+     */
+    public void flush() throws SQLException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        long batchStart = System.nanoTime();
+        write(pending);
+        if (batchController != null) {
+            batchController.record(pending.size(), System.nanoTime() - batchStart);
+        }
+        rows += pending.size();
+        pending.clear();
+    }
+
+    /**
+     * Descarta el lote pendiente y los lotes que las sentencias no hayan llegado a enviar.
+     * Permite seguir usando el escritor después de un error y de deshacer la transacción o volver a un savepoint.
+     *
+     * @throws SQLException - Error al vaciar los lotes de las sentencias
+     */
+    public void discard() throws SQLException {
+        pending.clear();
+        for (PreparedStatement statement : statements) {
+            statement.clearBatch();
+        }
+    }
+
+    /**
+     * Ajusta el tamaño de lote con el controlador en lugar de usar uno fijo.
+     * El tamaño de lote del constructor se ignora entonces.
+     *
+     * @param batchController - Controlador. Se puede reutilizar en escritores sucesivos de la misma conexión,
+     *                        pero no compartir entre conexiones. Con null el tamaño es fijo
+     */
+    void setBatchController(AdaptiveBatchController batchController) {
+        this.batchController = batchController;
+    }
+
+    /**
+     * @return - Resultado acumulado desde que se abrió el escritor
+     */
+    public UpsertResult getResult() {
+        return new UpsertResult(strategy, rows, inserted, updated, skipped, roundTrips, System.nanoTime() - start);
+    }
+
+    /**
+     * Envía un lote completo a la base de datos.
+     *
+     * @param batch - Empleados del lote, en el orden en que se añadieron
+     * @throws SQLException - Error al ejecutar las sentencias
+     */
+    protected abstract void write(List<MySqlEmployee> batch) throws SQLException;
+
+    /**
+     * Obtiene una sentencia preparada de la caché de la conexión.
+     *
+     * @param sql - Sentencia SQL
+     * @return - Sentencia preparada. No se debe cerrar
+     * @throws SQLException - Error al preparar la sentencia
+     */
+    protected PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement statement = StatementCache.prepare(connection, sql);
+        statements.add(statement);
+        return statement;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        // Las sentencias siguen en la caché; solo descartamos lo que no se haya llegado a enviar
+        for (PreparedStatement statement : statements) {
+            statement.clearBatch();
+        }
+        statements.clear();
+    }
+
+    /**
+     * Rellena los parámetros de un PreparedStatement para una consulta INSERT.
+     *
+     * @param statement - PreparedStatement
+     * @param employee - Empleado
+     * @throws SQLException - Error al rellenar los parámetros
+     */
+    protected static void fillInsertStatement(PreparedStatement statement, MySqlEmployee employee) throws SQLException {
+        statement.setInt(1, employee.getEmployeeId());
+        statement.setString(2, employee.getFirstName());
+        statement.setString(3, employee.getLastName());
+        statement.setString(4, employee.getGender());
+        statement.setDate(5, employee.getHireDate());
+        statement.setDate(6, employee.getBirthDate());
+    }
+
+    /**
+     * Rellena los parámetros de un PreparedStatement para una consulta UPDATE.
+     *
+     * @param statement - PreparedStatement
+     * @param employee - Empleado
+     * @throws SQLException - Error al rellenar los parámetros
+     */
+    protected static void fillUpdateStatement(PreparedStatement statement, MySqlEmployee employee) throws SQLException {
+        statement.setString(1, employee.getFirstName());
+        statement.setString(2, employee.getLastName());
+        statement.setString(3, employee.getGender());
+        statement.setDate(4, employee.getHireDate());
+        statement.setDate(5, employee.getBirthDate());
+        statement.setInt(6, employee.getEmployeeId());
+    }
+}
@@ -0,0 +1,110 @@
+package com.unir.app.write;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+
+/**
+ * Punto de control de una carga por tramos: filas del fichero CSV ya confirmadas en la base de datos
+ * y cuántas de ellas se han rechazado.
+ *
+ * Guarda también el tamaño y la fecha de modificación del fichero CSV. Si no coinciden al reanudar, el fichero
+ * es otro aunque tenga el mismo nombre (por ejemplo, el de otro día) y no se reanuda.
+ *
+ * Se guarda como fichero de propiedades. Cada versión se escribe en un fichero temporal, se fuerza a disco
+ * y sustituye a la anterior con un movimiento atómico, así que tras una caída siempre queda una versión completa.
+ */
+@Getter
+@ToString
+class IntakeCheckpoint {
+
+    private final String source;
+    private final long size;
+    private final long modified;
+    private long rows;
+    private long rejected;
+
+    private IntakeCheckpoint(String source, long size, long modified, long rows, long rejected) {
+        this.source = source;
+        this.size = size;
+        this.modified = modified;
+        this.rows = rows;
+        this.rejected = rejected;
+    }
+
+    /**
+     * Lee el punto de control de una carga, o crea uno vacío si no existe.
+     *
+     * @param file - Fichero del punto de control
+     * @param source - Fichero CSV que se carga
+     * @return - Punto de control
+     * @throws IOException - Error al leer los ficheros, o el punto de control es de otro fichero CSV
+     */
+    static IntakeCheckpoint load(Path file, Path source) throws IOException {
+        String name = source.toString();
+        long size = Files.size(source);
+        long modified = Files.getLastModifiedTime(source).toMillis();
+        if (!Files.exists(file)) {
+            return new IntakeCheckpoint(name, size, modified, 0, 0);
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        if (!name.equals(properties.getProperty("source"))) {
+            throw new IOException("El punto de control " + file + " es de la carga de " + properties.getProperty("source")
+                    + ", no de " + name + ". Hay que borrarlo para empezar de nuevo");
+        }
+        if (!String.valueOf(size).equals(properties.getProperty("size"))
+                || !String.valueOf(modified).equals(properties.getProperty("modified"))) {
+            throw new IOException("El fichero " + name + " ha cambiado desde el punto de control " + file
+                    + " (tamaño " + properties.getProperty("size") + " -> " + size + ", modificado "
+                    + properties.getProperty("modified") + " -> " + modified + "). Hay que borrarlo para empezar de nuevo");
+        }
+        return new IntakeCheckpoint(name, size, modified, Long.parseLong(properties.getProperty("rows")),
+                Long.parseLong(properties.getProperty("rejected")));
+    }
+
+    /**
+     * Suma un tramo confirmado y guarda el punto de control.
+     *
+     * @param file - Fichero del punto de control
+     * @param rows - Filas del tramo, incluidas las rechazadas
+     * @param rejected - Filas rechazadas del tramo
+     * @throws IOException - Error al escribir el fichero
+     */
+    void advance(Path file, long rows, long rejected) throws IOException {
+        this.rows += rows;
+        this.rejected += rejected;
+
+        Properties properties = new Properties();
+        properties.setProperty("source", source);
+        properties.setProperty("size", String.valueOf(size));
+        properties.setProperty("modified", String.valueOf(modified));
+        properties.setProperty("rows", String.valueOf(this.rows));
+        properties.setProperty("rejected", String.valueOf(this.rejected));
+
+        Path temporary = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                OutputStream out = Channels.newOutputStream(channel);
+                properties.store(out, "Filas del CSV ya confirmadas en la base de datos");
+                channel.force(true);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.unir.app.write;
+
+import com.unir.config.AdaptiveBatchSettings;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Opciones de la carga de empleados. Se leen de propiedades de sistema, por ejemplo:
+ * -Dintake.strategy=PREFETCH_KEYS -Dintake.batchSize=1000 -Dintake.writers=4 -Dintake.compare=true -Dintake.parser=MAPPED
+ * -Dintake.commitInterval=50000 -Dintake.checkpointFile=carga.checkpoint -Dintake.rejectedFile=rechazados.csv
+ * -Dintake.adaptiveBatch=true -Dintake.adaptiveBatch.maxBatchSize=5000 -Dintake.adaptiveBatch.targetLatencyMs=100
+ */
+@Getter
+@Setter
+public class IntakeOptions {
+
+    /**
+     * Forma de leer el fichero CSV.
+     * READER lo lee en un solo hilo. MAPPED lo proyecta en memoria y lo procesa en paralelo, para ficheros grandes.
+     */
+    public enum Parser {
+        READER,
+        MAPPED
+    }
+
+    // Fichero CSV con los empleados, relativo a la raíz del proyecto
+    private String file = "unirEmployees.csv";
+
+    // Lector del fichero CSV
+    private Parser parser = Parser.READER;
+
+    // Estrategia de inserción o actualización. DELTA omite las filas iguales a las de la tabla
+    private EmployeeUpsertEngine.Strategy strategy = EmployeeUpsertEngine.Strategy.ON_DUPLICATE_KEY;
+
+    // Número de empleados por lote
+    private int batchSize = 500;
+
+    // Si es true el tamaño de lote se ajusta durante la carga en lugar de usar batchSize
+    private boolean adaptiveBatch = false;
+
+    // Límites, tamaño inicial y latencia objetivo del tamaño de lote adaptativo
+    private AdaptiveBatchSettings adaptiveBatchSettings = new AdaptiveBatchSettings();
+
+    // Número de escritores en paralelo, cada uno con su propia conexión
+    private int writers = 2;
+
+    // Bloques de empleados que caben en la cola de cada escritor
+    private int queueCapacity = 8;
+
+    // Filas por transacción, con punto de control para reanudar la carga. Con 0 cada escritor hace un único commit al final
+    private int commitInterval = 0;
+
+    // Punto de control de la carga por tramos. Por defecto, el fichero CSV con la extensión .checkpoint
+    private String checkpointFile;
+
+    // Filas rechazadas en la carga por tramos. Por defecto, el fichero CSV con la extensión .rejected.csv
+    private String rejectedFile;
+
+    // Si es true se usa LOAD DATA LOCAL INFILE. Si falla, se vuelve a la carga por lotes
+    private boolean bulkLoad = false;
+
+    // Si es true se ejecutan todas las estrategias, incluida la carga masiva, y se compara su rendimiento.
+    // Antes de cada una se devuelve employees a su contenido inicial, con una copia temporal de la tabla
+    private boolean compare = false;
+
+    /**
+     * @return - Opciones leídas de las propiedades de sistema intake.*
+     */
+    public static IntakeOptions fromSystemProperties() {
+        IntakeOptions options = new IntakeOptions();
+        options.setFile(System.getProperty("intake.file", options.getFile()));
+        options.setParser(Parser.valueOf(System.getProperty("intake.parser", options.getParser().name())));
+        options.setStrategy(EmployeeUpsertEngine.Strategy.valueOf(
+                System.getProperty("intake.strategy", options.getStrategy().name())));
+        options.setBatchSize(Integer.getInteger("intake.batchSize", options.getBatchSize()));
+        options.setAdaptiveBatch(Boolean.getBoolean("intake.adaptiveBatch"));
+        options.setAdaptiveBatchSettings(AdaptiveBatchSettings.fromSystemProperties("intake.adaptiveBatch"));
+        options.setWriters(Integer.getInteger("intake.writers", options.getWriters()));
+        options.setQueueCapacity(Integer.getInteger("intake.queueCapacity", options.getQueueCapacity()));
+        options.setCommitInterval(Integer.getInteger("intake.commitInterval", options.getCommitInterval()));
+        options.setCheckpointFile(System.getProperty("intake.checkpointFile", options.getFile() + ".checkpoint"));
+        options.setRejectedFile(System.getProperty("intake.rejectedFile", options.getFile() + ".rejected.csv"));
+        options.setBulkLoad(Boolean.getBoolean("intake.bulkLoad"));
+        options.setCompare(Boolean.getBoolean("intake.compare"));
+        return options;
+    }
+
+    /**
+     * @param strategy - Estrategia de upsert
+     * @return - Motor de upsert con el tamaño de lote fijo o adaptativo de estas opciones
+     */
+    public EmployeeUpsertEngine engine(EmployeeUpsertEngine.Strategy strategy) {
+        return adaptiveBatch
+                ? new EmployeeUpsertEngine(strategy, adaptiveBatchSettings)
+                : new EmployeeUpsertEngine(strategy, batchSize);
+    }
+}
@@ -1,18 +1,18 @@
 package com.unir.app.write;
 
-import com.opencsv.CSVParserBuilder;
-import com.opencsv.CSVReader;
-import com.opencsv.CSVReaderBuilder;
-import com.opencsv.exceptions.CsvValidationException;
+import com.unir.config.ConnectionPool;
 import com.unir.config.MySqlConnector;
+import com.unir.config.StatementCache;
+import com.unir.config.TableChangeNotifier;
+import com.unir.csv.EmployeeCsvReader;
+import com.unir.csv.EmployeeCsvSource;
+import com.unir.csv.MappedEmployeeCsvParser;
 import com.unir.model.MySqlEmployee;
 import lombok.extern.slf4j.Slf4j;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.sql.*;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -24,68 +24,206 @@ public class MySqlApplicationIntake {
 
     private static final String DATABASE = "employees";
 
+    // Copia de employees con la que cada carga de la comparativa empieza desde el mismo estado
+    private static final String BASELINE_TABLE = "employees_compare_baseline";
+
     public static void main(String[] args) {
 
-        //Creamos conexion. No es necesario indicar puerto en host si usamos el default, 1521
-        //Try-with-resources. Se cierra la conexión automáticamente al salir del bloque try
-        try(Connection connection = new MySqlConnector("localhost", DATABASE).getConnection()) {
+        IntakeOptions options = IntakeOptions.fromSystemProperties();
+
+        // Cada escritor pide su propia conexión al pool. No es necesario indicar puerto en host si usamos el default
+        ConnectionPool pool = MySqlConnector.pool("localhost", DATABASE);
+
+        try {
+            if (options.isCompare()) {
 
-            log.info("Conexión establecida con la base de datos MySQL");
+                // Probamos todas las estrategias y la carga masiva con el mismo fichero. Antes de cada una
+                // devolvemos employees al estado inicial, para que todas hagan las mismas inserciones y actualizaciones
+                List<UpsertResult> results = new ArrayList<>();
+                saveBaseline(pool);
+                try {
+                    for (EmployeeUpsertEngine.Strategy strategy : EmployeeUpsertEngine.Strategy.values()) {
+                        restoreBaseline(pool);
+                        results.add(pipelineIntake(pool, options, strategy));
+                    }
+                    restoreBaseline(pool);
+                    results.add(bulkIntake(options));
+                } finally {
+                    dropBaseline(pool);
+                }
+                results.sort((a, b) -> Double.compare(b.getRowsPerSecond(), a.getRowsPerSecond()));
+                results.forEach(result -> log.info("Comparativa. {}", result));
 
-            // Leemos los datos del fichero CSV
-            List<MySqlEmployee> employees = readData();
+            } else if (options.isBulkLoad()) {
+                UpsertResult result;
+                try {
+                    result = bulkIntake(options);
+                } catch (SQLException e) {
+                    // Por ejemplo, si el servidor tiene local_infile=OFF
+                    log.warn("No se ha podido usar LOAD DATA LOCAL INFILE, se usa la carga por lotes", e);
+                    result = pipelineIntake(pool, options, options.getStrategy());
+                }
+                log.info("Carga finalizada. {}", result);
 
-            // Introducimos los datos en la base de datos
-            intake(connection, employees);
+            } else if (options.getCommitInterval() > 0) {
+                log.info("Carga finalizada. {}", checkpointedIntake(pool, options));
 
+            } else {
+                log.info("Carga finalizada. {}", pipelineIntake(pool, options, options.getStrategy()));
+            }
         } catch (Exception e) {
             log.error("Error al tratar con la base de datos", e);
         }
+        log.info("Estadísticas del pool: {}", pool.getStatistics());
+        log.info("Estadísticas de la caché de sentencias: {}", StatementCache.getStatistics());
+    }
+
+    /**
+     * Lee el fichero CSV en streaming y lo introduce en la base de datos a la vez, con varios escritores.
+     *
+     * @param pool - Pool del que cada escritor toma su conexión
+     * @param options - Opciones de la carga
+     * @param strategy - Estrategia de upsert
+     * @return - Resultado de la carga
+     * @throws IOException - Error al leer el fichero
+     * @throws SQLException - Error al escribir en la base de datos
+     */
+    private static UpsertResult pipelineIntake(ConnectionPool pool, IntakeOptions options,
+                                               EmployeeUpsertEngine.Strategy strategy) throws IOException, SQLException {
+
+        //Try-with-resources. Se cierra el fichero automáticamente al salir del bloque try
+        try (EmployeeCsvSource reader = openCsv(options)) {
+            StreamingIntakePipeline pipeline = new StreamingIntakePipeline(pool.getDataSource(),
+                    options.engine(strategy),
+                    options.getWriters(), options.getQueueCapacity());
+            return pipeline.run(reader);
+        }
+    }
+
+    /**
+     * Lee el fichero CSV y lo introduce en la base de datos por tramos, confirmando cada commitInterval filas.
+     * Si existe un punto de control de una ejecución anterior interrumpida, continúa desde él.
+     *
+     * @param pool - Pool del que se toma la conexión
+     * @param options - Opciones de la carga
+     * @return - Resultado de esta ejecución
+     * @throws IOException - Error al leer el fichero, el punto de control o al escribir los rechazados
+     * @throws SQLException - Error al escribir en la base de datos
+     */
+    private static UpsertResult checkpointedIntake(ConnectionPool pool, IntakeOptions options) throws IOException, SQLException {
+        try (EmployeeCsvSource reader = openCsv(options)) {
+            CheckpointedIntake intake = new CheckpointedIntake(pool.getDataSource(),
+                    options.engine(options.getStrategy()), options.getCommitInterval(),
+                    Paths.get(options.getCheckpointFile()), Paths.get(options.getRejectedFile()));
+            return intake.run(Paths.get(options.getFile()), reader);
+        }
+    }
+
+    /**
+     * Carga el fichero CSV con LOAD DATA LOCAL INFILE a través de una tabla de staging.
+     *
+     * @param options - Opciones de la carga
+     * @return - Resultado de la carga
+     * @throws IOException - Error al leer el fichero
+     * @throws SQLException - Error al cargar los datos, por ejemplo si el servidor no permite ficheros locales
+     */
+    private static UpsertResult bulkIntake(IntakeOptions options) throws IOException, SQLException {
+        try (EmployeeCsvSource reader = openCsv(options);
+             Connection connection = MySqlConnector.bulkLoadPool("localhost", DATABASE).getConnection()) {
+            return new MySqlBulkLoader().load(connection, reader);
+        }
+    }
+
+    /**
+     * Copia employees en la tabla de referencia de la comparativa.
+     *
+     * @param pool - Pool del que se toma la conexión
+     * @throws SQLException - Error al copiar la tabla
+     */
+    private static void saveBaseline(ConnectionPool pool) throws SQLException {
+        try (Connection connection = pool.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + BASELINE_TABLE);
+            statement.execute("CREATE TABLE " + BASELINE_TABLE + " LIKE employees");
+            statement.execute("INSERT INTO " + BASELINE_TABLE + " SELECT * FROM employees");
+        }
+    }
+
+    /**
+     * Devuelve employees al contenido de la tabla de referencia: borra los empleados que ha añadido la carga
+     * anterior y restaura los que ha modificado. No borra empleados de la referencia, así que las tablas que
+     * dependen de employees no se ven afectadas.
+     *
+     * @param pool - Pool del que se toma la conexión
+     * @throws SQLException - Error al restaurar la tabla. Se deshace la transacción
+     */
+    private static void restoreBaseline(ConnectionPool pool) throws SQLException {
+        try (Connection connection = pool.getConnection();
+             Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(false);
+            try {
+                int deleted = statement.executeUpdate("DELETE e FROM employees e LEFT JOIN " + BASELINE_TABLE
+                        + " b ON b.emp_no = e.emp_no WHERE b.emp_no IS NULL");
+                int restored = statement.executeUpdate("UPDATE employees e JOIN " + BASELINE_TABLE + " b ON b.emp_no = e.emp_no "
+                        + "SET e.first_name = b.first_name, e.last_name = b.last_name, e.gender = b.gender, "
+                        + "e.hire_date = b.hire_date, e.birth_date = b.birth_date");
+                connection.commit();
+                log.debug("Tabla employees restaurada: {} empleados borrados, {} restaurados", deleted, restored);
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+        TableChangeNotifier.tablesChanged("employees");
+    }
+
+    /**
+     * Borra la tabla de referencia de la comparativa.
+     *
+     * @param pool - Pool del que se toma la conexión
+     * @throws SQLException - Error al borrar la tabla
+     */
+    private static void dropBaseline(ConnectionPool pool) throws SQLException {
+        try (Connection connection = pool.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + BASELINE_TABLE);
+        }
+    }
+
+    /**
+     * Abre el fichero CSV con el lector indicado en las opciones.
+     *
+     * @param options - Opciones de la carga
+     * @return - Empleados del fichero, en orden
+     * @throws IOException - Error al abrir el fichero
+     */
+    private static EmployeeCsvSource openCsv(IntakeOptions options) throws IOException {
+        if (options.getParser() == IntakeOptions.Parser.MAPPED) {
+            return new MappedEmployeeCsvParser(options.getFile());
+        }
+        return new EmployeeCsvReader(options.getFile());
     }
 
     /**
      * Lee los datos del fichero CSV y los devuelve en una lista de empleados.
-     * El fichero CSV debe estar en la raíz del proyecto.
+     * La ruta del fichero CSV es relativa a la raíz del proyecto.
+     * Carga el fichero entero en memoria; para ficheros grandes es mejor usar {@link StreamingIntakePipeline}.
      *
+     * @param file - Ruta del fichero CSV
      * @return - Lista de empleados
      */
-    private static List<MySqlEmployee> readData() {
+    static List<MySqlEmployee> readData(String file) {
 
         // Try-with-resources. Se cierra el reader automáticamente al salir del bloque try
-        // CSVReader nos permite leer el fichero CSV linea a linea
-        try (CSVReader reader = new CSVReaderBuilder(
-                new FileReader("unirEmployees.csv"))
-                .withCSVParser(new CSVParserBuilder()
-                .withSeparator(',').build()).build()) {
-
-            // Creamos la lista de empleados y el formato de fecha
-            List<MySqlEmployee> employees = new LinkedList<>();
-            SimpleDateFormat format = new SimpleDateFormat("yyy-MM-dd");
-
-            // Saltamos la primera linea, que contiene los nombres de las columnas del CSV
-            reader.skip(1);
-            String[] nextLine;
-
-            // Leemos el fichero linea a linea
-            while((nextLine = reader.readNext()) != null) {
-
-                // Creamos el empleado y lo añadimos a la lista
-                MySqlEmployee employee = new MySqlEmployee(
-                        Integer.parseInt(nextLine[0]),
-                        nextLine[1],
-                        nextLine[2],
-                        nextLine[3],
-                        new Date(format.parse(nextLine[4]).getTime()),
-                        new Date(format.parse(nextLine[5]).getTime())
-                );
-                employees.add(employee);
-            }
+        try (EmployeeCsvReader reader = new EmployeeCsvReader(file)) {
+            List<MySqlEmployee> employees = new ArrayList<>();
+            reader.forEachRemaining(employees::add);
             return employees;
         } catch (IOException e) {
             log.error("Error al leer el fichero CSV", e);
             throw new RuntimeException(e);
-        } catch (CsvValidationException | ParseException e) {
-            throw new RuntimeException(e);
         }
     }
 
@@ -95,91 +233,32 @@ public class MySqlApplicationIntake {
      * Si no existe, se inserta.
      *
      * Toma como referencia el campo emp_no para determinar si el empleado existe o no.
+     * La forma de decidirlo y el tamaño de lote, fijo o adaptativo, dependen del motor de upsert.
      * @param connection - Conexión a la base de datos
      * @param employees - Lista de empleados
+     * @param engine - Motor de upsert con la estrategia y el tamaño de lote
+     * @return - Resultado de la carga
      * @throws SQLException - Error al ejecutar la consulta
      */
-    private static void intake(Connection connection, List<MySqlEmployee> employees) throws SQLException {
-
-        String selectSql = "SELECT COUNT(*) FROM employees WHERE emp_no = ?";
-        String insertSql = "INSERT INTO employees (emp_no, first_name, last_name, gender, hire_date, birth_date) "
-                + "VALUES (?, ?, ?, ?, ?, ?)";
-        String updateSql = "UPDATE employees SET first_name = ?, last_name = ?, gender = ?, hire_date = ?, birth_date = ? WHERE emp_no = ?";
-        int lote = 5;
-        int contador = 0;
-
-        // Preparamos las consultas, una unica vez para poder reutilizarlas en el batch
-        PreparedStatement insertStatement = connection.prepareStatement(insertSql);
-        PreparedStatement updateStatement = connection.prepareStatement(updateSql);
+    static UpsertResult intake(Connection connection, List<MySqlEmployee> employees, EmployeeUpsertEngine engine) throws SQLException {
 
         // Desactivamos el autocommit para poder ejecutar el batch y hacer commit al final
         connection.setAutoCommit(false);
 
-        for (MySqlEmployee employee : employees) {
-
-            // Comprobamos si el empleado existe
-            PreparedStatement selectStatement = connection.prepareStatement(selectSql);
-            selectStatement.setInt(1, employee.getEmployeeId()); // Código del empleado
-            ResultSet resultSet = selectStatement.executeQuery();
-            resultSet.next(); // Nos movemos a la primera fila
-            int rowCount = resultSet.getInt(1);
+        try {
+            UpsertResult result = engine.upsert(connection, employees);
 
-            // Si existe, actualizamos. Si no, insertamos
-            if(rowCount > 0) {
-                fillUpdateStatement(updateStatement, employee);
-                updateStatement.addBatch();
-            } else {
-                fillInsertStatement(insertStatement, employee);
-                insertStatement.addBatch();
-            }
-
-            // Ejecutamos el batch cada lote de registros
-            if (++contador % lote == 0) {
-                updateStatement.executeBatch();
-                insertStatement.executeBatch();
-            }
+            // Hacemos commit y avisamos a las cachés que dependen de la tabla
+            connection.commit();
+            TableChangeNotifier.tablesChanged("employees");
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            // Sin rollback, el setAutoCommit(true) del finally confirmaría la parte ya escrita
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
         }
-
-        // Ejecutamos el batch final
-        insertStatement.executeBatch();
-        updateStatement.executeBatch();
-
-        // Hacemos commit y volvemos a activar el autocommit
-        connection.commit();
-        connection.setAutoCommit(true);
-    }
-
-    /**
-     * Rellena los parámetros de un PreparedStatement para una consulta INSERT.
-     *
-     * @param statement - PreparedStatement
-     * @param employee - Empleado
-     * @throws SQLException - Error al rellenar los parámetros
-     */
-    private static void fillInsertStatement(PreparedStatement statement, MySqlEmployee employee) throws SQLException {
-        statement.setInt(1, employee.getEmployeeId());
-        statement.setString(2, employee.getFirstName());
-        statement.setString(3, employee.getLastName());
-        statement.setString(4, employee.getGender());
-        statement.setDate(5, employee.getHireDate());
-        statement.setDate(6, employee.getBirthDate());
-
-    }
-
-    /**
-     * Rellena los parámetros de un PreparedStatement para una consulta UPDATE.
-     *
-     * @param statement - PreparedStatement
-     * @param employee - Empleado
-     * @throws SQLException - Error al rellenar los parámetros
-     */
-    private static void fillUpdateStatement(PreparedStatement statement, MySqlEmployee employee) throws SQLException {
-        statement.setString(1, employee.getFirstName());
-        statement.setString(2, employee.getLastName());
-        statement.setString(3, employee.getGender());
-        statement.setDate(4, employee.getHireDate());
-        statement.setDate(5, employee.getBirthDate());
-        statement.setInt(6, employee.getEmployeeId());
     }
 
     /**
@@ -194,11 +273,12 @@ public class MySqlApplicationIntake {
      */
     private static int lastId(Connection connection, String table, String fieldName) throws SQLException {
         String selectSql = "SELECT MAX(?) FROM ?";
-        PreparedStatement selectStatement = connection.prepareStatement(selectSql);
+        PreparedStatement selectStatement = StatementCache.prepare(connection, selectSql);
         selectStatement.setString(1, fieldName);
         selectStatement.setString(2, table);
-        ResultSet resultSet = selectStatement.executeQuery();
-        resultSet.next(); // Nos movemos a la primera fila
-        return resultSet.getInt(1);
+        try (ResultSet resultSet = selectStatement.executeQuery()) {
+            resultSet.next(); // Nos movemos a la primera fila
+            return resultSet.getInt(1);
+        }
     }
 }
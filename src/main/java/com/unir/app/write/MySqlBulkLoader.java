@@ -0,0 +1,226 @@
+package com.unir.app.write;
+
+import com.mysql.cj.jdbc.JdbcStatement;
+import com.unir.config.TableChangeNotifier;
+import com.unir.model.MySqlEmployee;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+import java.util.Iterator;
+
+/**
+ * Carga masiva de empleados con LOAD DATA LOCAL INFILE, el cargador nativo de MySQL.
+ *
+ * Los empleados ya validados se envían normalizados en formato CSV a una tabla temporal de staging,
+ * sin escribir ningún fichero intermedio: el driver lee directamente de un InputStream que se va generando
+ * según se recorren los empleados. Después se aplican los cambios a employees con un único INSERT ... SELECT.
+ *
+ * La conexión debe tener allowLoadLocalInfile=true y el servidor local_infile=ON.
+ * Si no es así la carga falla y hay que usar la carga por lotes.
+ */
+@Slf4j
+public class MySqlBulkLoader {
+
+    private static final String STAGING_TABLE = "employees_staging";
+
+    // Avisos de LOAD DATA que se incluyen en el error
+    private static final int MAX_REPORTED_WARNINGS = 10;
+
+    /**
+     * Carga los empleados en employees y hace commit.
+     * Si un empleado aparece varias veces en el fichero, prevalece la última aparición.
+     *
+     * @param connection - Conexión con allowLoadLocalInfile=true
+     * @param employees - Empleados a insertar o actualizar
+     * @return - Resultado de la carga
+     * @throws SQLException - Error al cargar o al aplicar los cambios, o avisos de conversión de LOAD DATA.
+     *                        Se deshace la transacción
+     */
+    public UpsertResult load(Connection connection, Iterator<MySqlEmployee> employees) throws SQLException {
+        long start = System.nanoTime();
+        connection.setAutoCommit(false);
+
+        try (Statement statement = connection.createStatement()) {
+
+            // La tabla temporal solo existe en esta conexión y se borra sola al cerrarla
+            statement.execute("DROP TEMPORARY TABLE IF EXISTS " + STAGING_TABLE);
+            statement.execute("CREATE TEMPORARY TABLE " + STAGING_TABLE + " LIKE employees");
+
+            // El driver lee el contenido del fichero de este stream en lugar de abrir un fichero local
+            EmployeeCsvStream csv = new EmployeeCsvStream(employees);
+            statement.unwrap(JdbcStatement.class).setLocalInfileInputStream(csv);
+            statement.executeUpdate("LOAD DATA LOCAL INFILE 'employees.csv' "
+                    + "REPLACE INTO TABLE " + STAGING_TABLE + " CHARACTER SET utf8mb4 "
+                    + "FIELDS TERMINATED BY ',' ENCLOSED BY '\"' ESCAPED BY '\\\\' LINES TERMINATED BY '\\n' "
+                    + "(emp_no, first_name, last_name, gender, hire_date, birth_date)");
+            if (csv.getFailure() != null) {
+                // El stream se cortó al fallar la lectura de los empleados; lo cargado está incompleto
+                throw csv.getFailure();
+            }
+            checkWarnings(statement);
+
+            // Contamos los empleados distintos y los que ya existen para separar inserciones de actualizaciones
+            long staged;
+            long existing;
+            try (ResultSet resultSet = statement.executeQuery("SELECT COUNT(*), COUNT(e.emp_no) FROM " + STAGING_TABLE
+                    + " s LEFT JOIN employees e ON e.emp_no = s.emp_no")) {
+                resultSet.next();
+                staged = resultSet.getLong(1);
+                existing = resultSet.getLong(2);
+            }
+            log.debug("Filas enviadas: {}. Empleados distintos en {}: {}", csv.getRows(), STAGING_TABLE, staged);
+
+            // Aplicamos todos los cambios de una vez
+            statement.executeUpdate("INSERT INTO employees (emp_no, first_name, last_name, gender, hire_date, birth_date) "
+                    + "SELECT emp_no, first_name, last_name, gender, hire_date, birth_date FROM " + STAGING_TABLE + " "
+                    + "ON DUPLICATE KEY UPDATE first_name = VALUES(first_name), last_name = VALUES(last_name), "
+                    + "gender = VALUES(gender), hire_date = VALUES(hire_date), birth_date = VALUES(birth_date)");
+            statement.execute("DROP TEMPORARY TABLE " + STAGING_TABLE);
+            connection.commit();
+            TableChangeNotifier.tablesChanged("employees");
+
+            // DROP, CREATE, LOAD DATA, COUNT, INSERT ... SELECT, DROP y COMMIT
+            return new UpsertResult("LOAD_DATA", csv.getRows(), staged - existing, existing, 0, 7, System.nanoTime() - start);
+
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * LOAD DATA LOCAL no falla con los valores que no puede convertir: los trunca o los deja a cero y genera un aviso.
+     * Tratamos los avisos como errores para no guardar datos alterados.
+     *
+     * @param statement - Sentencia que ha ejecutado LOAD DATA
+     * @throws SQLException - Si hay algún aviso. Incluye los primeros en el mensaje
+     */
+    private static void checkWarnings(Statement statement) throws SQLException {
+        SQLWarning warning = statement.getWarnings();
+        if (warning == null) {
+            return;
+        }
+        StringBuilder messages = new StringBuilder();
+        int count = 0;
+        for (; warning != null; warning = warning.getNextWarning()) {
+            if (count++ < MAX_REPORTED_WARNINGS) {
+                log.warn("Aviso de LOAD DATA: {}", warning.getMessage());
+                messages.append(count == 1 ? "" : "; ").append(warning.getMessage());
+            }
+        }
+        throw new SQLException("LOAD DATA ha generado " + count + " avisos de conversión: " + messages, "22000");
+    }
+
+    /**
+     * InputStream que genera el CSV normalizado a partir de los empleados, una línea cada vez.
+     * Los textos van entre comillas y se escapan las comillas, las barras invertidas y los saltos de línea.
+     *
+     * Si el iterador lanza una excepción, por ejemplo una línea del CSV que no se puede leer, el stream la guarda
+     * y termina como si no hubiera más empleados. Así el driver acaba el protocolo de LOAD DATA con normalidad
+     * y quien lo usa puede deshacer la transacción y lanzarla.
+     */
+    private static class EmployeeCsvStream extends InputStream {
+
+        private final Iterator<MySqlEmployee> employees;
+        private final StringBuilder line = new StringBuilder(128);
+        private byte[] buffer = new byte[0];
+        private int position;
+        private long rows;
+        private RuntimeException failure;
+
+        EmployeeCsvStream(Iterator<MySqlEmployee> employees) {
+            this.employees = employees;
+        }
+
+        @Override
+        public int read() {
+            if (!fill()) {
+                return -1;
+            }
+            return buffer[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.length - position);
+            System.arraycopy(buffer, position, target, offset, count);
+            position += count;
+            return count;
+        }
+
+        /**
+         * Genera la siguiente línea si la actual ya se ha leído entera.
+         *
+         * @return - false si no quedan empleados
+         */
+        private boolean fill() {
+            if (position < buffer.length) {
+                return true;
+            }
+            if (failure != null) {
+                return false;
+            }
+            MySqlEmployee employee;
+            try {
+                if (!employees.hasNext()) {
+                    return false;
+                }
+                employee = employees.next();
+            } catch (RuntimeException e) {
+                failure = e;
+                return false;
+            }
+            rows++;
+            line.setLength(0);
+            line.append(employee.getEmployeeId()).append(',');
+            appendQuoted(employee.getFirstName()).append(',');
+            appendQuoted(employee.getLastName()).append(',');
+            appendQuoted(employee.getGender()).append(',');
+            line.append(employee.getHireDate()).append(',');
+            line.append(employee.getBirthDate()).append('\n');
+            buffer = line.toString().getBytes(StandardCharsets.UTF_8);
+            position = 0;
+            return true;
+        }
+
+        long getRows() {
+            return rows;
+        }
+
+        /**
+         * @return - Excepción del iterador que cortó el stream, o null si se leyeron todos los empleados
+         */
+        RuntimeException getFailure() {
+            return failure;
+        }
+
+        private StringBuilder appendQuoted(String value) {
+            line.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    line.append('\\').append(c);
+                } else if (c == '\n') {
+                    line.append("\\n");
+                } else {
+                    line.append(c);
+                }
+            }
+            return line.append('"');
+        }
+    }
+}
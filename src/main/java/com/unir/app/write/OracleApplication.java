@@ -1,6 +1,9 @@
 package com.unir.app.write;
 
+import com.unir.config.AdaptiveBatchController;
+import com.unir.config.AdaptiveBatchSettings;
 import com.unir.config.OracleDatabaseConnector;
+import com.unir.config.StatementCache;
 import com.unir.model.OracleCountry;
 import lombok.extern.slf4j.Slf4j;
 
@@ -8,6 +11,11 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * La version para MySQL seria muy similar a esta, cambiando únicamente el Driver.
@@ -20,19 +28,203 @@ public class OracleApplication {
     public static void main(String[] args) {
 
         //Creamos conexion. No es necesario indicar puerto en host si usamos el default, 1521
-        //Try-with-resources. Se cierra la conexión automáticamente al salir del bloque try
-        try(Connection connection = new OracleDatabaseConnector("localhost", SERIVCE_NAME).getConnection()) {
+        //Try-with-resources. Al salir del bloque try la conexión se cierra y se devuelve al pool
+        try(Connection connection = OracleDatabaseConnector.pool("localhost", SERIVCE_NAME).getConnection()) {
 
             log.info("Conexión establecida con la base de datos Oracle");
             OracleCountry spain = new OracleCountry("ES", 1, "Spain");
             upsert(connection, spain);
 
+            // Comparamos las dos estrategias de carga masiva con el mismo conjunto de países
+            List<OracleCountry> countries = Arrays.asList(
+                    new OracleCountry("ES", 1, "Spain"),
+                    new OracleCountry("PT", 1, "Portugal"),
+                    new OracleCountry("FR", 1, "France"),
+                    new OracleCountry("IT", 1, "Italy"),
+                    new OracleCountry("DE", 1, "Germany"));
+            int batchSize = Integer.getInteger("upsert.batchSize", 100);
+            for (UpsertStrategy strategy : UpsertStrategy.values()) {
+                connection.setAutoCommit(false);
+                try {
+                    UpsertResult result = bulkUpsert(connection, countries, strategy, batchSize);
+                    connection.commit();
+                    log.info("Carga de países finalizada. {}", result);
+                } catch (SQLException | RuntimeException e) {
+                    // Sin rollback, el setAutoCommit(true) confirmaría los lotes ya enviados
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            }
+
+            // MERGE con el tamaño de lote ajustado según la latencia de cada lote
+            if (Boolean.getBoolean("upsert.adaptiveBatch")) {
+                AdaptiveBatchController batchController = new AdaptiveBatchController(
+                        AdaptiveBatchSettings.fromSystemProperties("upsert.adaptiveBatch"));
+                connection.setAutoCommit(false);
+                try {
+                    UpsertResult result = bulkUpsert(connection, countries, batchController);
+                    connection.commit();
+                    log.info("Carga de países finalizada. {}. Lotes: {}", result, batchController);
+                } catch (SQLException | RuntimeException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            }
+
         } catch (Exception e) {
             log.error("Error al tratar con la base de datos", e);
         }
     }
 
 
+    /**
+     * Estrategias de carga masiva de países.
+     * SELECT_THEN_WRITE: un SELECT y un INSERT o UPDATE por país. Dos viajes a la base de datos por país.
+     * MERGE: una única sentencia MERGE enviada por lotes (array binding). Un viaje por lote.
+     */
+    public enum UpsertStrategy {
+        SELECT_THEN_WRITE,
+        MERGE
+    }
+
+    /**
+     * Inserta o actualiza una colección de países con la estrategia indicada.
+     * No hace commit.
+     *
+     * @param connection - Conexión a la base de datos.
+     * @param countries - Países a insertar o actualizar.
+     * @param strategy - Estrategia de carga.
+     * @param batchSize - Países por lote. Solo se usa con MERGE.
+     * @return - Resultado de la carga, con el número de viajes a la base de datos.
+     * @throws SQLException - Si ocurre algún error al ejecutar la consulta.
+     */
+    public static UpsertResult bulkUpsert(Connection connection, Collection<OracleCountry> countries,
+                                          UpsertStrategy strategy, int batchSize) throws SQLException {
+        return bulkUpsert(connection, countries.iterator(), strategy, batchSize);
+    }
+
+    /**
+     * Igual que {@link #bulkUpsert(Connection, Collection, UpsertStrategy, int)} pero leyendo los países de un Stream,
+     * sin necesidad de tenerlos todos en memoria.
+     */
+    public static UpsertResult bulkUpsert(Connection connection, Stream<OracleCountry> countries,
+                                          UpsertStrategy strategy, int batchSize) throws SQLException {
+        return bulkUpsert(connection, countries.iterator(), strategy, batchSize);
+    }
+
+    /**
+     * Inserta o actualiza los países con MERGE, con el tamaño de lote que indique el controlador.
+     * El controlador mide cada lote y puede reutilizarse en cargas sucesivas sobre la misma conexión
+     * para que parta del tamaño aprendido. No hace commit.
+     *
+     * @param connection - Conexión a la base de datos.
+     * @param countries - Países a insertar o actualizar.
+     * @param batchController - Controlador del tamaño de lote.
+     * @return - Resultado de la carga, con el número de viajes a la base de datos.
+     * @throws SQLException - Si ocurre algún error al ejecutar la consulta.
+     */
+    public static UpsertResult bulkUpsert(Connection connection, Collection<OracleCountry> countries,
+                                          AdaptiveBatchController batchController) throws SQLException {
+        return mergeUpsert(connection, countries.iterator(), batchController.getBatchSize(), batchController);
+    }
+
+    /**
+     * Igual que {@link #bulkUpsert(Connection, Collection, AdaptiveBatchController)} pero leyendo los países de un Stream.
+     */
+    public static UpsertResult bulkUpsert(Connection connection, Stream<OracleCountry> countries,
+                                          AdaptiveBatchController batchController) throws SQLException {
+        return mergeUpsert(connection, countries.iterator(), batchController.getBatchSize(), batchController);
+    }
+
+    private static UpsertResult bulkUpsert(Connection connection, Iterator<OracleCountry> countries,
+                                           UpsertStrategy strategy, int batchSize) throws SQLException {
+        return strategy == UpsertStrategy.MERGE
+                ? mergeUpsert(connection, countries, batchSize, null)
+                : selectThenWriteUpsert(connection, countries);
+    }
+
+    /**
+     * Estrategia original: llama a {@link #upsert(Connection, OracleCountry)} para cada país.
+     */
+    private static UpsertResult selectThenWriteUpsert(Connection connection, Iterator<OracleCountry> countries) throws SQLException {
+        long start = System.nanoTime();
+        long rows = 0;
+        long inserted = 0;
+        while (countries.hasNext()) {
+            if (upsert(connection, countries.next())) {
+                inserted++;
+            }
+            rows++;
+        }
+        // Cada país cuesta un SELECT y un INSERT o UPDATE
+        return new UpsertResult(UpsertStrategy.SELECT_THEN_WRITE.name(), rows, inserted, rows - inserted, 0,
+                rows * 2, System.nanoTime() - start);
+    }
+
+    /**
+     * Inserta o actualiza los países con MERGE. La sentencia se prepara una sola vez y los valores
+     * se envían por lotes, de forma que el driver los manda como arrays en un único viaje por lote.
+     * Oracle no indica en un MERGE por lotes cuántas filas se insertaron y cuántas se actualizaron.
+     * Los CAST fijan el tipo de los parámetros para que la sentencia tenga siempre el mismo plan.
+     * Con un controlador, cada lote se mide y el tamaño del siguiente es el que indique; si no, se usa batchSize.
+     */
+    private static UpsertResult mergeUpsert(Connection connection, Iterator<OracleCountry> countries, int batchSize,
+                                            AdaptiveBatchController batchController) throws SQLException {
+
+        String mergeSql = "MERGE INTO countries c\n" +
+                "USING (SELECT CAST(? AS CHAR(2)) AS country_id, CAST(? AS VARCHAR2(60)) AS country_name,\n" +
+                "              CAST(? AS NUMBER) AS region_id FROM dual) s\n" +
+                "ON (c.country_id = s.country_id)\n" +
+                "WHEN MATCHED THEN UPDATE SET c.country_name = s.country_name, c.region_id = s.region_id\n" +
+                "WHEN NOT MATCHED THEN INSERT (country_id, country_name, region_id)\n" +
+                "VALUES (s.country_id, s.country_name, s.region_id)";
+
+        long start = System.nanoTime();
+        long rows = 0;
+        long roundTrips = 0;
+        int pending = 0;
+
+        PreparedStatement mergeStatement = StatementCache.prepare(connection, mergeSql);
+        while (countries.hasNext()) {
+            OracleCountry country = countries.next();
+            mergeStatement.setString(1, country.getCountryId()); // Código del país
+            mergeStatement.setString(2, country.getCountryName()); // Nombre del país
+            mergeStatement.setInt(3, country.getRegionId()); // Código de región
+            mergeStatement.addBatch();
+            rows++;
+
+            // Ejecutamos el batch cada lote de registros
+            if (++pending >= batchSize) {
+                executeMergeBatch(mergeStatement, pending, batchController);
+                roundTrips++;
+                pending = 0;
+                if (batchController != null) {
+                    batchSize = batchController.getBatchSize();
+                }
+            }
+        }
+
+        // Ejecutamos el batch final
+        if (pending > 0) {
+            executeMergeBatch(mergeStatement, pending, batchController);
+            roundTrips++;
+        }
+        return new UpsertResult(UpsertStrategy.MERGE.name(), rows, -1, -1, 0, roundTrips, System.nanoTime() - start);
+    }
+
+    private static void executeMergeBatch(PreparedStatement mergeStatement, int rows,
+                                          AdaptiveBatchController batchController) throws SQLException {
+        long start = System.nanoTime();
+        mergeStatement.executeBatch();
+        if (batchController != null) {
+            batchController.record(rows, System.nanoTime() - start);
+        }
+    }
+
     /**
      * Función que nos permite insertar o actualizar un país en la base de datos.
      * Si el país ya existe, se actualiza. Si no existe, se inserta.
@@ -43,35 +235,41 @@ public class OracleApplication {
      *
      * @param connection - Conexión a la base de datos.
      * @param country - País a insertar o actualizar.
+     * @return - true si el país se ha insertado, false si se ha actualizado.
      * @throws SQLException - Si ocurre algún error al ejecutar la consulta.
      */
-    public static void upsert(Connection connection, OracleCountry country) throws SQLException {
+    public static boolean upsert(Connection connection, OracleCountry country) throws SQLException {
 
         String selectSql = "SELECT COUNT(*) FROM countries WHERE country_id = ?";
         String updateSql = "UPDATE countries SET country_name = ?, region_id = ? WHERE country_id = ?";
         String insertSql = "INSERT INTO countries (country_id, country_name, region_id) VALUES (?, ?, ?)";
 
-        PreparedStatement selectStatement = connection.prepareStatement(selectSql);
+        // Las sentencias se reutilizan de la caché de la conexión: no se vuelven a analizar ni se cierran
+        PreparedStatement selectStatement = StatementCache.prepare(connection, selectSql);
         selectStatement.setString(1, country.getCountryId()); // Código del país
-        ResultSet resultSet = selectStatement.executeQuery();
-        resultSet.next(); // Nos movemos a la primera fila
-        int rowCount = resultSet.getInt(1);
+        int rowCount;
+        try (ResultSet resultSet = selectStatement.executeQuery()) {
+            resultSet.next(); // Nos movemos a la primera fila
+            rowCount = resultSet.getInt(1);
+        }
 
         if(rowCount > 0) {
-            PreparedStatement updateStatement = connection.prepareStatement(updateSql);
+            PreparedStatement updateStatement = StatementCache.prepare(connection, updateSql);
             updateStatement.setString(1, country.getCountryName()); // Nuevo nombre del país
             updateStatement.setInt(2, country.getRegionId()); // Nuevo codigo de región
             updateStatement.setString(3, country.getCountryId()); // Código del país
             int filasActualizadas = updateStatement.executeUpdate();
             log.debug("Filas Actualizadas: {}", filasActualizadas);
+            return false;
 
         } else {
-            PreparedStatement insertStatement = connection.prepareStatement(insertSql);
+            PreparedStatement insertStatement = StatementCache.prepare(connection, insertSql);
             insertStatement.setString(1, country.getCountryId()); // Nuevo código del país.
             insertStatement.setString(2, country.getCountryName()); // Nuevo nombre del país
             insertStatement.setInt(3, country.getRegionId()); // Código de región
             int filasInsertadas = insertStatement.executeUpdate();
             log.debug("Filas Insertadas: {}", filasInsertadas);
+            return true;
         }
     }
 }
@@ -0,0 +1,262 @@
+package com.unir.app.write;
+
+import com.unir.config.TableChangeNotifier;
+import com.unir.model.MySqlEmployee;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Carga de empleados en streaming con memoria acotada.
+ *
+ * El hilo que llama a {@link #run(Iterator)} lee los empleados y los reparte en bloques entre varios escritores
+ * a través de colas acotadas. Si un escritor va más lento que la lectura, su cola se llena y la lectura espera
+ * (backpressure), así que la memoria no crece con el tamaño del fichero.
+ *
+ * Cada escritor usa su propia conexión del pool y envía los lotes según se llenan. Los commits se retrasan
+ * hasta que todos los escritores han terminado, para que una carga fallida no quede a medias.
+ * Los empleados se reparten por emp_no, de modo que todas las filas de un mismo empleado las escribe siempre
+ * el mismo escritor y en el orden del fichero.
+ */
+@Slf4j
+public class StreamingIntakePipeline {
+
+    // Marca de fin de datos para los escritores
+    private static final List<MySqlEmployee> END = Collections.emptyList();
+
+    // Empleados por bloque enviado a un escritor. Agrupar reduce la contención en las colas
+    private static final int CHUNK_SIZE = 256;
+
+    private final DataSource dataSource;
+    private final EmployeeUpsertEngine engine;
+    private final int writers;
+    private final int queueCapacity;
+
+    // Opcional: recibe el tiempo que tarda cada escritor en procesar cada bloque
+    @Setter
+    private ChunkListener chunkListener;
+
+    /**
+     * @param dataSource - Origen de las conexiones de los escritores, normalmente un pool
+     * @param engine - Motor de upsert que usa cada escritor
+     * @param writers - Número de escritores en paralelo
+     * @param queueCapacity - Bloques que caben en la cola de cada escritor
+     */
+    public StreamingIntakePipeline(DataSource dataSource, EmployeeUpsertEngine engine, int writers, int queueCapacity) {
+        if (writers < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Se necesita al menos un escritor y una cola no vacía");
+        }
+        this.dataSource = dataSource;
+        this.engine = engine;
+        this.writers = writers;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Lee todos los empleados y los escribe en la base de datos.
+     * Los escritores no hacen commit hasta que todos han enviado sus últimos lotes sin error. Si un escritor
+     * o la lectura fallan, se detiene la lectura, todos los escritores deshacen sus cambios y se lanza el error,
+     * así que la tabla queda como estaba. La única excepción es un fallo en el propio commit: cada escritor
+     * confirma su conexión por separado, y si uno falla al confirmar, los que ya lo han hecho no se deshacen.
+     * En ese caso la carga queda parcial y hay que repetirla; como es un upsert, repetirla es seguro.
+     *
+     * @param employees - Empleados, normalmente leídos en streaming de un fichero CSV
+     * @return - Resultado agregado de todos los escritores
+     * @throws SQLException - Error de alguno de los escritores
+     */
+    public UpsertResult run(Iterator<MySqlEmployee> employees) throws SQLException {
+        long start = System.nanoTime();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<BlockingQueue<List<MySqlEmployee>>> queues = new ArrayList<>(writers);
+        List<Future<UpsertResult>> results = new ArrayList<>(writers);
+        CountDownLatch flushed = new CountDownLatch(writers);
+        ExecutorService executor = Executors.newFixedThreadPool(writers, new WriterThreadFactory());
+
+        try {
+            for (int i = 0; i < writers; i++) {
+                BlockingQueue<List<MySqlEmployee>> queue = new ArrayBlockingQueue<>(queueCapacity);
+                queues.add(queue);
+                results.add(executor.submit(() -> write(queue, failure, flushed)));
+            }
+
+            // Leemos y repartimos por emp_no. Cada escritor tiene un bloque en construcción
+            List<List<MySqlEmployee>> chunks = new ArrayList<>(writers);
+            for (int i = 0; i < writers; i++) {
+                chunks.add(new ArrayList<>(CHUNK_SIZE));
+            }
+            while (failure.get() == null && employees.hasNext()) {
+                MySqlEmployee employee = employees.next();
+                int writer = Math.floorMod(employee.getEmployeeId(), writers);
+                List<MySqlEmployee> chunk = chunks.get(writer);
+                chunk.add(employee);
+                if (chunk.size() == CHUNK_SIZE) {
+                    put(queues.get(writer), chunk, failure);
+                    chunks.set(writer, new ArrayList<>(CHUNK_SIZE));
+                }
+            }
+            for (int i = 0; i < writers; i++) {
+                if (!chunks.get(i).isEmpty()) {
+                    put(queues.get(i), chunks.get(i), failure);
+                }
+                put(queues.get(i), END, failure);
+            }
+        } catch (RuntimeException e) {
+            // Error de lectura: avisamos a los escritores para que deshagan sus cambios
+            failure.compareAndSet(null, e);
+        } finally {
+            executor.shutdown();
+        }
+
+        return collect(results, failure, System.nanoTime() - start);
+    }
+
+    /**
+     * Bucle de un escritor: consume bloques de su cola hasta la marca de fin. Después espera a que todos
+     * los escritores hayan enviado sus lotes y solo confirma si ninguno ha fallado.
+     *
+     * @param flushed - Escritores que aún no han terminado de enviar sus lotes. Cada escritor lo descuenta
+     *                una sola vez, haya ido bien o no, para que los demás no esperen indefinidamente
+     */
+    private UpsertResult write(BlockingQueue<List<MySqlEmployee>> queue, AtomicReference<Throwable> failure,
+                               CountDownLatch flushed) throws Exception {
+        boolean arrived = false;
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (EmployeeUpsertWriter writer = engine.open(connection)) {
+                List<MySqlEmployee> chunk;
+                while ((chunk = queue.poll(100, TimeUnit.MILLISECONDS)) != END && failure.get() == null) {
+                    if (chunk != null) {
+                        long chunkStart = System.nanoTime();
+                        for (MySqlEmployee employee : chunk) {
+                            writer.add(employee);
+                        }
+                        if (chunkListener != null) {
+                            chunkListener.chunkWritten(chunk.size(), System.nanoTime() - chunkStart);
+                        }
+                    }
+                }
+                if (failure.get() == null) {
+                    writer.flush();
+                }
+
+                arrived = true;
+                flushed.countDown();
+                flushed.await();
+
+                // Si otro escritor o la lectura han fallado, deshacemos nuestros cambios
+                if (failure.get() != null) {
+                    connection.rollback();
+                    return writer.getResult();
+                }
+                connection.commit();
+                TableChangeNotifier.tablesChanged("employees");
+                log.debug("Escritor {} finalizado. {}", Thread.currentThread().getName(), writer.getResult());
+                return writer.getResult();
+            } catch (Exception e) {
+                failure.compareAndSet(null, e);
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } finally {
+            if (!arrived) {
+                flushed.countDown();
+            }
+        }
+    }
+
+    /**
+     * Encola un bloque esperando mientras la cola esté llena, salvo que algún escritor haya fallado.
+     */
+    private static void put(BlockingQueue<List<MySqlEmployee>> queue, List<MySqlEmployee> chunk,
+                            AtomicReference<Throwable> failure) {
+        try {
+            while (failure.get() == null && !queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+                // La cola está llena: esperamos a que el escritor avance
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Carga interrumpida", e);
+        }
+    }
+
+    /**
+     * Espera a todos los escritores y suma sus resultados.
+     */
+    private UpsertResult collect(List<Future<UpsertResult>> results, AtomicReference<Throwable> failure,
+                                 long elapsedNanos) throws SQLException {
+        long rows = 0;
+        long inserted = 0;
+        long updated = 0;
+        long skipped = 0;
+        long roundTrips = 0;
+        for (Future<UpsertResult> future : results) {
+            try {
+                UpsertResult result = future.get();
+                rows += result.getRows();
+                inserted = result.getInserted() < 0 || inserted < 0 ? -1 : inserted + result.getInserted();
+                updated = result.getUpdated() < 0 || updated < 0 ? -1 : updated + result.getUpdated();
+                skipped += result.getSkipped();
+                roundTrips += result.getRoundTrips();
+            } catch (ExecutionException e) {
+                failure.compareAndSet(null, e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure.compareAndSet(null, e);
+            }
+        }
+
+        Throwable error = failure.get();
+        if (error instanceof SQLException) {
+            throw (SQLException) error;
+        } else if (error != null) {
+            throw new SQLException("Error en la carga en streaming", error);
+        }
+        return new UpsertResult(engine.getStrategy().name() + " x" + writers,
+                rows, inserted, updated, skipped, roundTrips, elapsedNanos);
+    }
+
+    /**
+     * Aviso de cada bloque procesado por un escritor, por ejemplo para medir latencias.
+     * Se llama desde los hilos de los escritores, a la vez desde varios, así que tiene que ser seguro entre hilos.
+     */
+    public interface ChunkListener {
+
+        /**
+         * @param rows - Empleados del bloque
+         * @param elapsedNanos - Tiempo en añadirlos al escritor, incluidos los lotes que se hayan enviado por el camino
+         */
+        void chunkWritten(int rows, long elapsedNanos);
+    }
+
+    /**
+     * Da nombre a los hilos de los escritores para identificarlos en los logs.
+     */
+    private static class WriterThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, "intake-writer-" + counter.incrementAndGet());
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.unir.app.write;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Resultado de una carga: filas procesadas, inserciones, actualizaciones, filas sin cambios que no se han enviado,
+ * viajes de ida y vuelta a la base de datos y tiempo empleado.
+ * Algunas estrategias no distinguen entre inserciones y actualizaciones; en ese caso ambos valores son -1.
+ * Solo la estrategia DELTA omite filas; en las demás skipped es 0.
+ */
+@AllArgsConstructor
+@Getter
+public class UpsertResult {
+    private String strategy;
+    private long rows;
+    private long inserted;
+    private long updated;
+    private long skipped;
+    private long roundTrips;
+    private long elapsedNanos;
+
+    /**
+     * @return - Filas procesadas por segundo
+     */
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rows * 1_000_000_000d / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d filas (%d insertadas, %d actualizadas, %d sin cambios) en %d ms, %d viajes a la base de datos, %.0f filas/seg",
+                strategy, rows, inserted, updated, skipped, elapsedNanos / 1_000_000, roundTrips, getRowsPerSecond());
+    }
+}
@@ -0,0 +1,151 @@
+package com.unir.config;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Ajusta el tamaño de lote de una escritura por lotes mientras se ejecuta.
+ *
+ * Después de cada executeBatch se registra con {@link #record(int, long)} cuántas filas tenía el lote y cuánto tardó.
+ * Cada samplesPerStep lotes se mide el rendimiento (filas por segundo) del tamaño actual y se da un paso
+ * (hill climbing): mientras el rendimiento no caiga por debajo del mejor medido desde el último cambio de dirección
+ * se sigue en la misma dirección; si cae, se cambia de dirección y el paso se reduce a la mitad, de forma que
+ * el tamaño se va acercando al mejor valor. Tras varios pasos seguidos que mejoran, el paso vuelve a crecer
+ * para seguir cambios de carga grandes.
+ *
+ * La latencia tiene prioridad sobre el rendimiento: un lote que supera la latencia objetivo reduce el tamaño
+ * en el momento, en proporción al exceso, y el tamaño nunca sube por encima del que, al ritmo medido,
+ * tardaría más que el objetivo; al llegar a ese límite o al máximo se mantiene. El tamaño siempre queda
+ * entre el mínimo y el máximo configurados.
+ *
+ * No es thread-safe: cada escritor, con su conexión, usa su propio controlador.
+ */
+@Slf4j
+public class AdaptiveBatchController {
+
+    // Factores de crecimiento o reducción en cada paso
+    private static final double MAX_STEP = 2.0;
+    private static final double MIN_STEP = 1.05;
+
+    // Pasos seguidos que mejoran el rendimiento antes de volver a ampliar el paso
+    private static final int STEPS_TO_ACCELERATE = 3;
+
+    // Variación de rendimiento que se considera ruido
+    private static final double TOLERANCE = 0.05;
+
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final long targetLatencyNanos;
+    private final int samplesPerStep;
+
+    @Getter
+    private int batchSize;
+    private boolean growing = true;
+    private double step = MAX_STEP;
+    private int improvements;
+    private double previousThroughput;
+    private double bestThroughput;
+
+    // Lotes medidos con el tamaño actual
+    private int samples;
+    private long sampleRows;
+    private long sampleNanos;
+
+    @Getter
+    private long adjustments;
+
+    /**
+     * @param settings - Límites, tamaño inicial y latencia objetivo
+     * @throws IllegalArgumentException - Si la configuración no es válida
+     */
+    public AdaptiveBatchController(AdaptiveBatchSettings settings) {
+        settings.validate();
+        this.minBatchSize = settings.getMinBatchSize();
+        this.maxBatchSize = settings.getMaxBatchSize();
+        this.targetLatencyNanos = settings.getTargetLatencyMs() * 1_000_000;
+        this.samplesPerStep = settings.getSamplesPerStep();
+        this.batchSize = settings.getInitialBatchSize();
+    }
+
+    /**
+     * Registra un lote ejecutado y, si corresponde, ajusta el tamaño de los siguientes.
+     *
+     * @param rows - Filas del lote. Puede ser menor que el tamaño actual si era el último
+     * @param nanos - Tiempo que tardó en ejecutarse
+     */
+    public void record(int rows, long nanos) {
+        if (rows <= 0) {
+            return;
+        }
+        if (nanos > targetLatencyNanos) {
+            // Reducimos al menos un paso, y más si el exceso es mayor
+            double latencyRatio = (double) targetLatencyNanos / nanos;
+            growing = false;
+            resize((int) Math.min(batchSize / step, rows * latencyRatio),
+                    "latencia de " + nanos / 1_000_000 + " ms");
+            previousThroughput = 0;
+            bestThroughput = 0;
+            return;
+        }
+
+        samples++;
+        sampleRows += rows;
+        sampleNanos += nanos;
+        if (samples < samplesPerStep) {
+            return;
+        }
+
+        double throughput = sampleRows * 1e9 / sampleNanos;
+        if (throughput < bestThroughput * (1 - TOLERANCE)) {
+            // Nos hemos pasado del mejor tamaño: volvemos con un paso menor
+            growing = !growing;
+            step = Math.max(MIN_STEP, 1 + (step - 1) / 2);
+            improvements = 0;
+            bestThroughput = throughput;
+        } else if (previousThroughput > 0 && throughput > previousThroughput * (1 + TOLERANCE)) {
+            if (++improvements >= STEPS_TO_ACCELERATE) {
+                step = Math.min(MAX_STEP, 1 + (step - 1) * 2);
+                improvements = 0;
+            }
+        } else {
+            improvements = 0;
+        }
+        previousThroughput = throughput;
+        bestThroughput = Math.max(bestThroughput, throughput);
+
+        int next;
+        if (growing) {
+            // Tamaño con el que, al ritmo medido, un lote tardaría la latencia objetivo
+            long limit = (long) (targetLatencyNanos * (double) sampleRows / sampleNanos);
+            next = (int) Math.min(Math.max(batchSize + 1, Math.round(batchSize * step)), limit);
+        } else {
+            next = (int) Math.min(batchSize - 1, Math.round(batchSize / step));
+        }
+        resize(next, String.format("%.0f filas/s", throughput));
+    }
+
+    private void resize(int next, String reason) {
+        int size = clamp(next);
+        if (size != batchSize) {
+            log.debug("Tamaño de lote {} -> {} ({})", batchSize, size, reason);
+            batchSize = size;
+            adjustments++;
+        } else if (!growing) {
+            // En el mínimo solo se puede probar a crecer. En el límite de latencia o en el máximo nos quedamos
+            growing = true;
+        }
+        samples = 0;
+        sampleRows = 0;
+        sampleNanos = 0;
+    }
+
+    private int clamp(int size) {
+        return Math.max(minBatchSize, Math.min(maxBatchSize, size));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("tamaño de lote=%d (%d-%d), ajustes=%d, latencia objetivo=%d ms",
+                batchSize, minBatchSize, maxBatchSize, adjustments, targetLatencyNanos / 1_000_000);
+    }
+}
@@ -0,0 +1,63 @@
+package com.unir.config;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Parámetros de {@link AdaptiveBatchController}.
+ * Se pueden sobrescribir con propiedades de sistema, por ejemplo -Dintake.adaptiveBatch.targetLatencyMs=100
+ */
+@Getter
+@Setter
+public class AdaptiveBatchSettings {
+
+    // Tamaño mínimo de lote
+    private int minBatchSize = 10;
+
+    // Tamaño máximo de lote
+    private int maxBatchSize = 10_000;
+
+    // Tamaño del primer lote
+    private int initialBatchSize = 500;
+
+    // Latencia máxima de un lote. Si un lote tarda más, el siguiente se reduce
+    private long targetLatencyMs = 250;
+
+    // Lotes que se miden con cada tamaño antes de decidir el siguiente
+    private int samplesPerStep = 3;
+
+    /**
+     * Comprueba que los límites sean coherentes.
+     *
+     * @throws IllegalArgumentException - Si algún valor no es válido
+     */
+    public void validate() {
+        if (minBatchSize < 1 || maxBatchSize < minBatchSize) {
+            throw new IllegalArgumentException("Límites de tamaño de lote incorrectos: " + minBatchSize + " - " + maxBatchSize);
+        }
+        if (initialBatchSize < minBatchSize || initialBatchSize > maxBatchSize) {
+            throw new IllegalArgumentException("El tamaño inicial de lote " + initialBatchSize
+                    + " está fuera de los límites " + minBatchSize + " - " + maxBatchSize);
+        }
+        if (targetLatencyMs < 1 || samplesPerStep < 1) {
+            throw new IllegalArgumentException("La latencia objetivo y los lotes por paso deben ser mayores que 0");
+        }
+    }
+
+    /**
+     * Crea la configuración a partir de las propiedades de sistema con el prefijo indicado.
+     * Las propiedades que no existan mantienen su valor por defecto.
+     *
+     * @param prefix - Prefijo de las propiedades, por ejemplo "intake.adaptiveBatch"
+     * @return - Configuración del controlador
+     */
+    public static AdaptiveBatchSettings fromSystemProperties(String prefix) {
+        AdaptiveBatchSettings settings = new AdaptiveBatchSettings();
+        settings.setMinBatchSize(Integer.getInteger(prefix + ".minBatchSize", settings.getMinBatchSize()));
+        settings.setMaxBatchSize(Integer.getInteger(prefix + ".maxBatchSize", settings.getMaxBatchSize()));
+        settings.setInitialBatchSize(Integer.getInteger(prefix + ".initialBatchSize", settings.getInitialBatchSize()));
+        settings.setTargetLatencyMs(Long.getLong(prefix + ".targetLatencyMs", settings.getTargetLatencyMs()));
+        settings.setSamplesPerStep(Integer.getInteger(prefix + ".samplesPerStep", settings.getSamplesPerStep()));
+        return settings;
+    }
+}
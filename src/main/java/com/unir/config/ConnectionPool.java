@@ -0,0 +1,117 @@
+package com.unir.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pool de conexiones compartido, basado en HikariCP.
+ * Abrir una conexión física supone un handshake TCP y de autenticación completo,
+ * por lo que las aplicaciones piden conexiones prestadas al pool y las devuelven al cerrarlas.
+ *
+ * Los pools se registran por nombre, de forma que todos los conectores que apuntan a la misma
+ * base de datos comparten el mismo pool. Se cierran automáticamente al terminar la JVM.
+ */
+@Slf4j
+public class ConnectionPool implements AutoCloseable {
+
+    private static final Map<String, ConnectionPool> POOLS = new ConcurrentHashMap<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(ConnectionPool::closeAll, "connection-pool-shutdown"));
+    }
+
+    @Getter
+    private final String name;
+
+    private final HikariDataSource dataSource;
+    private final PoolMetrics metrics = new PoolMetrics();
+
+    private ConnectionPool(String name, String url, String user, String password, PoolSettings settings) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(name);
+        if (settings.isInstrumented()) {
+            // Las conexiones físicas se abren a través del DataSource instrumentado y el pool las envuelve a su vez
+            config.setDataSource(new InstrumentedDataSource(url, user, password));
+        } else {
+            config.setJdbcUrl(url);
+            config.setUsername(user);
+            config.setPassword(password);
+        }
+        config.setMinimumIdle(settings.getMinIdle());
+        config.setMaximumPoolSize(settings.getMaxSize());
+        config.setIdleTimeout(settings.getIdleTimeoutMs());
+        config.setMaxLifetime(settings.getMaxLifetimeMs());
+        config.setConnectionTimeout(settings.getConnectionTimeoutMs());
+        config.setValidationTimeout(settings.getValidationTimeoutMs());
+        config.setLeakDetectionThreshold(settings.getLeakDetectionThresholdMs());
+        config.setMetricsTrackerFactory(metrics);
+
+        // No abrimos conexiones hasta que se pidan, para no fallar al construir el pool si la base de datos no está disponible
+        config.setInitializationFailTimeout(-1);
+        this.name = name;
+        this.dataSource = new HikariDataSource(config);
+        log.debug("Pool de conexiones {} creado", name);
+    }
+
+    /**
+     * Devuelve el pool registrado con el nombre indicado, creándolo si no existe.
+     *
+     * @param name - Nombre del pool. Los conectores usan la URL de la base de datos
+     * @param url - URL JDBC de la base de datos
+     * @param user - Usuario
+     * @param password - Contraseña
+     * @param settings - Configuración del pool, solo se usa si el pool no existía
+     * @return - Pool de conexiones compartido
+     */
+    public static ConnectionPool shared(String name, String url, String user, String password, PoolSettings settings) {
+        return POOLS.computeIfAbsent(name, key -> new ConnectionPool(key, url, user, password, settings));
+    }
+
+    /**
+     * Cierra todos los pools registrados.
+     */
+    public static void closeAll() {
+        POOLS.values().forEach(ConnectionPool::close);
+    }
+
+    /**
+     * Pide una conexión prestada al pool. La conexión se valida antes de entregarla.
+     * Al cerrarla (por ejemplo con try-with-resources) se devuelve al pool.
+     *
+     * @return - Conexión prestada
+     * @throws SQLException - Si no se obtiene una conexión en el tiempo configurado
+     */
+    public Connection getConnection() throws SQLException {
+        return dataSource.getConnection();
+    }
+
+    /**
+     * @return - DataSource del pool, para quien necesite la interfaz estándar
+     */
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * @return - Estadísticas actuales del pool: conexiones activas y ociosas, tiempos de espera, etc.
+     */
+    public PoolStatistics getStatistics() {
+        return metrics.snapshot(dataSource.getHikariPoolMXBean());
+    }
+
+    @Override
+    public void close() {
+        if (POOLS.remove(name, this) && !dataSource.isClosed()) {
+            log.debug("Cerrando pool de conexiones {}: {}", name, getStatistics());
+            dataSource.close();
+        }
+    }
+}
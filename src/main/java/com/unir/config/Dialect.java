@@ -0,0 +1,107 @@
+package com.unir.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Particularidades de cada base de datos que afectan al rendimiento.
+ *
+ * El fetch size de streaming indica cuántas filas pide el driver al servidor en cada viaje al recorrer un ResultSet:
+ * - MySQL: Connector/J carga por defecto el resultado entero en memoria. Con Integer.MIN_VALUE envía las filas
+ *   una a una en streaming, sin cargarlas todas.
+ * - Oracle: por defecto solo trae 10 filas por viaje, que es muy poco para lecturas grandes.
+ * Se puede cambiar con las propiedades de sistema mysql.fetchSize, oracle.fetchSize y h2.fetchSize.
+ *
+ * Cada base de datos tiene además su propia función para calcular un hash de una fila en el servidor,
+ * que sirve para comparar tablas por bloques sin traer las filas.
+ */
+public enum Dialect {
+
+    MYSQL("mysql", Integer.MIN_VALUE),
+    ORACLE("oracle", 1000),
+    H2("h2", 1000);
+
+    private final String prefix;
+    private final int defaultFetchSize;
+
+    Dialect(String prefix, int defaultFetchSize) {
+        this.prefix = prefix;
+        this.defaultFetchSize = defaultFetchSize;
+    }
+
+    /**
+     * @return - Fetch size para recorrer resultados grandes en streaming
+     */
+    public int getStreamingFetchSize() {
+        return Integer.getInteger(prefix + ".fetchSize", defaultFetchSize);
+    }
+
+    /**
+     * Expresión SQL con un hash de 32 bits sin signo de varias columnas, calculado en el servidor.
+     * Con MySQL es CRC32; con Oracle y H2, ORA_HASH. Las columnas no deben ser NULL.
+     *
+     * 32 bits no bastan para comparar bloques grandes: la suma de los hashes de un bloque puede coincidir
+     * por casualidad o porque dos cambios se compensen. Para eso se combina con {@link #secondRowHash(String...)}.
+     *
+     * @param columns - Columnas o expresiones de la fila
+     * @return - Expresión SQL
+     */
+    public String rowHash(String... columns) {
+        if (this == ORACLE) {
+            return "ORA_HASH(" + String.join(" || '|' || ", columns) + ")";
+        }
+        String concat = concat(columns);
+        return this == MYSQL ? "CRC32(" + concat + ")" : "ORA_HASH(" + concat + ")";
+    }
+
+    /**
+     * Otro hash de 32 bits sin signo de las mismas columnas, independiente del de {@link #rowHash(String...)},
+     * para formar entre los dos un hash de 64 bits. Con MySQL son los primeros 32 bits del MD5, porque CRC32
+     * con otro prefijo no sería independiente; con Oracle y H2, ORA_HASH con otra semilla.
+     *
+     * @param columns - Columnas o expresiones de la fila
+     * @return - Expresión SQL
+     */
+    public String secondRowHash(String... columns) {
+        if (this == ORACLE) {
+            return "ORA_HASH(" + String.join(" || '|' || ", columns) + ", 4294967295, 1)";
+        }
+        String concat = concat(columns);
+        return this == MYSQL ? "CONV(LEFT(MD5(" + concat + "), 8), 16, 10)" : "ORA_HASH(" + concat + ", 4294967295, 1)";
+    }
+
+    private static String concat(String... columns) {
+        return "CONCAT_WS('|', " + String.join(", ", columns) + ")";
+    }
+
+    /**
+     * Indica si un error se debe a que la tabla consultada no existe, para distinguirlo de errores de permisos
+     * o de conexión. MySQL y H2 usan el SQLState estándar 42S02; Oracle devuelve 42000 con el código ORA-00942.
+     *
+     * @param e - Error de una consulta sobre la tabla
+     * @return - true si la tabla no existe
+     */
+    public boolean isMissingTable(SQLException e) {
+        if (this == ORACLE) {
+            return e.getErrorCode() == 942;
+        }
+        return "42S02".equals(e.getSQLState());
+    }
+
+    /**
+     * Identifica la base de datos de una conexión.
+     *
+     * @param connection - Conexión
+     * @return - Dialecto de la base de datos
+     * @throws SQLException - Error al leer los metadatos o base de datos no soportada
+     */
+    public static Dialect of(Connection connection) throws SQLException {
+        String product = connection.getMetaData().getDatabaseProductName().toLowerCase();
+        for (Dialect dialect : values()) {
+            if (product.contains(dialect.prefix)) {
+                return dialect;
+            }
+        }
+        throw new SQLException("Base de datos no soportada: " + product);
+    }
+}
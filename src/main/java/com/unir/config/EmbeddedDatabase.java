@@ -0,0 +1,117 @@
+package com.unir.config;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bases de datos H2 en memoria, en modo de compatibilidad con MySQL u Oracle, con el mismo esquema
+ * que usan las aplicaciones. Sirven para pruebas de rendimiento y de carga sin un servidor externo.
+ *
+ * Cada nombre corresponde a una base de datos distinta, que vive mientras dure la JVM.
+ */
+@Slf4j
+public class EmbeddedDatabase {
+
+    private static final String[] MYSQL_SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS employees (emp_no INT NOT NULL PRIMARY KEY, birth_date DATE NOT NULL, "
+                    + "first_name VARCHAR(14) NOT NULL, last_name VARCHAR(16) NOT NULL, gender CHAR(1) NOT NULL, "
+                    + "hire_date DATE NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS departments (dept_no CHAR(4) NOT NULL PRIMARY KEY, dept_name VARCHAR(40) NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS dept_emp (emp_no INT NOT NULL, dept_no CHAR(4) NOT NULL, "
+                    + "from_date DATE NOT NULL, to_date DATE NOT NULL, PRIMARY KEY (emp_no, dept_no))"
+    };
+
+    private static final String[] ORACLE_SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS regions (region_id NUMBER NOT NULL PRIMARY KEY, region_name VARCHAR2(25))",
+            "CREATE TABLE IF NOT EXISTS countries (country_id CHAR(2) NOT NULL PRIMARY KEY, "
+                    + "country_name VARCHAR2(60), region_id NUMBER)"
+    };
+
+    /**
+     * Devuelve el pool de una base de datos en memoria compatible con MySQL, con las tablas
+     * employees, departments y dept_emp. Las tablas se crean vacías la primera vez.
+     *
+     * @param name - Nombre de la base de datos
+     * @return - Pool de conexiones
+     */
+    public static ConnectionPool mysql(String name) {
+        return mysql(name, new PoolSettings());
+    }
+
+    /**
+     * Igual que {@link #mysql(String)}, con la configuración de pool indicada.
+     * La configuración solo se usa la primera vez que se pide la base de datos.
+     *
+     * @param name - Nombre de la base de datos
+     * @param settings - Configuración del pool, por ejemplo con más conexiones para pruebas de carga
+     * @return - Pool de conexiones
+     */
+    public static ConnectionPool mysql(String name, PoolSettings settings) {
+        return open("jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", MYSQL_SCHEMA, settings);
+    }
+
+    /**
+     * Devuelve el pool de una base de datos en memoria compatible con Oracle, con las tablas
+     * regions y countries. Las tablas se crean vacías la primera vez.
+     *
+     * @param name - Nombre de la base de datos
+     * @return - Pool de conexiones
+     */
+    public static ConnectionPool oracle(String name) {
+        return open("jdbc:h2:mem:" + name + ";MODE=Oracle;DB_CLOSE_DELAY=-1", ORACLE_SCHEMA, new PoolSettings());
+    }
+
+    /**
+     * Enrutado entre bases de datos en memoria compatibles con MySQL: un primario y sus réplicas.
+     * No hay replicación entre ellas; cada una tiene sus propios datos, así que quien quiera simularla
+     * tiene que copiar las filas, por ejemplo la de {@link ReplicaLag#HEARTBEAT_TABLE}.
+     * Los pools de las réplicas esperan como mucho un segundo por una conexión.
+     *
+     * @param primary - Nombre de la base de datos del primario
+     * @param replicas - Nombres de las bases de datos de las réplicas
+     * @param settings - Configuración del enrutado
+     * @return - Enrutado nuevo. Hay que cerrarlo al terminar para detener las comprobaciones de las réplicas
+     */
+    public static RoutingDataSource routing(String primary, List<String> replicas, RoutingSettings settings) {
+        PoolSettings replicaPool = new PoolSettings();
+        replicaPool.setConnectionTimeoutMs(1_000);
+        return routing(primary, replicas, replicaPool, settings);
+    }
+
+    /**
+     * Igual que {@link #routing(String, List, RoutingSettings)}, con la configuración de pool de las réplicas indicada.
+     *
+     * @param primary - Nombre de la base de datos del primario
+     * @param replicas - Nombres de las bases de datos de las réplicas
+     * @param replicaPool - Configuración de los pools de las réplicas, solo se usa la primera vez que se pide cada una
+     * @param settings - Configuración del enrutado
+     * @return - Enrutado nuevo. Hay que cerrarlo al terminar para detener las comprobaciones de las réplicas
+     */
+    public static RoutingDataSource routing(String primary, List<String> replicas, PoolSettings replicaPool,
+                                            RoutingSettings settings) {
+        List<ConnectionPool> pools = new ArrayList<>(replicas.size());
+        for (String replica : replicas) {
+            pools.add(mysql(replica, replicaPool));
+        }
+        return new RoutingDataSource(mysql(primary), pools, settings);
+    }
+
+    private static ConnectionPool open(String url, String[] schema, PoolSettings settings) {
+        ConnectionPool pool = ConnectionPool.shared(url, url, "sa", "", settings);
+        try (Connection connection = pool.getConnection();
+             Statement statement = connection.createStatement()) {
+            for (String ddl : schema) {
+                statement.execute(ddl);
+            }
+        } catch (SQLException e) {
+            log.error("Error al crear el esquema de la base de datos embebida", e);
+            throw new RuntimeException(e);
+        }
+        return pool;
+    }
+}
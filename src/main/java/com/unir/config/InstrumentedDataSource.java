@@ -0,0 +1,99 @@
+package com.unir.config;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.logging.Logger;
+
+/**
+ * DataSource que abre conexiones con DriverManager y las envuelve para registrar métricas en {@link JdbcMetrics}.
+ * El pool lo usa como origen de sus conexiones físicas (ver {@link PoolSettings#isInstrumented()}).
+ *
+ * Las conexiones, sentencias y ResultSet devueltos delegan cada método directamente en el objeto del driver,
+ * sin reflexión, así que el JIT puede eliminar la delegación. Solo unos pocos métodos hacen algo más, y es barato:
+ * - Ejecutar una sentencia: se mide con System.nanoTime y se registra en el histograma de su SQL.
+ *   Las sentencias preparadas buscan sus contadores una sola vez, al prepararse.
+ * - ResultSet.next: suma en un contador local del ResultSet, que se pasa a las métricas al cerrarlo o al terminar.
+ * - addBatch y executeBatch: cuentan el tamaño del lote.
+ * - commit y rollback: se mide el commit y se cuentan los rollbacks.
+ * unwrap devuelve el propio envoltorio si implementa la interfaz pedida y, si no, el objeto del driver.
+ */
+public class InstrumentedDataSource implements DataSource {
+
+    private final String url;
+    private final String user;
+    private final String password;
+
+    /**
+     * @param url - URL JDBC de la base de datos
+     * @param user - Usuario
+     * @param password - Contraseña
+     */
+    public InstrumentedDataSource(String url, String user, String password) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        JdbcMetrics.start();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(DriverManager.getConnection(url, user, password));
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(DriverManager.getConnection(url, username, password));
+    }
+
+    /**
+     * Envuelve una conexión ya abierta para registrar sus métricas.
+     *
+     * @param connection - Conexión del driver
+     * @return - Conexión instrumentada
+     */
+    public static Connection wrap(Connection connection) {
+        return new InstrumentedConnection(connection);
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return DriverManager.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        DriverManager.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        DriverManager.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return DriverManager.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("No es un envoltorio de " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
@@ -0,0 +1,338 @@
+package com.unir.config;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+
+/**
+ * Statement que mide cada ejecución y cuenta los lotes, registrándolo en las métricas de su SQL (ver {@link JdbcMetrics}).
+ * Los ResultSet que devuelve son {@link InstrumentedResultSet}, que cuentan las filas leídas.
+ * El resto de métodos delegan directamente en la sentencia del driver.
+ */
+class InstrumentedStatement implements Statement {
+
+    private static final String BATCH = "(lote de sentencias)";
+
+    private final Statement delegate;
+    private long pendingBatch;
+
+    InstrumentedStatement(Statement delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Ejecución con la misma firma que los métodos de JDBC, para poder medirla.
+     */
+    @FunctionalInterface
+    interface Execution<T> {
+        T run() throws SQLException;
+    }
+
+    /**
+     * Ejecuta la sentencia midiendo su latencia y contando el error si falla.
+     */
+    static <T> T timed(SqlMetrics metrics, Execution<T> execution) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return execution.run();
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError();
+            throw e;
+        } finally {
+            metrics.recordExecution(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @return - Métricas de los lotes. Las sentencias preparadas usan las de su SQL
+     */
+    SqlMetrics batchMetrics() {
+        return JdbcMetrics.forSql(BATCH);
+    }
+
+    /**
+     * @return - Métricas con las que se envuelven los ResultSet de getResultSet, o null para no envolverlos
+     */
+    SqlMetrics resultMetrics() {
+        return null;
+    }
+
+    void addedToBatch() {
+        pendingBatch++;
+    }
+
+    static ResultSet wrap(ResultSet resultSet, SqlMetrics metrics) {
+        return resultSet == null || metrics == null ? resultSet : new InstrumentedResultSet(resultSet, metrics);
+    }
+
+    @Override
+    public ResultSet executeQuery(String sql) throws SQLException {
+        SqlMetrics metrics = JdbcMetrics.forSql(sql);
+        return wrap(timed(metrics, () -> delegate.executeQuery(sql)), metrics);
+    }
+
+    @Override
+    public int executeUpdate(String sql) throws SQLException {
+        return timed(JdbcMetrics.forSql(sql), () -> delegate.executeUpdate(sql));
+    }
+
+    @Override
+    public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        return timed(JdbcMetrics.forSql(sql), () -> delegate.executeUpdate(sql, autoGeneratedKeys));
+    }
+
+    @Override
+    public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        return timed(JdbcMetrics.forSql(sql), () -> delegate.executeUpdate(sql, columnIndexes));
+    }
+
+    @Override
+    public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+        return timed(JdbcMetrics.forSql(sql), () -> delegate.executeUpdate(sql, columnNames));
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql) throws SQLException {
+        return timed(JdbcMetrics.forSql(sql), () -> delegate.executeLargeUpdate(sql));
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        return timed(JdbcMetrics.forSql(sql), () -> delegate.executeLargeUpdate(sql, autoGeneratedKeys));
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        return timed(JdbcMetrics.forSql(sql), () -> delegate.executeLargeUpdate(sql, columnIndexes));
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, String[] columnNames) throws SQLException {
+        return timed(JdbcMetrics.forSql(sql), () -> delegate.executeLargeUpdate(sql, columnNames));
+    }
+
+    @Override
+    public boolean execute(String sql) throws SQLException {
+        return timed(JdbcMetrics.forSql(sql), () -> delegate.execute(sql));
+    }
+
+    @Override
+    public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+        return timed(JdbcMetrics.forSql(sql), () -> delegate.execute(sql, autoGeneratedKeys));
+    }
+
+    @Override
+    public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+        return timed(JdbcMetrics.forSql(sql), () -> delegate.execute(sql, columnIndexes));
+    }
+
+    @Override
+    public boolean execute(String sql, String[] columnNames) throws SQLException {
+        return timed(JdbcMetrics.forSql(sql), () -> delegate.execute(sql, columnNames));
+    }
+
+    @Override
+    public void addBatch(String sql) throws SQLException {
+        delegate.addBatch(sql);
+        addedToBatch();
+    }
+
+    @Override
+    public void clearBatch() throws SQLException {
+        delegate.clearBatch();
+        pendingBatch = 0;
+    }
+
+    @Override
+    public int[] executeBatch() throws SQLException {
+        SqlMetrics metrics = batchMetrics();
+        metrics.recordBatch(pendingBatch);
+        pendingBatch = 0;
+        return timed(metrics, delegate::executeBatch);
+    }
+
+    @Override
+    public long[] executeLargeBatch() throws SQLException {
+        SqlMetrics metrics = batchMetrics();
+        metrics.recordBatch(pendingBatch);
+        pendingBatch = 0;
+        return timed(metrics, delegate::executeLargeBatch);
+    }
+
+    @Override
+    public ResultSet getResultSet() throws SQLException {
+        return wrap(delegate.getResultSet(), resultMetrics());
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return iface.isInstance(this) ? iface.cast(this) : delegate.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || delegate.isWrapperFor(iface);
+    }
+
+    @Override
+    public void cancel() throws SQLException {
+        delegate.cancel();
+    }
+
+    @Override
+    public void clearWarnings() throws SQLException {
+        delegate.clearWarnings();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        delegate.close();
+    }
+
+    @Override
+    public void closeOnCompletion() throws SQLException {
+        delegate.closeOnCompletion();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return delegate.getConnection();
+    }
+
+    @Override
+    public int getFetchDirection() throws SQLException {
+        return delegate.getFetchDirection();
+    }
+
+    @Override
+    public int getFetchSize() throws SQLException {
+        return delegate.getFetchSize();
+    }
+
+    @Override
+    public ResultSet getGeneratedKeys() throws SQLException {
+        return delegate.getGeneratedKeys();
+    }
+
+    @Override
+    public long getLargeMaxRows() throws SQLException {
+        return delegate.getLargeMaxRows();
+    }
+
+    @Override
+    public long getLargeUpdateCount() throws SQLException {
+        return delegate.getLargeUpdateCount();
+    }
+
+    @Override
+    public int getMaxFieldSize() throws SQLException {
+        return delegate.getMaxFieldSize();
+    }
+
+    @Override
+    public int getMaxRows() throws SQLException {
+        return delegate.getMaxRows();
+    }
+
+    @Override
+    public boolean getMoreResults() throws SQLException {
+        return delegate.getMoreResults();
+    }
+
+    @Override
+    public boolean getMoreResults(int current) throws SQLException {
+        return delegate.getMoreResults(current);
+    }
+
+    @Override
+    public int getQueryTimeout() throws SQLException {
+        return delegate.getQueryTimeout();
+    }
+
+    @Override
+    public int getResultSetConcurrency() throws SQLException {
+        return delegate.getResultSetConcurrency();
+    }
+
+    @Override
+    public int getResultSetHoldability() throws SQLException {
+        return delegate.getResultSetHoldability();
+    }
+
+    @Override
+    public int getResultSetType() throws SQLException {
+        return delegate.getResultSetType();
+    }
+
+    @Override
+    public int getUpdateCount() throws SQLException {
+        return delegate.getUpdateCount();
+    }
+
+    @Override
+    public SQLWarning getWarnings() throws SQLException {
+        return delegate.getWarnings();
+    }
+
+    @Override
+    public boolean isCloseOnCompletion() throws SQLException {
+        return delegate.isCloseOnCompletion();
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+        return delegate.isClosed();
+    }
+
+    @Override
+    public boolean isPoolable() throws SQLException {
+        return delegate.isPoolable();
+    }
+
+    @Override
+    public void setCursorName(String name) throws SQLException {
+        delegate.setCursorName(name);
+    }
+
+    @Override
+    public void setEscapeProcessing(boolean enable) throws SQLException {
+        delegate.setEscapeProcessing(enable);
+    }
+
+    @Override
+    public void setFetchDirection(int direction) throws SQLException {
+        delegate.setFetchDirection(direction);
+    }
+
+    @Override
+    public void setFetchSize(int rows) throws SQLException {
+        delegate.setFetchSize(rows);
+    }
+
+    @Override
+    public void setLargeMaxRows(long max) throws SQLException {
+        delegate.setLargeMaxRows(max);
+    }
+
+    @Override
+    public void setMaxFieldSize(int max) throws SQLException {
+        delegate.setMaxFieldSize(max);
+    }
+
+    @Override
+    public void setMaxRows(int max) throws SQLException {
+        delegate.setMaxRows(max);
+    }
+
+    @Override
+    public void setPoolable(boolean enable) throws SQLException {
+        delegate.setPoolable(enable);
+    }
+
+    @Override
+    public void setQueryTimeout(int seconds) throws SQLException {
+        delegate.setQueryTimeout(seconds);
+    }
+}
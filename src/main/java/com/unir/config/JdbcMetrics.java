@@ -0,0 +1,162 @@
+package com.unir.config;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas de todas las conexiones instrumentadas con {@link InstrumentedDataSource}:
+ * latencia, errores, filas leídas y lotes de cada sentencia SQL, y tiempo de los commits.
+ *
+ * Se publican por JMX (ver {@link JdbcMetricsMXBean}) y se resumen en el log cada jdbc.metrics.logIntervalSec
+ * segundos (60 por defecto, 0 lo desactiva). Para no crecer sin límite, a partir de jdbc.metrics.maxStatements
+ * sentencias distintas (500 por defecto) las nuevas se acumulan juntas.
+ */
+@Slf4j
+public class JdbcMetrics implements JdbcMetricsMXBean {
+
+    private static final JdbcMetrics INSTANCE = new JdbcMetrics();
+
+    private static final int MAX_STATEMENTS = Integer.getInteger("jdbc.metrics.maxStatements", 500);
+    private static final long LOG_INTERVAL_SECONDS = Long.getLong("jdbc.metrics.logIntervalSec", 60);
+    private static final int LOGGED_STATEMENTS = 5;
+    private static final String OTHER_STATEMENTS = "(otras sentencias)";
+
+    private final Map<String, SqlMetrics> statements = new ConcurrentHashMap<>();
+    private final LatencyHistogram commits = new LatencyHistogram();
+    private final LongAdder rollbacks = new LongAdder();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private long lastLoggedExecutions;
+
+    private JdbcMetrics() {
+    }
+
+    /**
+     * @return - Métricas compartidas por todas las conexiones instrumentadas
+     */
+    public static JdbcMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registra el MXBean y programa el resumen periódico en el log. Solo tiene efecto la primera vez.
+     */
+    static void start() {
+        if (!INSTANCE.started.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName("com.unir:type=JdbcMetrics"));
+        } catch (JMException e) {
+            log.warn("No se han podido publicar las métricas JDBC por JMX", e);
+        }
+        if (LOG_INTERVAL_SECONDS > 0) {
+            ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "jdbc-metrics");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleAtFixedRate(INSTANCE::logSummary, LOG_INTERVAL_SECONDS, LOG_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Devuelve los contadores de una sentencia. Las sentencias preparadas lo piden una vez al prepararse,
+     * así que en cada ejecución no hay que buscar en el mapa.
+     */
+    static SqlMetrics forSql(String sql) {
+        SqlMetrics metrics = INSTANCE.statements.get(sql);
+        if (metrics != null) {
+            return metrics;
+        }
+        String key = INSTANCE.statements.size() < MAX_STATEMENTS ? sql : OTHER_STATEMENTS;
+        return INSTANCE.statements.computeIfAbsent(key, SqlMetrics::new);
+    }
+
+    static void recordCommit(long nanos) {
+        INSTANCE.commits.record(nanos);
+    }
+
+    static void recordRollback() {
+        INSTANCE.rollbacks.increment();
+    }
+
+    @Override
+    public List<SqlStatistics> getStatements() {
+        List<SqlMetrics> sorted = new ArrayList<>(statements.values());
+        sorted.sort(Comparator.comparingLong(SqlMetrics::getTotalNanos).reversed());
+        List<SqlStatistics> result = new ArrayList<>(sorted.size());
+        for (SqlMetrics metrics : sorted) {
+            result.add(metrics.snapshot());
+        }
+        return result;
+    }
+
+    @Override
+    public long getCommits() {
+        return commits.getCount();
+    }
+
+    @Override
+    public long getCommitAvgMicros() {
+        return commits.getAverageMicros();
+    }
+
+    @Override
+    public long getCommitP99Micros() {
+        return commits.getPercentileMicros(99);
+    }
+
+    @Override
+    public long getCommitMaxMicros() {
+        return commits.getMaxMicros();
+    }
+
+    @Override
+    public long getRollbacks() {
+        return rollbacks.sum();
+    }
+
+    @Override
+    public void reset() {
+        statements.values().forEach(SqlMetrics::reset);
+        commits.reset();
+        rollbacks.reset();
+    }
+
+    /**
+     * Escribe en el log las sentencias que más tiempo han consumido, si ha habido actividad desde el último resumen.
+     */
+    void logSummary() {
+        List<SqlStatistics> all = getStatements();
+        long executions = 0;
+        for (SqlStatistics statistics : all) {
+            executions += statistics.getExecutions();
+        }
+        if (executions == lastLoggedExecutions) {
+            return;
+        }
+        lastLoggedExecutions = executions;
+
+        log.info("Métricas JDBC: {} ejecuciones, {} commits (media {} µs, p99 {} µs), {} rollbacks",
+                executions, getCommits(), getCommitAvgMicros(), getCommitP99Micros(), getRollbacks());
+        for (SqlStatistics statistics : all.subList(0, Math.min(LOGGED_STATEMENTS, all.size()))) {
+            log.info("  {} ms en {} ejecuciones (media {} µs, p50 {} µs, p99 {} µs, máx {} µs), {} filas, {} lotes de {} de media, {} errores: {}",
+                    statistics.getTotalMillis(), statistics.getExecutions(), statistics.getAvgMicros(),
+                    statistics.getP50Micros(), statistics.getP99Micros(), statistics.getMaxMicros(), statistics.getRows(),
+                    statistics.getBatches(), statistics.getAvgBatchSize(), statistics.getErrors(), statistics.getSql());
+        }
+    }
+}
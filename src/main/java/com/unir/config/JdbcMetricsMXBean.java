@@ -0,0 +1,29 @@
+package com.unir.config;
+
+import java.util.List;
+
+/**
+ * Métricas JDBC publicadas por JMX con el nombre com.unir:type=JdbcMetrics. Se pueden ver con jconsole o VisualVM.
+ */
+public interface JdbcMetricsMXBean {
+
+    /**
+     * @return - Métricas de cada sentencia SQL, de más a menos tiempo total
+     */
+    List<SqlStatistics> getStatements();
+
+    long getCommits();
+
+    long getCommitAvgMicros();
+
+    long getCommitP99Micros();
+
+    long getCommitMaxMicros();
+
+    long getRollbacks();
+
+    /**
+     * Pone a cero todas las métricas.
+     */
+    void reset();
+}
@@ -4,32 +4,90 @@ import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 @Slf4j
 @Getter
 public class MySqlConnector {
+
+    private static final Map<String, RoutingDataSource> ROUTING = new ConcurrentHashMap<>();
+
+    // Caché de sentencias del driver, por conexión física. Mantiene las sentencias preparadas entre préstamos del pool
+    private static final String STATEMENT_CACHE = "cachePrepStmts=true&prepStmtCacheSize=250&prepStmtCacheSqlLimit=4096";
+
     private final Connection connection;
 
     /**
-     * Constructor de la clase. Se conecta a la base de datos.
+     * Constructor de la clase. Pide prestada una conexión al pool de la base de datos.
+     * Al cerrar la conexión se devuelve al pool.
      * @param host
      * @param database
      */
     public MySqlConnector(String host, String database) {
 
         try {
-            //Creamos la conexión a la base de datos
-            this.connection = DriverManager.getConnection(
-                    "jdbc:mysql://" + host + "/" + database,
-                    System.getenv("MYSQL_USER"),
-                    System.getenv("MYSQL_PASSWORD"));
+            //Pedimos una conexión al pool compartido de la base de datos
+            this.connection = pool(host, database).getConnection();
 
         } catch (SQLException e) {
             log.error("Error al conectar con la base de datos", e);
             throw new RuntimeException(e);
         }
     }
+
+    /**
+     * Devuelve el pool de conexiones compartido para la base de datos indicada.
+     * La configuración del pool se lee de las propiedades de sistema mysql.pool.*
+     * rewriteBatchedStatements permite al driver enviar un lote de INSERT como una única sentencia de varias filas.
+     * @param host
+     * @param database
+     * @return - Pool de conexiones
+     */
+    public static ConnectionPool pool(String host, String database) {
+        return pool("jdbc:mysql://" + host + "/" + database + "?rewriteBatchedStatements=true&" + STATEMENT_CACHE);
+    }
+
+    /**
+     * Devuelve un pool cuyas conexiones permiten LOAD DATA LOCAL INFILE.
+     * Es un pool distinto del general para no habilitar la carga de ficheros locales en todas las conexiones.
+     * @param host
+     * @param database
+     * @return - Pool de conexiones para cargas masivas
+     */
+    public static ConnectionPool bulkLoadPool(String host, String database) {
+        return pool("jdbc:mysql://" + host + "/" + database + "?allowLoadLocalInfile=true&" + STATEMENT_CACHE);
+    }
+
+    /**
+     * Devuelve el enrutado compartido entre el primario y las réplicas de la base de datos indicada.
+     * Las réplicas se leen de la propiedad de sistema mysql.replicas, una lista de hosts separados por comas;
+     * si no hay ninguna, las lecturas también van al primario. Cada réplica usa su propio pool, con la misma
+     * configuración mysql.pool.*, y el enrutado se configura con las propiedades mysql.routing.*
+     * @param host - Host del primario
+     * @param database
+     * @return - Enrutado de lecturas y escrituras
+     */
+    public static RoutingDataSource routing(String host, String database) {
+        return ROUTING.computeIfAbsent(host + "/" + database, key -> {
+            List<ConnectionPool> replicas = new ArrayList<>();
+            for (String replica : System.getProperty("mysql.replicas", "").split(",")) {
+                if (!replica.trim().isEmpty()) {
+                    replicas.add(pool(replica.trim(), database));
+                }
+            }
+            return new RoutingDataSource(pool(host, database), replicas, RoutingSettings.fromSystemProperties("mysql.routing"));
+        });
+    }
+
+    private static ConnectionPool pool(String url) {
+        return ConnectionPool.shared(url, url,
+                System.getenv("MYSQL_USER"),
+                System.getenv("MYSQL_PASSWORD"),
+                PoolSettings.fromSystemProperties("mysql.pool"));
+    }
 }
@@ -4,33 +4,76 @@ import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 @Slf4j
 @Getter
 public class OracleDatabaseConnector {
 
+    private static final Map<String, RoutingDataSource> ROUTING = new ConcurrentHashMap<>();
+
     private final Connection connection;
 
     /**
-     * Constructor de la clase. Se conecta a la base de datos.
+     * Constructor de la clase. Pide prestada una conexión al pool de la base de datos.
+     * Al cerrar la conexión se devuelve al pool.
      * @param host
      * @param database
      */
     public OracleDatabaseConnector(String host, String database) {
 
         try {
-            //Creamos la conexión a la base de datos
-            this.connection = DriverManager.getConnection(
-                    "jdbc:oracle:thin:@//" + host + "/" + database,
-                    System.getenv("ORACLE_USER"),
-                    System.getenv("ORACLE_PASSWORD"));
+            //Pedimos una conexión al pool compartido de la base de datos
+            this.connection = pool(host, database).getConnection();
 
         } catch (SQLException e) {
             log.error("Error al conectar con la base de datos", e);
             throw new RuntimeException(e);
         }
     }
+
+    /**
+     * Devuelve el pool de conexiones compartido para la base de datos indicada.
+     * La configuración del pool se lee de las propiedades de sistema oracle.pool.*
+     * La caché implícita de sentencias del driver mantiene las sentencias preparadas entre préstamos del pool.
+     * @param host
+     * @param database
+     * @return - Pool de conexiones
+     */
+    public static ConnectionPool pool(String host, String database) {
+        String url = "jdbc:oracle:thin:@//" + host + "/" + database + "?oracle.jdbc.implicitStatementCacheSize=64";
+        return ConnectionPool.shared(url, url,
+                System.getenv("ORACLE_USER"),
+                System.getenv("ORACLE_PASSWORD"),
+                PoolSettings.fromSystemProperties("oracle.pool"));
+    }
+
+    /**
+     * Devuelve el enrutado compartido entre el primario y las réplicas de la base de datos indicada,
+     * por ejemplo standby de Active Data Guard abiertos en modo lectura.
+     * Las réplicas se leen de la propiedad de sistema oracle.replicas, una lista de hosts separados por comas;
+     * si no hay ninguna, las lecturas también van al primario. Cada réplica usa su propio pool, con la misma
+     * configuración oracle.pool.*, y el enrutado se configura con las propiedades oracle.routing.*
+     * REPLICA_STATUS solo existe en MySQL. Para HEARTBEAT hay que crear antes la tabla en el primario, porque
+     * la sentencia que la crea es de MySQL: replication_heartbeat (id NUMBER PRIMARY KEY, beat_millis NUMBER NOT NULL)
+     * @param host - Host del primario
+     * @param database - Nombre del servicio
+     * @return - Enrutado de lecturas y escrituras
+     */
+    public static RoutingDataSource routing(String host, String database) {
+        return ROUTING.computeIfAbsent(host + "/" + database, key -> {
+            List<ConnectionPool> replicas = new ArrayList<>();
+            for (String replica : System.getProperty("oracle.replicas", "").split(",")) {
+                if (!replica.trim().isEmpty()) {
+                    replicas.add(pool(replica.trim(), database));
+                }
+            }
+            return new RoutingDataSource(pool(host, database), replicas, RoutingSettings.fromSystemProperties("oracle.routing"));
+        });
+    }
 }
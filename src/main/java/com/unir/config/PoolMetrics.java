@@ -0,0 +1,71 @@
+package com.unir.config;
+
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Recoge las métricas que HikariCP publica para un pool: tiempo de espera al pedir una conexión,
+ * tiempo de uso y timeouts. Solo usa contadores atómicos, por lo que el coste en cada préstamo es mínimo.
+ */
+class PoolMetrics implements MetricsTrackerFactory, IMetricsTracker {
+
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder usageMillis = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder created = new LongAdder();
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        return this;
+    }
+
+    @Override
+    public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+        created.increment();
+    }
+
+    @Override
+    public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+        borrows.increment();
+        waitNanos.add(elapsedAcquiredNanos);
+        maxWaitNanos.accumulateAndGet(elapsedAcquiredNanos, Math::max);
+    }
+
+    @Override
+    public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+        usageMillis.add(elapsedBorrowedMillis);
+    }
+
+    @Override
+    public void recordConnectionTimeout() {
+        timeouts.increment();
+    }
+
+    /**
+     * Combina los contadores acumulados con el estado actual del pool.
+     *
+     * @param pool - MXBean del pool, con las conexiones activas y ociosas
+     * @return - Estadísticas del pool en este instante
+     */
+    PoolStatistics snapshot(HikariPoolMXBean pool) {
+        long borrowCount = borrows.sum();
+        return new PoolStatistics(
+                pool == null ? 0 : pool.getActiveConnections(),
+                pool == null ? 0 : pool.getIdleConnections(),
+                pool == null ? 0 : pool.getTotalConnections(),
+                pool == null ? 0 : pool.getThreadsAwaitingConnection(),
+                created.sum(),
+                borrowCount,
+                timeouts.sum(),
+                borrowCount == 0 ? 0 : waitNanos.sum() / borrowCount / 1_000,
+                maxWaitNanos.get() / 1_000,
+                borrowCount == 0 ? 0 : usageMillis.sum() / borrowCount);
+    }
+}
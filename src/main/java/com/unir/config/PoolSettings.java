@@ -0,0 +1,61 @@
+package com.unir.config;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Parámetros de configuración de un pool de conexiones.
+ * Los valores por defecto son razonables para una aplicación de consola.
+ * Se pueden sobrescribir con propiedades de sistema, por ejemplo -Dmysql.pool.maxSize=20
+ */
+@Getter
+@Setter
+public class PoolSettings {
+
+    // Número mínimo de conexiones ociosas que el pool intenta mantener abiertas
+    private int minIdle = 2;
+
+    // Número máximo de conexiones (ocupadas + ociosas)
+    private int maxSize = 10;
+
+    // Tiempo máximo que una conexión puede estar ociosa antes de cerrarse (solo si hay más de minIdle)
+    private long idleTimeoutMs = 600_000;
+
+    // Tiempo máximo de vida de una conexión física
+    private long maxLifetimeMs = 1_800_000;
+
+    // Tiempo máximo de espera para obtener una conexión del pool
+    private long connectionTimeoutMs = 30_000;
+
+    // Tiempo máximo para validar una conexión al prestarla
+    private long validationTimeoutMs = 5_000;
+
+    // Si una conexión no se devuelve en este tiempo se registra un aviso de fuga. 0 lo desactiva
+    private long leakDetectionThresholdMs = 60_000;
+
+    // Si es true las conexiones registran métricas de cada sentencia (ver InstrumentedDataSource)
+    private boolean instrumented = false;
+
+    /**
+     * Crea la configuración a partir de las propiedades de sistema con el prefijo indicado.
+     * Las propiedades que no existan mantienen su valor por defecto.
+     * Las métricas JDBC se activan para todos los pools con -Djdbc.metrics.enabled=true. Por defecto están desactivadas,
+     * igual que en una configuración creada con el constructor.
+     *
+     * @param prefix - Prefijo de las propiedades, por ejemplo "mysql.pool"
+     * @return - Configuración del pool
+     */
+    public static PoolSettings fromSystemProperties(String prefix) {
+        PoolSettings settings = new PoolSettings();
+        settings.setMinIdle(Integer.getInteger(prefix + ".minIdle", settings.getMinIdle()));
+        settings.setMaxSize(Integer.getInteger(prefix + ".maxSize", settings.getMaxSize()));
+        settings.setIdleTimeoutMs(Long.getLong(prefix + ".idleTimeoutMs", settings.getIdleTimeoutMs()));
+        settings.setMaxLifetimeMs(Long.getLong(prefix + ".maxLifetimeMs", settings.getMaxLifetimeMs()));
+        settings.setConnectionTimeoutMs(Long.getLong(prefix + ".connectionTimeoutMs", settings.getConnectionTimeoutMs()));
+        settings.setValidationTimeoutMs(Long.getLong(prefix + ".validationTimeoutMs", settings.getValidationTimeoutMs()));
+        settings.setLeakDetectionThresholdMs(Long.getLong(prefix + ".leakDetectionThresholdMs", settings.getLeakDetectionThresholdMs()));
+        settings.setInstrumented(Boolean.parseBoolean(
+                System.getProperty("jdbc.metrics.enabled", String.valueOf(settings.isInstrumented()))));
+        return settings;
+    }
+}
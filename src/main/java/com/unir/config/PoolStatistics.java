@@ -0,0 +1,24 @@
+package com.unir.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Foto de las estadísticas de un pool de conexiones en un instante dado.
+ */
+@AllArgsConstructor
+@Getter
+@ToString
+public class PoolStatistics {
+    private int activeConnections;
+    private int idleConnections;
+    private int totalConnections;
+    private int threadsAwaitingConnection;
+    private long connectionsCreated;
+    private long borrows;
+    private long timeouts;
+    private long averageWaitMicros;
+    private long maxWaitMicros;
+    private long averageUsageMillis;
+}
@@ -0,0 +1,99 @@
+package com.unir.config;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Formas de medir el retraso de una réplica respecto al primario, para las lecturas con obsolescencia acotada
+ * de {@link RoutingDataSource}.
+ *
+ * - NONE: no se mide. Las lecturas con obsolescencia acotada van siempre al primario.
+ * - HEARTBEAT: en cada comprobación se escribe la hora actual en la tabla replication_heartbeat del primario
+ *   y se lee en cada réplica; el retraso es la diferencia. Funciona con cualquier base de datos replicada,
+ *   y sin replicación real (por ejemplo con dos bases de datos embebidas) permite simularla copiando la fila.
+ * - REPLICA_STATUS: Seconds_Behind_Source de SHOW REPLICA STATUS (MySQL 8.0.22 o posterior).
+ *   Necesita el privilegio REPLICATION CLIENT y solo tiene resolución de segundos.
+ */
+public enum ReplicaLag {
+
+    NONE {
+        @Override
+        long lagMillis(Connection replica, long now) {
+            return -1;
+        }
+    },
+
+    HEARTBEAT {
+        @Override
+        void beforeCheck(Connection primary, long now) throws SQLException {
+            try (PreparedStatement update = primary.prepareStatement(
+                    "UPDATE " + HEARTBEAT_TABLE + " SET beat_millis = ? WHERE id = 1")) {
+                update.setLong(1, now);
+                if (update.executeUpdate() > 0) {
+                    return;
+                }
+            } catch (SQLException e) {
+                // La primera vez la tabla no existe
+                try (Statement statement = primary.createStatement()) {
+                    statement.execute("CREATE TABLE IF NOT EXISTS " + HEARTBEAT_TABLE
+                            + " (id INT NOT NULL PRIMARY KEY, beat_millis BIGINT NOT NULL)");
+                }
+            }
+            try (PreparedStatement insert = primary.prepareStatement(
+                    "INSERT INTO " + HEARTBEAT_TABLE + " (id, beat_millis) VALUES (1, ?)")) {
+                insert.setLong(1, now);
+                insert.executeUpdate();
+            }
+        }
+
+        @Override
+        long lagMillis(Connection replica, long now) throws SQLException {
+            try (Statement statement = replica.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT beat_millis FROM " + HEARTBEAT_TABLE + " WHERE id = 1")) {
+                return resultSet.next() ? Math.max(0, now - resultSet.getLong(1)) : -1;
+            }
+        }
+    },
+
+    REPLICA_STATUS {
+        @Override
+        long lagMillis(Connection replica, long now) throws SQLException {
+            try (Statement statement = replica.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SHOW REPLICA STATUS")) {
+                if (!resultSet.next()) {
+                    // No es una réplica
+                    return -1;
+                }
+                long seconds = resultSet.getLong("Seconds_Behind_Source");
+                // NULL si la replicación está parada
+                return resultSet.wasNull() ? -1 : seconds * 1000;
+            }
+        }
+    };
+
+    /**
+     * Tabla de la estrategia HEARTBEAT. Tiene una sola fila con la hora de la última escritura en el primario.
+     */
+    public static final String HEARTBEAT_TABLE = "replication_heartbeat";
+
+    /**
+     * Se llama en cada comprobación con una conexión al primario, antes de medir las réplicas.
+     *
+     * @param primary - Conexión al primario, en modo autocommit
+     * @param now - Hora actual en milisegundos
+     * @throws SQLException - Error al escribir en el primario
+     */
+    void beforeCheck(Connection primary, long now) throws SQLException {
+    }
+
+    /**
+     * @param replica - Conexión a la réplica
+     * @param now - Hora actual en milisegundos
+     * @return - Retraso de la réplica en milisegundos, o -1 si no se conoce
+     * @throws SQLException - Error al consultar la réplica
+     */
+    abstract long lagMillis(Connection replica, long now) throws SQLException;
+}
@@ -0,0 +1,321 @@
+package com.unir.config;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Enruta las conexiones entre un primario y sus réplicas de lectura, cada uno con su pool.
+ *
+ * - Escrituras: {@link #getWriteConnection()} siempre devuelve una conexión del primario.
+ * - Lecturas: {@link #getReadConnection()} reparte las conexiones entre las réplicas disponibles por turnos
+ *   (round robin) y las marca como de solo lectura. Si no hay ninguna disponible, usa el primario.
+ * - Obsolescencia acotada: {@link #getReadConnection(long)} solo usa réplicas cuyo retraso conocido, más el tiempo
+ *   transcurrido desde que se midió, no supera el indicado. Si ninguna cumple, la lectura va al primario.
+ *
+ * Un hilo daemon comprueba las réplicas cada healthCheckIntervalMs: valida una conexión y mide su retraso
+ * con la estrategia configurada (ver {@link ReplicaLag}). Una réplica deja de recibir lecturas tras failureThreshold
+ * comprobaciones fallidas seguidas, o en cuanto falla al pedirle una conexión, y vuelve a recibirlas en la primera
+ * comprobación correcta. Agotar el tiempo de espera porque todas las conexiones de su pool están prestadas no cuenta
+ * como fallo: esa lectura pasa a la siguiente réplica, pero la réplica sigue en el turno.
+ *
+ * Conviene que los pools de las réplicas tengan un connectionTimeoutMs corto, porque pedir una conexión
+ * a una réplica caída o con el pool agotado espera ese tiempo antes de pasar a la siguiente.
+ *
+ * Las lecturas que necesiten ver una escritura recién hecha deben usar la conexión de escritura.
+ */
+@Slf4j
+public class RoutingDataSource implements AutoCloseable {
+
+    private final ConnectionPool primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final RoutingSettings settings;
+    private final AtomicInteger next = new AtomicInteger();
+    private final LongAdder primaryReads = new LongAdder();
+    private final ScheduledExecutorService healthChecker;
+    private final DataSource readDataSource = new ReadDataSource();
+
+    /**
+     * @param primary - Pool del primario
+     * @param replicas - Pools de las réplicas. Puede estar vacía; entonces todo va al primario
+     * @param settings - Comprobación de las réplicas y retraso máximo por defecto
+     */
+    public RoutingDataSource(ConnectionPool primary, List<ConnectionPool> replicas, RoutingSettings settings) {
+        this.primary = primary;
+        this.settings = settings;
+        for (ConnectionPool replica : replicas) {
+            this.replicas.add(new Replica(replica));
+        }
+        if (this.replicas.isEmpty()) {
+            this.healthChecker = null;
+        } else {
+            this.healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "replica-health-check");
+                thread.setDaemon(true);
+                return thread;
+            });
+            healthChecker.scheduleWithFixedDelay(this::checkReplicas, 0, settings.getHealthCheckIntervalMs(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @return - Conexión del primario, para escrituras y para lecturas que deben ver los últimos cambios
+     * @throws SQLException - Si no se obtiene una conexión en el tiempo configurado
+     */
+    public Connection getWriteConnection() throws SQLException {
+        return primary.getConnection();
+    }
+
+    /**
+     * @return - Conexión de solo lectura de una réplica, con el retraso máximo de la configuración
+     * @throws SQLException - Si no hay réplicas disponibles y no se obtiene una conexión del primario
+     */
+    public Connection getReadConnection() throws SQLException {
+        return getReadConnection(settings.getMaxStalenessMs());
+    }
+
+    /**
+     * Devuelve una conexión de solo lectura de la siguiente réplica disponible con un retraso aceptable.
+     *
+     * @param maxStalenessMs - Retraso máximo aceptado, en milisegundos. Con -1 se acepta cualquiera
+     * @return - Conexión de solo lectura de una réplica, o del primario si ninguna cumple
+     * @throws SQLException - Si no hay réplicas disponibles y no se obtiene una conexión del primario
+     */
+    public Connection getReadConnection(long maxStalenessMs) throws SQLException {
+        long now = System.currentTimeMillis();
+        int size = replicas.size();
+        int first = size == 0 ? 0 : Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((first + i) % size);
+            if (!replica.accepts(maxStalenessMs, now)) {
+                continue;
+            }
+            try {
+                Connection connection = readOnly(replica.pool.getConnection());
+                replica.reads.increment();
+                return connection;
+            } catch (SQLException e) {
+                if (isPoolExhausted(e)) {
+                    // La réplica funciona pero su pool está ocupado: solo esta lectura va a otra base de datos
+                    log.debug("Pool de la réplica {} agotado: {}", replica.pool.getName(), e.getMessage());
+                } else {
+                    replica.markDown(e);
+                }
+            }
+        }
+        Connection connection = readOnly(primary.getConnection());
+        primaryReads.increment();
+        return connection;
+    }
+
+    /**
+     * @return - DataSource de escrituras (el pool del primario), para quien necesite la interfaz estándar
+     */
+    public DataSource getWriteDataSource() {
+        return primary.getDataSource();
+    }
+
+    /**
+     * @return - DataSource cuyo getConnection() equivale a {@link #getReadConnection()}
+     */
+    public DataSource getReadDataSource() {
+        return readDataSource;
+    }
+
+    /**
+     * Comprueba todas las réplicas y mide su retraso. La ejecuta periódicamente el hilo de comprobación;
+     * se puede llamar directamente para no esperar a la siguiente, por ejemplo en pruebas.
+     */
+    public synchronized void checkReplicas() {
+        long now = System.currentTimeMillis();
+        try (Connection connection = primary.getConnection()) {
+            settings.getLag().beforeCheck(connection, now);
+        } catch (SQLException e) {
+            log.warn("No se ha podido preparar la medida del retraso en el primario {}: {}", primary.getName(), e.getMessage());
+        }
+
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.pool.getConnection()) {
+                if (!connection.isValid(settings.getValidationTimeoutSec())) {
+                    throw new SQLException("La conexión no es válida");
+                }
+                long lag;
+                try {
+                    lag = settings.getLag().lagMillis(connection, now);
+                } catch (SQLException e) {
+                    log.debug("No se ha podido medir el retraso de la réplica {}", replica.pool.getName(), e);
+                    lag = -1;
+                }
+                replica.markUp(lag, now);
+            } catch (SQLException e) {
+                replica.checkFailed(e);
+            } catch (RuntimeException e) {
+                // Para que un error inesperado no detenga las comprobaciones periódicas
+                log.error("Error al comprobar la réplica {}", replica.pool.getName(), e);
+            }
+        }
+    }
+
+    /**
+     * @return - Estado de cada réplica y lecturas servidas por cada base de datos
+     */
+    public String getStatistics() {
+        StringBuilder statistics = new StringBuilder("primario ").append(primary.getName())
+                .append(": ").append(primaryReads.sum()).append(" lecturas");
+        for (Replica replica : replicas) {
+            statistics.append("; ").append(replica);
+        }
+        return statistics.toString();
+    }
+
+    @Override
+    public void close() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+    }
+
+    /**
+     * Un préstamo que agota el tiempo de espera sin un error de conexión detrás solo indica que todas
+     * las conexiones del pool están prestadas. Si la base de datos no responde, el pool incluye como causa
+     * el último error al abrir una conexión.
+     */
+    private static boolean isPoolExhausted(SQLException e) {
+        return e instanceof SQLTransientConnectionException && e.getCause() == null;
+    }
+
+    private static Connection readOnly(Connection connection) throws SQLException {
+        try {
+            // El pool restablece el modo al devolver la conexión
+            connection.setReadOnly(true);
+            return connection;
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Estado de una réplica. Lo escribe el hilo de comprobación y lo leen los hilos que piden conexiones.
+     */
+    private class Replica {
+        private final ConnectionPool pool;
+        private final LongAdder reads = new LongAdder();
+        private volatile boolean available = true;
+        private volatile long lagMillis = -1;
+        private volatile long checkedAt;
+        private int failures;
+
+        Replica(ConnectionPool pool) {
+            this.pool = pool;
+        }
+
+        boolean accepts(long maxStalenessMs, long now) {
+            if (!available) {
+                return false;
+            }
+            if (maxStalenessMs < 0) {
+                return true;
+            }
+            // El retraso puede haber crecido desde la última medida, como mucho el tiempo transcurrido
+            return lagMillis >= 0 && lagMillis + (now - checkedAt) <= maxStalenessMs;
+        }
+
+        void markUp(long lag, long now) {
+            lagMillis = lag;
+            checkedAt = now;
+            failures = 0;
+            if (!available) {
+                available = true;
+                log.info("Réplica {} disponible de nuevo", pool.getName());
+            }
+        }
+
+        void checkFailed(SQLException e) {
+            failures++;
+            if (available && failures >= settings.getFailureThreshold()) {
+                markDown(e);
+            }
+        }
+
+        void markDown(SQLException e) {
+            if (available) {
+                available = false;
+                log.warn("Réplica {} fuera de servicio, las lecturas van a otras bases de datos: {}", pool.getName(), e.getMessage());
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "réplica " + pool.getName() + ": " + (available ? "disponible" : "fuera de servicio")
+                    + ", retraso " + (lagMillis < 0 ? "desconocido" : lagMillis + " ms") + ", " + reads.sum() + " lecturas";
+        }
+    }
+
+    /**
+     * Vista de las lecturas como DataSource estándar.
+     */
+    private class ReadDataSource implements DataSource {
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return getReadConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            throw new SQLFeatureNotSupportedException("Las credenciales las fija la configuración de cada pool");
+        }
+
+        @Override
+        public PrintWriter getLogWriter() throws SQLException {
+            return primary.getDataSource().getLogWriter();
+        }
+
+        @Override
+        public void setLogWriter(PrintWriter out) throws SQLException {
+            primary.getDataSource().setLogWriter(out);
+        }
+
+        @Override
+        public void setLoginTimeout(int seconds) throws SQLException {
+            primary.getDataSource().setLoginTimeout(seconds);
+        }
+
+        @Override
+        public int getLoginTimeout() throws SQLException {
+            return primary.getDataSource().getLoginTimeout();
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+
+        @Override
+        public <T> T unwrap(Class<T> iface) throws SQLException {
+            if (iface.isInstance(this)) {
+                return iface.cast(this);
+            }
+            throw new SQLException("No es un envoltorio de " + iface.getName());
+        }
+
+        @Override
+        public boolean isWrapperFor(Class<?> iface) {
+            return iface.isInstance(this);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.unir.config;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Parámetros de {@link RoutingDataSource}.
+ * Se pueden sobrescribir con propiedades de sistema, por ejemplo -Dmysql.routing.maxStalenessMs=5000
+ */
+@Getter
+@Setter
+public class RoutingSettings {
+
+    // Tiempo entre comprobaciones de las réplicas
+    private long healthCheckIntervalMs = 1_000;
+
+    // Tiempo máximo para validar la conexión a una réplica
+    private int validationTimeoutSec = 2;
+
+    // Comprobaciones fallidas seguidas para dejar de enviar lecturas a una réplica
+    private int failureThreshold = 2;
+
+    // Forma de medir el retraso de las réplicas
+    private ReplicaLag lag = ReplicaLag.NONE;
+
+    // Retraso máximo de las lecturas que no indican otro. Con -1 se acepta cualquier retraso
+    private long maxStalenessMs = -1;
+
+    /**
+     * Crea la configuración a partir de las propiedades de sistema con el prefijo indicado.
+     * Las propiedades que no existan mantienen su valor por defecto.
+     *
+     * @param prefix - Prefijo de las propiedades, por ejemplo "mysql.routing"
+     * @return - Configuración del enrutado
+     */
+    public static RoutingSettings fromSystemProperties(String prefix) {
+        RoutingSettings settings = new RoutingSettings();
+        settings.setHealthCheckIntervalMs(Long.getLong(prefix + ".healthCheckIntervalMs", settings.getHealthCheckIntervalMs()));
+        settings.setValidationTimeoutSec(Integer.getInteger(prefix + ".validationTimeoutSec", settings.getValidationTimeoutSec()));
+        settings.setFailureThreshold(Integer.getInteger(prefix + ".failureThreshold", settings.getFailureThreshold()));
+        settings.setLag(ReplicaLag.valueOf(System.getProperty(prefix + ".lag", settings.getLag().name())));
+        settings.setMaxStalenessMs(Long.getLong(prefix + ".maxStalenessMs", settings.getMaxStalenessMs()));
+        return settings;
+    }
+}
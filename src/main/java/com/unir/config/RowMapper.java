@@ -0,0 +1,16 @@
+package com.unir.config;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Convierte la fila actual de un ResultSet en un objeto.
+ * No debe mover el cursor.
+ *
+ * @param <T> - Tipo del objeto resultante
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+
+    T map(ResultSet resultSet) throws SQLException;
+}
@@ -0,0 +1,63 @@
+package com.unir.config;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores de una sentencia SQL: latencia de cada ejecución, errores, filas leídas y tamaño de los lotes.
+ */
+class SqlMetrics {
+
+    private final String sql;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedRows = new LongAdder();
+    private final AtomicLong maxBatch = new AtomicLong();
+
+    SqlMetrics(String sql) {
+        this.sql = sql;
+    }
+
+    void recordExecution(long nanos) {
+        latency.record(nanos);
+    }
+
+    void recordError() {
+        errors.increment();
+    }
+
+    void recordRows(long count) {
+        rows.add(count);
+    }
+
+    void recordBatch(long size) {
+        batches.increment();
+        batchedRows.add(size);
+        if (size > maxBatch.get()) {
+            maxBatch.accumulateAndGet(size, Math::max);
+        }
+    }
+
+    long getTotalNanos() {
+        return latency.getTotalNanos();
+    }
+
+    SqlStatistics snapshot() {
+        long batchCount = batches.sum();
+        return new SqlStatistics(sql, latency.getCount(), errors.sum(), rows.sum(),
+                batchCount, batchCount == 0 ? 0 : batchedRows.sum() / batchCount, maxBatch.get(),
+                latency.getTotalNanos() / 1_000_000, latency.getAverageMicros(), latency.getPercentileMicros(50),
+                latency.getPercentileMicros(99), latency.getMaxMicros());
+    }
+
+    void reset() {
+        latency.reset();
+        errors.reset();
+        rows.reset();
+        batches.reset();
+        batchedRows.reset();
+        maxBatch.set(0);
+    }
+}
@@ -0,0 +1,26 @@
+package com.unir.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Foto de las métricas de una sentencia SQL. Las latencias están en microsegundos y los percentiles son aproximados.
+ */
+@AllArgsConstructor
+@Getter
+@ToString
+public class SqlStatistics {
+    private String sql;
+    private long executions;
+    private long errors;
+    private long rows;
+    private long batches;
+    private long avgBatchSize;
+    private long maxBatchSize;
+    private long totalMillis;
+    private long avgMicros;
+    private long p50Micros;
+    private long p99Micros;
+    private long maxMicros;
+}
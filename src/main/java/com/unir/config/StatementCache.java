@@ -0,0 +1,130 @@
+package com.unir.config;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché de sentencias preparadas por conexión física, indexada por el texto SQL.
+ *
+ * Preparar una sentencia obliga a la base de datos a analizarla, y cada sentencia abierta ocupa un cursor
+ * (en Oracle, superar open_cursors provoca ORA-01000). La caché reutiliza la sentencia si el mismo SQL se vuelve
+ * a preparar en la misma conexión y mantiene como mucho statementCache.size sentencias abiertas por conexión,
+ * cerrando la menos usada recientemente al superar el límite.
+ *
+ * La caché se indexa por la conexión física, pero las sentencias se preparan con la conexión prestada que se recibe.
+ * Así el pool las controla: marca la transacción como pendiente al ejecutarlas, para hacer rollback si la conexión
+ * se devuelve sin commit, y las cierra al devolver la conexión. Por eso la reutilización dura lo que dura el préstamo;
+ * entre préstamos la reutilizan las cachés de los drivers, que activan los conectores (cachePrepStmts en MySQL,
+ * implicitStatementCacheSize en Oracle), y volver a preparar la sentencia no vuelve a analizarla.
+ * Las sentencias devueltas NO se deben cerrar: las cierra la caché al expulsarlas o el pool al devolver la conexión.
+ */
+@Slf4j
+public class StatementCache {
+
+    private static final int MAX_SIZE = Integer.getInteger("statementCache.size", 64);
+
+    private static final Map<Connection, StatementCache> CACHES = new ConcurrentHashMap<>();
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+    private static final LongAdder EVICTIONS = new LongAdder();
+
+    private final Map<String, PreparedStatement> statements;
+
+    private StatementCache(int maxSize) {
+        // LinkedHashMap en orden de acceso: el primer elemento es siempre el menos usado recientemente
+        this.statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= maxSize) {
+                    return false;
+                }
+                EVICTIONS.increment();
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Devuelve una sentencia preparada para el SQL indicado, reutilizándola si ya estaba en la caché
+     * de la conexión. No se debe cerrar la sentencia devuelta.
+     *
+     * @param connection - Conexión, prestada del pool o no
+     * @param sql - Sentencia SQL
+     * @return - Sentencia preparada, sin lotes pendientes
+     * @throws SQLException - Error al preparar la sentencia
+     */
+    public static PreparedStatement prepare(Connection connection, String sql) throws SQLException {
+        // Los pools entregan un envoltorio distinto en cada préstamo; la caché se asocia a la conexión real
+        Connection physical = connection.unwrap(Connection.class);
+        StatementCache cache = CACHES.get(physical);
+        if (cache == null) {
+            purgeClosed();
+            cache = CACHES.computeIfAbsent(physical, key -> new StatementCache(MAX_SIZE));
+        }
+        return cache.get(connection, sql);
+    }
+
+    /**
+     * @return - Aciertos, fallos y expulsiones acumulados de todas las cachés
+     */
+    public static StatementCacheStatistics getStatistics() {
+        int cached = 0;
+        for (StatementCache cache : CACHES.values()) {
+            cached += cache.size();
+        }
+        return new StatementCacheStatistics(HITS.sum(), MISSES.sum(), EVICTIONS.sum(), CACHES.size(), cached);
+    }
+
+    private synchronized PreparedStatement get(Connection connection, String sql) throws SQLException {
+        // Las sentencias de préstamos anteriores las ha cerrado el pool y se vuelven a preparar
+        PreparedStatement statement = statements.get(sql);
+        if (statement != null && !statement.isClosed()) {
+            HITS.increment();
+
+            // Por si una ejecución anterior falló a mitad de lote
+            statement.clearBatch();
+            return statement;
+        }
+        MISSES.increment();
+        statement = connection.prepareStatement(sql);
+        statements.put(sql, statement);
+        return statement;
+    }
+
+    private synchronized int size() {
+        return statements.size();
+    }
+
+    /**
+     * Olvida las cachés de conexiones que el pool ya ha cerrado. Sus sentencias las cerró el driver.
+     */
+    private static void purgeClosed() {
+        Iterator<Connection> connections = CACHES.keySet().iterator();
+        while (connections.hasNext()) {
+            try {
+                if (connections.next().isClosed()) {
+                    connections.remove();
+                }
+            } catch (SQLException e) {
+                connections.remove();
+            }
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            log.warn("Error al cerrar una sentencia expulsada de la caché", e);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.unir.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Foto de las estadísticas de la caché de sentencias preparadas.
+ */
+@AllArgsConstructor
+@Getter
+@ToString
+public class StatementCacheStatistics {
+    private long hits;
+    private long misses;
+    private long evictions;
+    private int connections;
+    private int cachedStatements;
+}
@@ -0,0 +1,122 @@
+package com.unir.config;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Consultas que devuelven las filas de forma perezosa como un Stream de objetos.
+ *
+ * Las filas se leen del servidor según se consumen, con el fetch size de streaming de cada base de datos
+ * (ver {@link Dialect}), de modo que la memoria usada no depende del tamaño de la tabla.
+ *
+ * El Stream tiene abiertos la sentencia y el ResultSet hasta que se cierra, así que hay que usarlo siempre
+ * en un try-with-resources. También se cierran solos al llegar a la última fila.
+ * Con MySQL, mientras el Stream esté abierto no se puede usar la conexión para otras consultas.
+ */
+@Slf4j
+public class StreamingQuery {
+
+    /**
+     * Ejecuta una consulta con el fetch size de streaming de la base de datos de la conexión.
+     *
+     * @param connection - Conexión a la base de datos
+     * @param sql - Consulta
+     * @param mapper - Conversión de cada fila
+     * @param parameters - Parámetros de la consulta, en orden
+     * @return - Stream de filas convertidas. Hay que cerrarlo
+     * @throws SQLException - Error al ejecutar la consulta
+     */
+    public static <T> Stream<T> stream(Connection connection, String sql, RowMapper<T> mapper,
+                                       Object... parameters) throws SQLException {
+        return stream(connection, Dialect.of(connection).getStreamingFetchSize(), sql, mapper, parameters);
+    }
+
+    /**
+     * Ejecuta una consulta con un fetch size concreto.
+     *
+     * @param connection - Conexión a la base de datos
+     * @param fetchSize - Filas que pide el driver en cada viaje. Integer.MIN_VALUE activa el streaming de MySQL
+     * @param sql - Consulta
+     * @param mapper - Conversión de cada fila
+     * @param parameters - Parámetros de la consulta, en orden
+     * @return - Stream de filas convertidas. Hay que cerrarlo
+     * @throws SQLException - Error al ejecutar la consulta
+     */
+    public static <T> Stream<T> stream(Connection connection, int fetchSize, String sql, RowMapper<T> mapper,
+                                       Object... parameters) throws SQLException {
+
+        // Solo hacia delante y de solo lectura: es lo que permite a los drivers no guardar las filas ya leídas
+        PreparedStatement statement = connection.prepareStatement(sql,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        try {
+            statement.setFetchSize(fetchSize);
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            ResultSet resultSet = statement.executeQuery();
+            RowSpliterator<T> rows = new RowSpliterator<>(statement, resultSet, mapper);
+            return StreamSupport.stream(rows, false).onClose(rows::close);
+        } catch (SQLException | RuntimeException e) {
+            statement.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Recorre el ResultSet fila a fila. Cierra la sentencia al terminar, al fallar o al cerrar el Stream.
+     */
+    private static class RowSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+
+        private final PreparedStatement statement;
+        private final ResultSet resultSet;
+        private final RowMapper<T> mapper;
+        private boolean closed;
+
+        RowSpliterator(PreparedStatement statement, ResultSet resultSet, RowMapper<T> mapper) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.statement = statement;
+            this.resultSet = resultSet;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (closed) {
+                return false;
+            }
+            try {
+                if (!resultSet.next()) {
+                    close();
+                    return false;
+                }
+                action.accept(mapper.map(resultSet));
+                return true;
+            } catch (SQLException e) {
+                close();
+                throw new RuntimeException(e);
+            }
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                resultSet.close();
+                statement.close();
+            } catch (SQLException e) {
+                log.warn("Error al cerrar la consulta en streaming", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.unir.config;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Avisos de cambios en tablas dentro de la aplicación.
+ * Quien escribe en una tabla avisa después del commit y quien guarda datos derivados de ella
+ * (por ejemplo, una caché de resultados) se suscribe para invalidarlos.
+ *
+ * Solo cubre escrituras hechas desde esta JVM.
+ */
+public class TableChangeNotifier {
+
+    private static final Map<String, List<Runnable>> LISTENERS = new ConcurrentHashMap<>();
+
+    /**
+     * Registra una acción que se ejecutará cada vez que cambie la tabla.
+     *
+     * @param table - Nombre de la tabla, en minúsculas
+     * @param listener - Acción a ejecutar. Debe ser rápida, se ejecuta en el hilo que escribe
+     */
+    public static void addListener(String table, Runnable listener) {
+        LISTENERS.computeIfAbsent(table, key -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    /**
+     * Deja de avisar a una acción registrada con {@link #addListener(String, Runnable)}.
+     *
+     * @param table - Nombre de la tabla, en minúsculas
+     * @param listener - La misma instancia que se registró
+     */
+    public static void removeListener(String table, Runnable listener) {
+        List<Runnable> listeners = LISTENERS.get(table);
+        if (listeners != null) {
+            listeners.remove(listener);
+        }
+    }
+
+    /**
+     * Avisa de que se han confirmado cambios en las tablas indicadas.
+     *
+     * @param tables - Nombres de las tablas, en minúsculas
+     */
+    public static void tablesChanged(String... tables) {
+        for (String table : tables) {
+            List<Runnable> listeners = LISTENERS.get(table);
+            if (listeners != null) {
+                listeners.forEach(Runnable::run);
+            }
+        }
+    }
+}
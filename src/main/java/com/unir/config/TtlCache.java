@@ -0,0 +1,118 @@
+package com.unir.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché en memoria con caducidad (TTL) y tamaño máximo.
+ * Cuando se supera el tamaño máximo se expulsa la entrada menos usada recientemente.
+ * Es segura para varios hilos.
+ *
+ * Cada invalidación incrementa una generación. Quien calcula un valor fuera de la caché toma la generación antes
+ * de leer los datos y lo guarda con {@link #put(Object, Object, long)}: si entretanto se ha invalidado la caché,
+ * el valor puede ser anterior al cambio y no se guarda.
+ *
+ * @param <K> - Tipo de la clave
+ * @param <V> - Tipo del valor
+ */
+public class TtlCache<K, V> {
+
+    private final long ttlNanos;
+    private final Map<K, Stored<V>> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private long generation;
+
+    /**
+     * @param ttlMillis - Tiempo que un valor se considera válido desde que se guarda
+     * @param maxSize - Número máximo de entradas
+     */
+    public TtlCache(long ttlMillis, int maxSize) {
+        this.ttlNanos = ttlMillis * 1_000_000;
+
+        // LinkedHashMap en orden de acceso: el primer elemento es siempre el menos usado recientemente
+        this.entries = new LinkedHashMap<K, Stored<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Stored<V>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @param key - Clave
+     * @return - Valor guardado, o null si no existe o ha caducado
+     */
+    public synchronized V get(K key) {
+        Stored<V> entry = entries.get(key);
+        if (entry == null || System.nanoTime() - entry.storedAt > ttlNanos) {
+            if (entry != null) {
+                entries.remove(key);
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    /**
+     * Guarda un valor, que será válido durante el TTL de la caché.
+     *
+     * @param key - Clave
+     * @param value - Valor
+     */
+    public synchronized void put(K key, V value) {
+        entries.put(key, new Stored<>(value, System.nanoTime()));
+    }
+
+    /**
+     * Guarda un valor solo si la caché no se ha invalidado desde que se tomó la generación indicada.
+     *
+     * @param key - Clave
+     * @param value - Valor
+     * @param expectedGeneration - Generación tomada con {@link #getGeneration()} antes de leer los datos del valor
+     * @return - true si se ha guardado
+     */
+    public synchronized boolean put(K key, V value, long expectedGeneration) {
+        if (generation != expectedGeneration) {
+            return false;
+        }
+        put(key, value);
+        return true;
+    }
+
+    /**
+     * Borra todas las entradas, por ejemplo cuando cambian los datos de los que dependen.
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+        generation++;
+    }
+
+    /**
+     * @return - Generación actual, que cambia en cada invalidación
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private static class Stored<V> {
+        private final V value;
+        private final long storedAt;
+
+        Stored(V value, long storedAt) {
+            this.value = value;
+            this.storedAt = storedAt;
+        }
+    }
+}
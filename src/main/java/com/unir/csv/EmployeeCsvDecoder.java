@@ -0,0 +1,279 @@
+package com.unir.csv;
+
+import com.unir.model.MySqlEmployee;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Decodificador especializado para las líneas del CSV de empleados
+ * (employeeId,firstName,lastName,gender,hireDate,birthDate).
+ *
+ * Trabaja directamente sobre el buffer de caracteres, sin partir la línea en un String[]:
+ * - Los enteros y las fechas ISO (yyyy-MM-dd) se convierten sin crear Strings ni SimpleDateFormat.
+ * - Los nombres se deduplican en una tabla de Strings ya creados, así que un nombre repetido no crea un String nuevo.
+ * - Las fechas java.sql.Date se crean una sola vez por día y se comparten. No se deben modificar.
+ * - El género M o F usa constantes.
+ *
+ * No tiene estado mutable por línea, así que una misma instancia se puede usar desde varios hilos.
+ * Las tablas de Strings y fechas admiten carreras benignas: como mucho se crea un objeto de más.
+ */
+public class EmployeeCsvDecoder {
+
+    private static final int NAME_TABLE_SIZE = 1 << 14;
+
+    // Rango de fechas con objeto Date compartido: de 1900-01-01 a 2100-01-01
+    private static final int FIRST_CACHED_DAY = (int) LocalDate.of(1900, 1, 1).toEpochDay();
+    private static final int LAST_CACHED_DAY = (int) LocalDate.of(2100, 1, 1).toEpochDay();
+
+    private static final int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    // Se crea después de las constantes anteriores, que usa el constructor
+    private static final EmployeeCsvDecoder SHARED = new EmployeeCsvDecoder();
+
+    private final AtomicReferenceArray<String> names = new AtomicReferenceArray<>(NAME_TABLE_SIZE);
+    private final AtomicReferenceArray<Date> dates = new AtomicReferenceArray<>(LAST_CACHED_DAY - FIRST_CACHED_DAY + 1);
+
+    /**
+     * @return - Instancia compartida por toda la aplicación
+     */
+    public static EmployeeCsvDecoder shared() {
+        return SHARED;
+    }
+
+    /**
+     * Decodifica una línea sin el salto de línea final.
+     * Las columnas de más se ignoran, igual que al leer con OpenCSV.
+     *
+     * @param line - Buffer con la línea
+     * @param start - Posición del primer carácter de la línea
+     * @param end - Posición siguiente al último carácter de la línea
+     * @param row - Fila donde se guardan los valores
+     * @return - false si la línea tiene comillas y hay que procesarla con un parser CSV completo
+     * @throws IllegalArgumentException - Si la línea no tiene el formato esperado
+     */
+    public boolean decode(char[] line, int start, int end, EmployeeRow row) {
+        int position = start;
+        int fieldEnd;
+
+        fieldEnd = fieldEnd(line, position, end);
+        if (fieldEnd < 0) {
+            return false;
+        }
+        row.employeeId = parseInt(line, position, fieldEnd);
+        position = next(fieldEnd, end);
+
+        fieldEnd = fieldEnd(line, position, end);
+        if (fieldEnd < 0) {
+            return false;
+        }
+        row.firstName = name(line, position, fieldEnd);
+        position = next(fieldEnd, end);
+
+        fieldEnd = fieldEnd(line, position, end);
+        if (fieldEnd < 0) {
+            return false;
+        }
+        row.lastName = name(line, position, fieldEnd);
+        position = next(fieldEnd, end);
+
+        fieldEnd = fieldEnd(line, position, end);
+        if (fieldEnd < 0) {
+            return false;
+        }
+        row.gender = gender(line, position, fieldEnd);
+        position = next(fieldEnd, end);
+
+        fieldEnd = fieldEnd(line, position, end);
+        if (fieldEnd < 0) {
+            return false;
+        }
+        row.hireEpochDay = parseDate(line, position, fieldEnd);
+        position = next(fieldEnd, end);
+
+        fieldEnd = fieldEnd(line, position, end);
+        if (fieldEnd < 0) {
+            return false;
+        }
+        row.birthEpochDay = parseDate(line, position, fieldEnd);
+        return true;
+    }
+
+    /**
+     * Crea el empleado del modelo a partir de una fila decodificada, con fechas compartidas.
+     *
+     * @param row - Fila decodificada
+     * @return - Empleado
+     */
+    public MySqlEmployee toEmployee(EmployeeRow row) {
+        return new MySqlEmployee(row.employeeId, row.firstName, row.lastName, row.gender,
+                date(row.hireEpochDay), date(row.birthEpochDay));
+    }
+
+    /**
+     * Devuelve la fecha de un día, compartida si está en el rango cacheado. No se debe modificar.
+     *
+     * @param epochDay - Días desde 1970-01-01
+     * @return - Fecha a medianoche en la zona horaria local, igual que Date.valueOf
+     */
+    public Date date(int epochDay) {
+        if (epochDay < FIRST_CACHED_DAY || epochDay > LAST_CACHED_DAY) {
+            return Date.valueOf(LocalDate.ofEpochDay(epochDay));
+        }
+        int index = epochDay - FIRST_CACHED_DAY;
+        Date date = dates.get(index);
+        if (date == null) {
+            date = Date.valueOf(LocalDate.ofEpochDay(epochDay));
+            dates.lazySet(index, date);
+        }
+        return date;
+    }
+
+    /**
+     * @return - Posición de la siguiente coma o del final de la línea; -1 si el campo tiene comillas
+     */
+    private static int fieldEnd(char[] line, int position, int end) {
+        if (position > end) {
+            throw new IllegalArgumentException("Faltan columnas en la línea");
+        }
+        for (int i = position; i < end; i++) {
+            char c = line[i];
+            if (c == ',') {
+                return i;
+            }
+            if (c == '"') {
+                return -1;
+            }
+        }
+        return end;
+    }
+
+    private static int next(int fieldEnd, int end) {
+        // Si el campo termina al final de la línea, la siguiente posición queda fuera y fieldEnd lo detecta
+        return fieldEnd == end ? end + 1 : fieldEnd + 1;
+    }
+
+    private static int parseInt(char[] line, int start, int end) {
+        if (start == end) {
+            throw new IllegalArgumentException("Número vacío");
+        }
+        boolean negative = line[start] == '-';
+        int i = negative ? start + 1 : start;
+        if (i == end) {
+            throw new IllegalArgumentException("Número no válido: " + new String(line, start, end - start));
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = line[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException("Número no válido: " + new String(line, start, end - start));
+            }
+            value = value * 10 + digit;
+            if (value > Integer.MAX_VALUE + 1L) {
+                throw new IllegalArgumentException("Número fuera de rango: " + new String(line, start, end - start));
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Número fuera de rango: " + new String(line, start, end - start));
+        }
+        return (int) value;
+    }
+
+    /**
+     * Convierte una fecha año-mes-día en días desde 1970-01-01.
+     * Acepta meses y días de uno o dos dígitos, pero no fechas inexistentes como el 30 de febrero.
+     */
+    private static int parseDate(char[] line, int start, int end) {
+        int firstDash = indexOf(line, '-', start, end);
+        int secondDash = firstDash < 0 ? -1 : indexOf(line, '-', firstDash + 1, end);
+        if (secondDash < 0) {
+            throw new IllegalArgumentException("Fecha no válida: " + new String(line, start, end - start));
+        }
+        int year = parseInt(line, start, firstDash);
+        int month = parseInt(line, firstDash + 1, secondDash);
+        int day = parseInt(line, secondDash + 1, end);
+        if (month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)) {
+            throw new IllegalArgumentException("Fecha no válida: " + new String(line, start, end - start));
+        }
+        return (int) epochDay(year, month, day);
+    }
+
+    private static int daysInMonth(int year, int month) {
+        boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+        return month == 2 && leap ? 29 : DAYS_IN_MONTH[month - 1];
+    }
+
+    /**
+     * Mismo cálculo que LocalDate.toEpochDay, sin crear el LocalDate.
+     */
+    private static long epochDay(long year, int month, int day) {
+        long total = 365 * year;
+        if (year >= 0) {
+            total += (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        } else {
+            total -= year / -4 - year / -100 + year / -400;
+        }
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+            if (!leap) {
+                total--;
+            }
+        }
+        // Días entre el año 0 y 1970
+        return total - 719528;
+    }
+
+    private static int indexOf(char[] line, char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (line[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String gender(char[] line, int start, int end) {
+        if (end - start == 1) {
+            if (line[start] == 'M') {
+                return "M";
+            }
+            if (line[start] == 'F') {
+                return "F";
+            }
+        }
+        return new String(line, start, end - start);
+    }
+
+    /**
+     * Devuelve el String con esos caracteres, reutilizando uno anterior si ya se había creado.
+     */
+    private String name(char[] line, int start, int end) {
+        int length = end - start;
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + line[i];
+        }
+        int index = (hash ^ (hash >>> 16)) & (NAME_TABLE_SIZE - 1);
+        String cached = names.get(index);
+        if (cached != null && cached.length() == length && sameChars(cached, line, start)) {
+            return cached;
+        }
+        String name = new String(line, start, length);
+        names.lazySet(index, name);
+        return name;
+    }
+
+    private static boolean sameChars(String value, char[] line, int start) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) != line[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,85 @@
+package com.unir.csv;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Genera ficheros CSV de empleados sintéticos del tamaño que se quiera, con el formato de unirEmployees.csv:
+ * cabecera y columnas employeeId,firstName,lastName,gender,hireDate,birthDate.
+ *
+ * Una parte de las filas, según duplicateRatio, repite el employeeId de una fila anterior con otros datos,
+ * como si fuera una corrección: en la carga esas filas son actualizaciones en lugar de inserciones.
+ * Los nombres y apellidos llevan tildes, para que la lectura del fichero pase por la decodificación UTF-8,
+ * y sus longitudes respetan las columnas de la tabla employees.
+ * Con la misma semilla el fichero generado es siempre el mismo.
+ */
+public class EmployeeCsvGenerator {
+
+    private static final String HEADER = "employeeId,firstName,lastName,gender,hireDate,birthDate\n";
+
+    private static final String[] FIRST_NAMES = {"Carla", "Jesus", "Roberto", "Susana", "Lucía", "Mario", "Elena",
+            "Pablo", "Inés", "Álvaro", "Marta", "Sergio", "Begoña", "Raúl", "Nuria", "Íñigo"};
+    private static final String[] LAST_NAMES = {"Pérez", "García", "Fernández", "Ruiz", "López", "Martín", "Gómez",
+            "Díaz", "Sánchez", "Muñoz", "Jiménez", "Álvarez", "Romero", "Navarro", "Domínguez", "Gil"};
+
+    private static final LocalDate FIRST_BIRTH_DATE = LocalDate.of(1950, 1, 1);
+
+    private final long seed;
+    private final double duplicateRatio;
+
+    /**
+     * @param seed - Semilla del generador
+     * @param duplicateRatio - Proporción de filas que repiten un employeeId anterior, entre 0 y 1
+     */
+    public EmployeeCsvGenerator(long seed, double duplicateRatio) {
+        if (duplicateRatio < 0 || duplicateRatio >= 1) {
+            throw new IllegalArgumentException("La proporción de duplicados debe estar entre 0 y 1: " + duplicateRatio);
+        }
+        this.seed = seed;
+        this.duplicateRatio = duplicateRatio;
+    }
+
+    /**
+     * Escribe el fichero, sustituyéndolo si existe. Los employeeId nuevos son consecutivos a partir de firstId.
+     *
+     * @param file - Fichero CSV de destino
+     * @param rows - Número de filas, sin contar la cabecera
+     * @param firstId - Primer employeeId
+     * @return - Número de empleados distintos del fichero. Los employeeId van de firstId a firstId + este valor - 1
+     * @throws IOException - Error al escribir el fichero
+     */
+    public int generate(Path file, int rows, int firstId) throws IOException {
+        Random random = new Random(seed);
+        int distinct = 0;
+        StringBuilder line = new StringBuilder(64);
+
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            for (int i = 0; i < rows; i++) {
+                int employeeId;
+                if (distinct > 0 && random.nextDouble() < duplicateRatio) {
+                    employeeId = firstId + random.nextInt(distinct);
+                } else {
+                    employeeId = firstId + distinct++;
+                }
+                LocalDate birth = FIRST_BIRTH_DATE.plusDays(random.nextInt(365 * 50));
+                LocalDate hire = birth.plusYears(20).plusDays(random.nextInt(365 * 20));
+
+                line.setLength(0);
+                line.append(employeeId).append(',')
+                        .append(FIRST_NAMES[random.nextInt(FIRST_NAMES.length)]).append(',')
+                        .append(LAST_NAMES[random.nextInt(LAST_NAMES.length)]).append(',')
+                        .append(random.nextBoolean() ? 'M' : 'F').append(',')
+                        .append(hire).append(',')
+                        .append(birth).append('\n');
+                writer.append(line);
+            }
+        }
+        return distinct;
+    }
+}
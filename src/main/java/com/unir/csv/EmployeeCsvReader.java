@@ -0,0 +1,241 @@
+package com.unir.csv;
+
+import com.opencsv.CSVParser;
+import com.opencsv.CSVParserBuilder;
+import com.unir.model.MySqlEmployee;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.NoSuchElementException;
+
+/**
+ * Lee un fichero CSV de empleados de forma perezosa: cada llamada a {@link #next()} lee una sola línea,
+ * por lo que la memoria usada no depende del tamaño del fichero.
+ *
+ * El fichero tiene una cabecera y las columnas employeeId,firstName,lastName,gender,hireDate,birthDate.
+ * Las líneas se decodifican directamente sobre el buffer con {@link EmployeeCsvDecoder}; solo las que tienen
+ * campos entre comillas, que pueden ocupar varias líneas, pasan por el parser de OpenCSV.
+ * Una línea no válida lanza {@link InvalidCsvLineException} y la siguiente llamada sigue con la línea posterior.
+ * No es seguro usarlo desde varios hilos a la vez.
+ */
+public class EmployeeCsvReader implements EmployeeCsvSource {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Reader input;
+    private final EmployeeCsvDecoder decoder;
+    private final EmployeeRow row = new EmployeeRow();
+    private final CSVParser parser = new CSVParserBuilder().withSeparator(',').build();
+
+    private char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private boolean endOfInput;
+
+    // Límites de la última línea leída con readLine
+    private int lineStart;
+    private int lineEnd;
+    private long linesRead;
+
+    // Texto de las líneas de un registro con comillas, para el mensaje de error si no es válido
+    private final StringBuilder quotedText = new StringBuilder();
+
+    private MySqlEmployee nextEmployee;
+
+    /**
+     * Abre el fichero y salta la cabecera.
+     *
+     * @param file - Ruta del fichero CSV
+     * @throws IOException - Error al abrir el fichero
+     */
+    public EmployeeCsvReader(String file) throws IOException {
+        this(Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param input - Contenido CSV, incluida la cabecera
+     * @throws IOException - Error al leer la cabecera
+     */
+    public EmployeeCsvReader(Reader input) throws IOException {
+        this(input, EmployeeCsvDecoder.shared());
+    }
+
+    /**
+     * @param input - Contenido CSV, incluida la cabecera
+     * @param decoder - Decodificador de las líneas, que puede compartirse con otros lectores
+     * @throws IOException - Error al leer la cabecera
+     */
+    public EmployeeCsvReader(Reader input, EmployeeCsvDecoder decoder) throws IOException {
+        this(input, decoder, 0);
+
+        // Saltamos la primera linea, que contiene los nombres de las columnas del CSV
+        readLine();
+    }
+
+    /**
+     * Lee un fragmento de un fichero sin cabecera, que empieza al principio de una línea.
+     *
+     * @param input - Fragmento del CSV
+     * @param decoder - Decodificador de las líneas
+     * @param linesBefore - Líneas del fichero anteriores al fragmento, para numerar bien los errores
+     */
+    EmployeeCsvReader(Reader input, EmployeeCsvDecoder decoder, long linesBefore) {
+        this.input = input;
+        this.decoder = decoder;
+        this.linesRead = linesBefore;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (nextEmployee == null) {
+            try {
+                if (!readLine()) {
+                    return false;
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Error al leer el fichero CSV en la línea " + linesRead, e);
+            }
+            if (lineStart < lineEnd) {
+                nextEmployee = decodeLine();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public MySqlEmployee next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        MySqlEmployee employee = nextEmployee;
+        nextEmployee = null;
+        return employee;
+    }
+
+    /**
+     * @return - Número de líneas físicas leídas, incluida la cabecera
+     */
+    public long getLinesRead() {
+        return linesRead;
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    private MySqlEmployee decodeLine() {
+        long lineNumber = linesRead;
+        quotedText.setLength(0);
+        try {
+            if (decoder.decode(buffer, lineStart, lineEnd, row)) {
+                return decoder.toEmployee(row);
+            }
+            return decodeQuoted();
+        } catch (IOException e) {
+            throw new IllegalStateException("Error al leer el fichero CSV en la línea " + linesRead, e);
+        } catch (RuntimeException e) {
+            String text = quotedText.length() > 0 ? quotedText.toString() : new String(buffer, lineStart, lineEnd - lineStart);
+            throw new InvalidCsvLineException(lineNumber, text, e);
+        }
+    }
+
+    /**
+     * Procesa con OpenCSV una línea con comillas, juntando las siguientes si un campo entrecomillado continúa en ellas.
+     * Los campos ya separados se vuelven a decodificar con {@link EmployeeCsvDecoder} para validarlos igual.
+     */
+    private MySqlEmployee decodeQuoted() throws IOException {
+        String text = new String(buffer, lineStart, lineEnd - lineStart);
+        quotedText.append(text);
+        String[] fields = parser.parseLineMulti(text);
+        while (parser.isPending()) {
+            if (!readLine()) {
+                throw new IllegalArgumentException("Campo entre comillas sin cerrar al final del fichero");
+            }
+            // El parser devuelve solo los campos nuevos; el campo partido le llega completo en esta llamada
+            text = new String(buffer, lineStart, lineEnd - lineStart);
+            quotedText.append('\n').append(text);
+            String[] more = parser.parseLineMulti(text);
+            String[] combined = new String[fields.length + more.length];
+            System.arraycopy(fields, 0, combined, 0, fields.length);
+            System.arraycopy(more, 0, combined, fields.length, more.length);
+            fields = combined;
+        }
+        if (fields.length < 6) {
+            throw new IllegalArgumentException("Faltan columnas en la línea");
+        }
+
+        // Las fechas y el identificador no llevan comillas en la práctica, así que basta con reconstruir esos campos
+        String numbers = fields[0] + ",,,," + fields[4] + "," + fields[5];
+        char[] chars = numbers.toCharArray();
+        if (!decoder.decode(chars, 0, chars.length, row)) {
+            throw new IllegalArgumentException("Comillas no válidas en los campos numéricos o de fecha");
+        }
+        row.firstName = fields[1];
+        row.lastName = fields[2];
+        row.gender = fields[3];
+        return decoder.toEmployee(row);
+    }
+
+    /**
+     * Busca la siguiente línea en el buffer, leyendo más del fichero si hace falta.
+     * Admite finales de línea \n y \r\n.
+     *
+     * @return - false si no quedan líneas
+     */
+    private boolean readLine() throws IOException {
+        int scan = position;
+        while (true) {
+            for (int i = scan; i < limit; i++) {
+                if (buffer[i] == '\n') {
+                    setLine(position, i);
+                    position = i + 1;
+                    return true;
+                }
+            }
+            if (endOfInput) {
+                if (position == limit) {
+                    return false;
+                }
+                setLine(position, limit);
+                position = limit;
+                return true;
+            }
+            scan = limit - position;
+            fill();
+            // Tras compactar el buffer, lo ya revisado empieza en la posición 0
+            scan = Math.min(scan, limit);
+        }
+    }
+
+    private void setLine(int start, int end) {
+        lineStart = start;
+        lineEnd = end > start && buffer[end - 1] == '\r' ? end - 1 : end;
+        linesRead++;
+    }
+
+    /**
+     * Mueve la línea incompleta al principio del buffer, lo amplía si la línea no cabe y lee más caracteres.
+     */
+    private void fill() throws IOException {
+        int remaining = limit - position;
+        if (remaining == buffer.length) {
+            char[] larger = new char[buffer.length * 2];
+            System.arraycopy(buffer, position, larger, 0, remaining);
+            buffer = larger;
+        } else {
+            System.arraycopy(buffer, position, buffer, 0, remaining);
+        }
+        position = 0;
+        limit = remaining;
+        int read = input.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            endOfInput = true;
+        } else {
+            limit += read;
+        }
+    }
+}
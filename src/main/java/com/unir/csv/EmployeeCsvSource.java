@@ -0,0 +1,13 @@
+package com.unir.csv;
+
+import com.unir.model.MySqlEmployee;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * Empleados leídos de un fichero CSV, en el orden del fichero.
+ * Hay que cerrarlo al terminar para liberar el fichero.
+ */
+public interface EmployeeCsvSource extends Iterator<MySqlEmployee>, Closeable {
+}
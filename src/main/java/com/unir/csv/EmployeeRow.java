@@ -0,0 +1,18 @@
+package com.unir.csv;
+
+import lombok.Getter;
+
+/**
+ * Fila del CSV de empleados decodificada, reutilizable entre líneas para no crear objetos por fila.
+ * Las fechas se guardan como días desde 1970-01-01 (epoch day).
+ * No es segura para varios hilos: cada hilo usa la suya.
+ */
+@Getter
+public class EmployeeRow {
+    int employeeId;
+    String firstName;
+    String lastName;
+    String gender;
+    int hireEpochDay;
+    int birthEpochDay;
+}
@@ -0,0 +1,33 @@
+package com.unir.csv;
+
+import lombok.Getter;
+
+/**
+ * Línea del fichero CSV que no se puede convertir en un empleado.
+ *
+ * Los lectores la lanzan en la posición del registro no válido y después siguen con el siguiente, así que
+ * quien quiera apartar las líneas erróneas en lugar de abortar puede capturarla y continuar.
+ * Un campo entre comillas puede ocupar varias líneas físicas: el texto incluye todas, separadas por \n.
+ */
+@Getter
+public class InvalidCsvLineException extends IllegalStateException {
+
+    private static final long serialVersionUID = 1L;
+
+    // Número de la primera línea física del registro, contando la cabecera
+    private final long lineNumber;
+
+    // Texto original del registro, sin el salto de línea final
+    private final String line;
+
+    /**
+     * @param lineNumber - Número de la primera línea física del registro
+     * @param line - Texto original del registro
+     * @param cause - Error de decodificación
+     */
+    public InvalidCsvLineException(long lineNumber, String line, Throwable cause) {
+        super("Línea " + lineNumber + " del fichero CSV no válida", cause);
+        this.lineNumber = lineNumber;
+        this.line = line;
+    }
+}
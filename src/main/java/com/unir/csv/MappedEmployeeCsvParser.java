@@ -0,0 +1,294 @@
+package com.unir.csv;
+
+import com.unir.model.MySqlEmployee;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Lee ficheros CSV de empleados grandes en paralelo.
+ *
+ * El fichero se proyecta en memoria por bloques y se procesa en dos pasadas sobre un ForkJoinPool:
+ * 1. Cada bloque se recorre en paralelo contando comillas y saltos de línea. Con la paridad acumulada de las comillas
+ *    se sabe si un bloque empieza dentro de un campo entrecomillado, y así se encuentra el primer salto de línea que
+ *    termina de verdad un registro. Esos saltos son los límites de los fragmentos.
+ * 2. Los fragmentos se decodifican en paralelo con {@link EmployeeCsvReader}, como mucho unos pocos por hilo a la vez,
+ *    y los empleados se entregan en el orden del fichero.
+ *
+ * Igual que {@link EmployeeCsvReader}, una línea no válida lanza {@link InvalidCsvLineException} al llegar a su posición
+ * y se puede seguir leyendo después.
+ *
+ * El iterador en sí no es seguro para varios hilos; el paralelismo está dentro.
+ */
+@Slf4j
+public class MappedEmployeeCsvParser implements EmployeeCsvSource {
+
+    private static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    private static final int SCAN_BLOCK_SIZE = 64 * 1024;
+
+    // Fragmentos en proceso o decodificados y sin consumir, por hilo del pool
+    private static final int SEGMENTS_PER_THREAD = 2;
+
+    private final FileChannel channel;
+    private final ForkJoinPool pool;
+    private final EmployeeCsvDecoder decoder = EmployeeCsvDecoder.shared();
+    private final List<Segment> segments;
+    private final int window;
+    private final Deque<ForkJoinTask<Parsed>> inFlight = new ArrayDeque<>();
+
+    private int nextSegment;
+    private Iterator<MySqlEmployee> current = Collections.emptyIterator();
+    private Deque<InvalidCsvLineException> currentErrors = new ArrayDeque<>();
+
+    /**
+     * Abre el fichero con bloques de 8 MB sobre el pool común.
+     * Su paralelismo se ajusta con -Djava.util.concurrent.ForkJoinPool.common.parallelism.
+     *
+     * @param file - Ruta del fichero CSV, con cabecera
+     * @throws IOException - Error al abrir o recorrer el fichero
+     */
+    public MappedEmployeeCsvParser(String file) throws IOException {
+        this(Paths.get(file), ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Abre el fichero y calcula los límites de los fragmentos. La decodificación empieza con el primer {@link #hasNext()}.
+     *
+     * @param file - Ruta del fichero CSV, con cabecera
+     * @param pool - Pool en el que se procesan los bloques
+     * @param chunkSize - Tamaño de los bloques en bytes
+     * @throws IOException - Error al abrir o recorrer el fichero
+     */
+    public MappedEmployeeCsvParser(Path file, ForkJoinPool pool, int chunkSize) throws IOException {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("El tamaño de bloque debe ser mayor que 0");
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.pool = pool;
+        this.window = Math.max(2, pool.getParallelism() * SEGMENTS_PER_THREAD);
+        try {
+            this.segments = split(chunkSize);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        log.debug("Fichero {} dividido en {} fragmentos", file, segments.size());
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            fillWindow();
+            ForkJoinTask<Parsed> next = inFlight.poll();
+            if (next == null) {
+                return false;
+            }
+            Parsed parsed = next.join();
+            current = parsed.employees.iterator();
+            currentErrors = parsed.errors;
+            fillWindow();
+        }
+        return true;
+    }
+
+    @Override
+    public MySqlEmployee next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        MySqlEmployee employee = current.next();
+        if (employee == null) {
+            throw currentErrors.poll();
+        }
+        return employee;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (ForkJoinTask<Parsed> task : inFlight) {
+            task.cancel(true);
+        }
+        inFlight.clear();
+        channel.close();
+    }
+
+    private void fillWindow() {
+        while (inFlight.size() < window && nextSegment < segments.size()) {
+            Segment segment = segments.get(nextSegment++);
+            inFlight.add(pool.submit(() -> parse(segment)));
+        }
+    }
+
+    /**
+     * Primera pasada: recorre los bloques en paralelo y junta sus resultados en orden para obtener los fragmentos.
+     * El primer fragmento empieza después de la cabecera.
+     */
+    private List<Segment> split(int chunkSize) throws IOException {
+        long size = channel.size();
+        List<ForkJoinTask<ChunkScan>> scans = new ArrayList<>();
+        for (long start = 0; start < size; start += chunkSize) {
+            long chunkStart = start;
+            int length = (int) Math.min(chunkSize, size - start);
+            scans.add(pool.submit(() -> scan(chunkStart, length)));
+        }
+
+        List<Segment> result = new ArrayList<>();
+        boolean insideQuotes = false;
+        long linesBeforeChunk = 0;
+        long segmentStart = -1;
+        long segmentLines = 0;
+        for (int i = 0; i < scans.size(); i++) {
+            ChunkScan scan = scans.get(i).join();
+            int newline = insideQuotes ? scan.oddNewline : scan.evenNewline;
+            if (newline >= 0) {
+                long boundary = (long) i * chunkSize + newline + 1;
+                long boundaryLines = linesBeforeChunk + (insideQuotes ? scan.oddNewlinesBefore : scan.evenNewlinesBefore) + 1;
+                // El primer límite es el final de la cabecera
+                if (segmentStart >= 0) {
+                    result.add(new Segment(segmentStart, boundary, segmentLines));
+                }
+                segmentStart = boundary;
+                segmentLines = boundaryLines;
+            }
+            insideQuotes ^= (scan.quotes & 1) == 1;
+            linesBeforeChunk += scan.newlines;
+        }
+        if (segmentStart >= 0 && segmentStart < size) {
+            result.add(new Segment(segmentStart, size, segmentLines));
+        }
+        return result;
+    }
+
+    /**
+     * Cuenta las comillas y los saltos de línea de un bloque y guarda el primer salto de línea
+     * con un número par de comillas delante y el primero con un número impar.
+     * Las comillas escapadas ("") no cambian la paridad.
+     */
+    private ChunkScan scan(long start, int length) {
+        MappedByteBuffer bytes = map(start, length);
+        ChunkScan scan = new ChunkScan();
+        // Copiamos a un array por trozos: recorrer el array es bastante más rápido que llamar a get(i) por cada byte
+        byte[] block = new byte[SCAN_BLOCK_SIZE];
+        for (int blockStart = 0; blockStart < length; blockStart += block.length) {
+            int blockLength = Math.min(block.length, length - blockStart);
+            bytes.get(block, 0, blockLength);
+            for (int i = 0; i < blockLength; i++) {
+                byte b = block[i];
+                if (b == '"') {
+                    scan.quotes++;
+                } else if (b == '\n') {
+                    if ((scan.quotes & 1) == 0) {
+                        if (scan.evenNewline < 0) {
+                            scan.evenNewline = blockStart + i;
+                            scan.evenNewlinesBefore = scan.newlines;
+                        }
+                    } else if (scan.oddNewline < 0) {
+                        scan.oddNewline = blockStart + i;
+                        scan.oddNewlinesBefore = scan.newlines;
+                    }
+                    scan.newlines++;
+                }
+            }
+        }
+        return scan;
+    }
+
+    /**
+     * Segunda pasada: decodifica un fragmento. Los límites están en saltos de línea, que en UTF-8
+     * nunca forman parte de un carácter de varios bytes, así que cada fragmento se puede decodificar por separado.
+     */
+    private Parsed parse(Segment segment) {
+        if (segment.end - segment.start > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Registro de más de 2 GB en la línea " + (segment.linesBefore + 1));
+        }
+        // El decodificador UTF-8 es mucho más rápido sobre un array que directamente sobre la proyección
+        byte[] bytes = new byte[(int) (segment.end - segment.start)];
+        map(segment.start, bytes.length).get(bytes);
+        CharBuffer chars;
+        try {
+            chars = StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(bytes));
+        } catch (CharacterCodingException e) {
+            throw new IllegalStateException("Texto UTF-8 no válido después de la línea " + segment.linesBefore, e);
+        }
+
+        Parsed parsed = new Parsed();
+        EmployeeCsvReader reader = new EmployeeCsvReader(
+                new CharArrayReader(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining()),
+                decoder, segment.linesBefore);
+        while (true) {
+            try {
+                if (!reader.hasNext()) {
+                    return parsed;
+                }
+                parsed.employees.add(reader.next());
+            } catch (InvalidCsvLineException e) {
+                parsed.employees.add(null);
+                parsed.errors.add(e);
+            }
+        }
+    }
+
+    private MappedByteBuffer map(long start, int length) {
+        try {
+            return channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error al proyectar en memoria el fichero CSV", e);
+        }
+    }
+
+    /**
+     * Resultado de la primera pasada sobre un bloque. Las posiciones son relativas al bloque, -1 si no hay.
+     */
+    private static class ChunkScan {
+        private long quotes;
+        private long newlines;
+        private int evenNewline = -1;
+        private long evenNewlinesBefore;
+        private int oddNewline = -1;
+        private long oddNewlinesBefore;
+    }
+
+    /**
+     * Empleados decodificados de un fragmento. Cada línea no válida ocupa su posición con null
+     * y su error se guarda aparte, en el mismo orden.
+     */
+    private static class Parsed {
+        private final List<MySqlEmployee> employees = new ArrayList<>();
+        private final Deque<InvalidCsvLineException> errors = new ArrayDeque<>();
+    }
+
+    /**
+     * Fragmento del fichero que empieza al principio de un registro y termina al final de otro.
+     */
+    private static class Segment {
+        private final long start;
+        private final long end;
+        private final long linesBefore;
+
+        Segment(long start, long end, long linesBefore) {
+            this.start = start;
+            this.end = end;
+            this.linesBefore = linesBefore;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.unir.snapshot;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * Número de filas y sumas de dos hashes independientes de las filas de employees y dept_emp de un bloque de emp_no,
+ * calculados en la base de datos. Si no coinciden con los de la instantánea, el bloque ha cambiado.
+ * Con un solo hash de 32 bits, una colisión o dos cambios que se compensan en la suma pasarían desapercibidos
+ * con una probabilidad apreciable; con dos, el bloque tendría que coincidir en los 64 bits a la vez.
+ */
+@AllArgsConstructor
+@Getter
+@EqualsAndHashCode
+class BucketChecksum {
+    private long employees;
+    private long employeesHash;
+    private long employeesSecondHash;
+    private long deptEmp;
+    private long deptEmpHash;
+    private long deptEmpSecondHash;
+}
@@ -0,0 +1,67 @@
+package com.unir.snapshot;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Diccionario de una columna de texto: cada valor distinto se guarda una vez y las filas guardan su número.
+ * Los números no cambian al añadir valores, así que las filas copiadas de una instantánea anterior siguen siendo válidas.
+ */
+class Dictionary {
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    Dictionary() {
+    }
+
+    /**
+     * @param values - Valores de un diccionario anterior, en el orden de sus números
+     */
+    Dictionary(String[] values) {
+        for (String value : values) {
+            id(value);
+        }
+    }
+
+    /**
+     * @return - Número del valor, que se añade si no estaba
+     */
+    int id(String value) {
+        Integer id = ids.get(value);
+        if (id == null) {
+            id = values.size();
+            values.add(value);
+            ids.put(value, id);
+        }
+        return id;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Lee los valores de un diccionario escrito con {@link #write(DataOutputStream)} desde la posición actual.
+     */
+    static String[] read(ByteBuffer buffer) {
+        String[] values = new String[buffer.getInt()];
+        for (int i = 0; i < values.length; i++) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            values[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,301 @@
+package com.unir.snapshot;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Instantánea local de las tablas employees y dept_emp, guardada por columnas en un fichero proyectado en memoria.
+ *
+ * Cada columna es un array de enteros: emp_no, fechas como días desde 1970-01-01 y, para los textos
+ * (nombre, apellido, género y departamento), el número del valor en un diccionario.
+ * Las filas están ordenadas por emp_no.
+ *
+ * Las consultas recorren las columnas directamente sobre el fichero, sin crear objetos por fila y sin
+ * ir a la base de datos. El fichero se crea y se actualiza con {@link SnapshotBuilder}.
+ * Se puede consultar desde varios hilos a la vez. No se debe usar después de cerrarla.
+ *
+ * Formato del fichero (enteros big-endian):
+ * cabecera (marca, versión, anchura de bloque, filas de employees, filas de dept_emp, número de bloques),
+ * diccionarios de nombres, apellidos, géneros y departamentos, checksums de los bloques,
+ * columnas de employees y columnas de dept_emp.
+ */
+public class EmployeeSnapshot implements AutoCloseable {
+
+    static final int MAGIC = 0x454D5053;
+    static final int VERSION = 2;
+
+    private final FileChannel channel;
+    private final int bucketWidth;
+    private final int employees;
+    private final int deptEmp;
+
+    private final String[] firstNames;
+    private final String[] lastNames;
+    private final String[] genders;
+    private final String[] departments;
+    private final SortedMap<Integer, BucketChecksum> checksums = new TreeMap<>();
+
+    private final IntBuffer empNo;
+    private final IntBuffer firstName;
+    private final IntBuffer lastName;
+    private final IntBuffer gender;
+    private final IntBuffer hireDate;
+    private final IntBuffer birthDate;
+
+    private final IntBuffer deptEmpNo;
+    private final IntBuffer deptNo;
+    private final IntBuffer fromDate;
+    private final IntBuffer toDate;
+
+    private EmployeeSnapshot(FileChannel channel) throws IOException {
+        this.channel = channel;
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("El fichero no es una instantánea de empleados o es de otra versión");
+        }
+        bucketWidth = buffer.getInt();
+        employees = buffer.getInt();
+        deptEmp = buffer.getInt();
+        int buckets = buffer.getInt();
+
+        firstNames = Dictionary.read(buffer);
+        lastNames = Dictionary.read(buffer);
+        genders = Dictionary.read(buffer);
+        departments = Dictionary.read(buffer);
+        for (int i = 0; i < buckets; i++) {
+            checksums.put(buffer.getInt(), new BucketChecksum(buffer.getLong(), buffer.getLong(), buffer.getLong(),
+                    buffer.getLong(), buffer.getLong(), buffer.getLong()));
+        }
+
+        empNo = column(buffer, employees);
+        firstName = column(buffer, employees);
+        lastName = column(buffer, employees);
+        gender = column(buffer, employees);
+        hireDate = column(buffer, employees);
+        birthDate = column(buffer, employees);
+
+        deptEmpNo = column(buffer, deptEmp);
+        deptNo = column(buffer, deptEmp);
+        fromDate = column(buffer, deptEmp);
+        toDate = column(buffer, deptEmp);
+    }
+
+    /**
+     * Abre una instantánea existente.
+     *
+     * @param file - Fichero de la instantánea
+     * @return - Instantánea. Hay que cerrarla
+     * @throws IOException - Error al leer el fichero o formato no válido
+     */
+    public static EmployeeSnapshot open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new EmployeeSnapshot(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Lee la versión del formato de una instantánea sin abrirla entera.
+     *
+     * @param file - Fichero de la instantánea
+     * @return - Versión del formato del fichero
+     * @throws IOException - Error al leer el fichero, o el fichero no es una instantánea
+     */
+    static int version(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("El fichero no es una instantánea de empleados");
+            }
+            return in.readInt();
+        }
+    }
+
+    /**
+     * @return - Número de empleados
+     */
+    public int getEmployees() {
+        return employees;
+    }
+
+    /**
+     * Número de empleados de cada departamento, igual que {@code DepartmentHeadcounts#countByDepartment}.
+     * Los departamentos sin empleados o inexistentes aparecen con 0.
+     *
+     * @param departmentCodes - Códigos de departamento, por ejemplo d001
+     * @return - Número de empleados por departamento, en el orden pedido
+     */
+    public Map<String, Integer> countByDepartment(Collection<String> departmentCodes) {
+        int[] counts = countsByDepartmentId();
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (String department : departmentCodes) {
+            int id = indexOf(departments, department);
+            result.put(department, id < 0 ? 0 : counts[id]);
+        }
+        return result;
+    }
+
+    /**
+     * @return - Número de empleados de todos los departamentos con alguno, por código de departamento
+     */
+    public Map<String, Integer> countAllDepartments() {
+        int[] counts = countsByDepartmentId();
+        Map<String, Integer> result = new TreeMap<>();
+        for (int id = 0; id < counts.length; id++) {
+            if (counts[id] > 0) {
+                result.put(departments[id], counts[id]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param value - Género, M o F
+     * @return - Número de empleados con ese género
+     */
+    public int countByGender(String value) {
+        int id = indexOf(genders, value);
+        if (id < 0) {
+            return 0;
+        }
+        int count = 0;
+        for (int i = 0; i < employees; i++) {
+            if (gender.get(i) == id) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param from - Primer día, incluido
+     * @param to - Último día, incluido
+     * @return - Número de empleados contratados entre esas fechas
+     */
+    public int countHiredBetween(LocalDate from, LocalDate to) {
+        long first = from.toEpochDay();
+        long last = to.toEpochDay();
+        int count = 0;
+        for (int i = 0; i < employees; i++) {
+            int day = hireDate.get(i);
+            if (day >= first && day <= last) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    int getBucketWidth() {
+        return bucketWidth;
+    }
+
+    SortedMap<Integer, BucketChecksum> getChecksums() {
+        return checksums;
+    }
+
+    String[] getFirstNames() {
+        return firstNames;
+    }
+
+    String[] getLastNames() {
+        return lastNames;
+    }
+
+    String[] getGenders() {
+        return genders;
+    }
+
+    String[] getDepartments() {
+        return departments;
+    }
+
+    /**
+     * Copia las filas de employees con emp_no en [from, to) al final de las columnas del constructor.
+     */
+    void copyEmployees(SnapshotBuilder.Columns target, long from, long to) {
+        int start = lowerBound(empNo, employees, from);
+        int end = lowerBound(empNo, employees, to);
+        target.empNo.addAll(empNo, start, end);
+        target.firstName.addAll(firstName, start, end);
+        target.lastName.addAll(lastName, start, end);
+        target.gender.addAll(gender, start, end);
+        target.hireDate.addAll(hireDate, start, end);
+        target.birthDate.addAll(birthDate, start, end);
+    }
+
+    /**
+     * Copia las filas de dept_emp con emp_no en [from, to) al final de las columnas del constructor.
+     */
+    void copyDeptEmp(SnapshotBuilder.Columns target, long from, long to) {
+        int start = lowerBound(deptEmpNo, deptEmp, from);
+        int end = lowerBound(deptEmpNo, deptEmp, to);
+        target.deptEmpNo.addAll(deptEmpNo, start, end);
+        target.deptNo.addAll(deptNo, start, end);
+        target.fromDate.addAll(fromDate, start, end);
+        target.toDate.addAll(toDate, start, end);
+    }
+
+    private int[] countsByDepartmentId() {
+        int[] counts = new int[departments.length];
+        for (int i = 0; i < deptEmp; i++) {
+            counts[deptNo.get(i)]++;
+        }
+        return counts;
+    }
+
+    /**
+     * @return - Primera posición con un valor mayor o igual que value en una columna ordenada
+     */
+    private static int lowerBound(IntBuffer column, int size, long value) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (column.get(middle) < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int indexOf(String[] dictionary, String value) {
+        for (int i = 0; i < dictionary.length; i++) {
+            if (dictionary[i].equals(value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Vista de enteros sobre la siguiente columna del fichero, y avanza la posición hasta el final de la columna.
+     */
+    private static IntBuffer column(ByteBuffer buffer, int size) {
+        ByteBuffer slice = buffer.slice();
+        slice.limit(size * Integer.BYTES);
+        buffer.position(buffer.position() + size * Integer.BYTES);
+        return slice.asIntBuffer();
+    }
+}
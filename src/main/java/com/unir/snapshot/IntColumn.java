@@ -0,0 +1,46 @@
+package com.unir.snapshot;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Columna de enteros que crece según se añaden valores, para construir una instantánea antes de escribirla.
+ */
+class IntColumn {
+
+    private int[] values = new int[1024];
+    private int size;
+
+    void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    /**
+     * Añade las posiciones [from, to) de una columna de una instantánea anterior.
+     */
+    void addAll(IntBuffer source, int from, int to) {
+        int count = to - from;
+        if (size + count > values.length) {
+            values = Arrays.copyOf(values, Math.max(values.length * 2, size + count));
+        }
+        IntBuffer view = source.duplicate();
+        view.position(from);
+        view.get(values, size, count);
+        size += count;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        for (int i = 0; i < size; i++) {
+            out.writeInt(values[i]);
+        }
+    }
+}
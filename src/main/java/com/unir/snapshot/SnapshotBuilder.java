@@ -0,0 +1,318 @@
+package com.unir.snapshot;
+
+import com.unir.config.Dialect;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Crea y actualiza las instantáneas de {@link EmployeeSnapshot}.
+ *
+ * Las filas se agrupan en bloques de emp_no de anchura fija. Para cada bloque la base de datos calcula el número de filas
+ * y la suma de dos hashes independientes de las filas de employees y dept_emp (ver {@link Dialect#rowHash(String...)}
+ * y {@link Dialect#secondRowHash(String...)}), y la instantánea guarda esos valores. Al actualizar, solo se vuelven a
+ * leer los bloques cuyos valores han cambiado; el resto se copia de la instantánea anterior. Sin instantánea anterior se leen todos los bloques de una vez.
+ *
+ * Todo se lee en una misma transacción, y los checksums y las filas solo son coherentes si la transacción ve una única
+ * foto de la base de datos. En MySQL lo garantiza REPEATABLE READ, el nivel por defecto. En Oracle el nivel por defecto,
+ * READ COMMITTED, solo da una foto por sentencia, así que la actualización pasa la transacción a SERIALIZABLE
+ * (también se podría leer con flashback a un SCN fijo). Sin eso, una fila cambiada entre los checksums y la lectura
+ * de su bloque se guardaría con el checksum antiguo y no se volvería a leer hasta el siguiente cambio del bloque.
+ * La instantánea nueva se escribe en un fichero temporal que sustituye al anterior al terminar.
+ */
+@Slf4j
+public class SnapshotBuilder {
+
+    private static final String EMPLOYEES_SQL = "SELECT emp_no, first_name, last_name, gender, hire_date, birth_date "
+            + "FROM employees WHERE emp_no >= ? AND emp_no < ? ORDER BY emp_no";
+
+    // Como en los recuentos de MySqlApplication, solo cuentan las filas con empleado y departamento existentes
+    private static final String DEPT_EMP_FROM = "FROM dept_emp de "
+            + "INNER JOIN employees e ON e.emp_no = de.emp_no "
+            + "INNER JOIN departments d ON d.dept_no = de.dept_no ";
+
+    private static final String DEPT_EMP_SQL = "SELECT de.emp_no, de.dept_no, de.from_date, de.to_date " + DEPT_EMP_FROM
+            + "WHERE de.emp_no >= ? AND de.emp_no < ? ORDER BY de.emp_no, de.dept_no";
+
+    /**
+     * Crea la instantánea si no existe o la actualiza releyendo solo los bloques que han cambiado.
+     * Si la instantánea existente usa otra anchura de bloque, se crea de nuevo.
+     *
+     * @param connection - Conexión a la base de datos de employees
+     * @param file - Fichero de la instantánea
+     * @param bucketWidth - Número de valores de emp_no por bloque
+     * @return - Bloques releídos y tamaño de la instantánea
+     * @throws SQLException - Error al leer de la base de datos
+     * @throws IOException - Error al leer la instantánea anterior o al escribir la nueva
+     */
+    public static SnapshotRefresh refresh(Connection connection, Path file, int bucketWidth) throws SQLException, IOException {
+        if (bucketWidth < 1) {
+            throw new IllegalArgumentException("La anchura de bloque debe ser mayor que 0");
+        }
+        long start = System.nanoTime();
+        EmployeeSnapshot previous = null;
+        if (Files.exists(file)) {
+            if (EmployeeSnapshot.version(file) == EmployeeSnapshot.VERSION) {
+                previous = EmployeeSnapshot.open(file);
+            } else {
+                log.info("La instantánea {} es de otra versión del formato, se crea de nuevo", file);
+            }
+        }
+        if (previous != null && previous.getBucketWidth() != bucketWidth) {
+            previous.close();
+            previous = null;
+        }
+
+        Columns columns;
+        SortedMap<Integer, BucketChecksum> checksums;
+        int changed = 0;
+        boolean autoCommit = connection.getAutoCommit();
+        int isolation = connection.getTransactionIsolation();
+        Dialect dialect = Dialect.of(connection);
+        if (dialect == Dialect.ORACLE) {
+            // Ver la documentación de la clase: READ COMMITTED no da una foto única de toda la transacción
+            connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+        }
+        connection.setAutoCommit(false);
+        try {
+            checksums = checksums(connection, bucketWidth);
+            columns = previous == null ? new Columns() : new Columns(previous);
+            int fetchSize = dialect.getStreamingFetchSize();
+
+            // Recorremos los bloques en orden; los cambiados seguidos se leen con una sola consulta
+            Integer firstChanged = null;
+            Integer lastChanged = null;
+            for (Map.Entry<Integer, BucketChecksum> bucket : checksums.entrySet()) {
+                boolean unchanged = previous != null && bucket.getValue().equals(previous.getChecksums().get(bucket.getKey()));
+                if (unchanged) {
+                    if (firstChanged != null) {
+                        read(connection, fetchSize, columns, firstChanged, lastChanged, bucketWidth);
+                        firstChanged = null;
+                    }
+                    long from = (long) bucket.getKey() * bucketWidth;
+                    previous.copyEmployees(columns, from, from + bucketWidth);
+                    previous.copyDeptEmp(columns, from, from + bucketWidth);
+                } else {
+                    changed++;
+                    if (firstChanged == null) {
+                        firstChanged = bucket.getKey();
+                    }
+                    lastChanged = bucket.getKey();
+                }
+            }
+            if (firstChanged != null) {
+                read(connection, fetchSize, columns, firstChanged, lastChanged, bucketWidth);
+            }
+            connection.commit();
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+            if (dialect == Dialect.ORACLE) {
+                connection.setTransactionIsolation(isolation);
+            }
+            if (previous != null) {
+                previous.close();
+            }
+        }
+
+        write(file, bucketWidth, columns, checksums);
+        SnapshotRefresh result = new SnapshotRefresh(checksums.size(), changed, columns.empNo.size(),
+                columns.deptEmpNo.size(), System.nanoTime() - start);
+        log.info("Instantánea {} actualizada: {}", file, result);
+        return result;
+    }
+
+    /**
+     * Calcula en la base de datos el número de filas y las sumas de los dos hashes de cada bloque de las dos tablas.
+     */
+    private static SortedMap<Integer, BucketChecksum> checksums(Connection connection, int bucketWidth) throws SQLException {
+        Dialect dialect = Dialect.of(connection);
+        String bucket = "FLOOR(emp_no / " + bucketWidth + ")";
+        String deptBucket = "FLOOR(de.emp_no / " + bucketWidth + ")";
+
+        Map<Integer, long[]> employees = new TreeMap<>();
+        Map<Integer, long[]> deptEmp = new TreeMap<>();
+        try (Statement statement = connection.createStatement()) {
+            String[] employeeColumns = {"emp_no", "first_name", "last_name", "gender", "hire_date", "birth_date"};
+            try (ResultSet resultSet = statement.executeQuery("SELECT " + bucket + ", COUNT(*), "
+                    + "SUM(" + dialect.rowHash(employeeColumns) + "), SUM(" + dialect.secondRowHash(employeeColumns) + ") "
+                    + "FROM employees GROUP BY " + bucket)) {
+                while (resultSet.next()) {
+                    employees.put(resultSet.getInt(1), new long[]{resultSet.getLong(2), resultSet.getLong(3), resultSet.getLong(4)});
+                }
+            }
+            String[] deptEmpColumns = {"de.emp_no", "de.dept_no", "de.from_date", "de.to_date"};
+            try (ResultSet resultSet = statement.executeQuery("SELECT " + deptBucket + ", COUNT(*), "
+                    + "SUM(" + dialect.rowHash(deptEmpColumns) + "), SUM(" + dialect.secondRowHash(deptEmpColumns) + ") "
+                    + DEPT_EMP_FROM + "GROUP BY " + deptBucket)) {
+                while (resultSet.next()) {
+                    deptEmp.put(resultSet.getInt(1), new long[]{resultSet.getLong(2), resultSet.getLong(3), resultSet.getLong(4)});
+                }
+            }
+        }
+
+        // Por el INNER JOIN con employees, todo bloque con filas en dept_emp tiene también filas en employees
+        SortedMap<Integer, BucketChecksum> checksums = new TreeMap<>();
+        long[] empty = {0, 0, 0};
+        for (Map.Entry<Integer, long[]> bucketRows : employees.entrySet()) {
+            long[] e = bucketRows.getValue();
+            long[] d = deptEmp.getOrDefault(bucketRows.getKey(), empty);
+            checksums.put(bucketRows.getKey(), new BucketChecksum(e[0], e[1], e[2], d[0], d[1], d[2]));
+        }
+        return checksums;
+    }
+
+    /**
+     * Lee de la base de datos las filas de los bloques [firstBucket, lastBucket].
+     */
+    private static void read(Connection connection, int fetchSize, Columns columns, int firstBucket, int lastBucket,
+                             int bucketWidth) throws SQLException {
+        long from = (long) firstBucket * bucketWidth;
+        long to = ((long) lastBucket + 1) * bucketWidth;
+
+        try (PreparedStatement select = connection.prepareStatement(EMPLOYEES_SQL)) {
+            select.setFetchSize(fetchSize);
+            select.setLong(1, from);
+            select.setLong(2, to);
+            try (ResultSet resultSet = select.executeQuery()) {
+                while (resultSet.next()) {
+                    columns.empNo.add(resultSet.getInt(1));
+                    columns.firstName.add(columns.firstNames.id(resultSet.getString(2)));
+                    columns.lastName.add(columns.lastNames.id(resultSet.getString(3)));
+                    columns.gender.add(columns.genders.id(resultSet.getString(4)));
+                    columns.hireDate.add((int) resultSet.getDate(5).toLocalDate().toEpochDay());
+                    columns.birthDate.add((int) resultSet.getDate(6).toLocalDate().toEpochDay());
+                }
+            }
+        }
+
+        try (PreparedStatement select = connection.prepareStatement(DEPT_EMP_SQL)) {
+            select.setFetchSize(fetchSize);
+            select.setLong(1, from);
+            select.setLong(2, to);
+            try (ResultSet resultSet = select.executeQuery()) {
+                while (resultSet.next()) {
+                    columns.deptEmpNo.add(resultSet.getInt(1));
+                    columns.deptNo.add(columns.departments.id(resultSet.getString(2)));
+                    columns.fromDate.add((int) resultSet.getDate(3).toLocalDate().toEpochDay());
+                    columns.toDate.add((int) resultSet.getDate(4).toLocalDate().toEpochDay());
+                }
+            }
+        }
+    }
+
+    /**
+     * Escribe la instantánea en un fichero temporal junto al definitivo y lo sustituye.
+     */
+    private static void write(Path file, int bucketWidth, Columns columns, SortedMap<Integer, BucketChecksum> checksums)
+            throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 64 * 1024))) {
+                out.writeInt(EmployeeSnapshot.MAGIC);
+                out.writeInt(EmployeeSnapshot.VERSION);
+                out.writeInt(bucketWidth);
+                out.writeInt(columns.empNo.size());
+                out.writeInt(columns.deptEmpNo.size());
+                out.writeInt(checksums.size());
+
+                columns.firstNames.write(out);
+                columns.lastNames.write(out);
+                columns.genders.write(out);
+                columns.departments.write(out);
+                for (Map.Entry<Integer, BucketChecksum> bucket : checksums.entrySet()) {
+                    BucketChecksum checksum = bucket.getValue();
+                    out.writeInt(bucket.getKey());
+                    out.writeLong(checksum.getEmployees());
+                    out.writeLong(checksum.getEmployeesHash());
+                    out.writeLong(checksum.getEmployeesSecondHash());
+                    out.writeLong(checksum.getDeptEmp());
+                    out.writeLong(checksum.getDeptEmpHash());
+                    out.writeLong(checksum.getDeptEmpSecondHash());
+                }
+
+                for (IntColumn column : columns.all()) {
+                    column.write(out);
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Columnas y diccionarios de la instantánea que se está construyendo.
+     */
+    static class Columns {
+        final Dictionary firstNames;
+        final Dictionary lastNames;
+        final Dictionary genders;
+        final Dictionary departments;
+
+        final IntColumn empNo = new IntColumn();
+        final IntColumn firstName = new IntColumn();
+        final IntColumn lastName = new IntColumn();
+        final IntColumn gender = new IntColumn();
+        final IntColumn hireDate = new IntColumn();
+        final IntColumn birthDate = new IntColumn();
+
+        final IntColumn deptEmpNo = new IntColumn();
+        final IntColumn deptNo = new IntColumn();
+        final IntColumn fromDate = new IntColumn();
+        final IntColumn toDate = new IntColumn();
+
+        Columns() {
+            firstNames = new Dictionary();
+            lastNames = new Dictionary();
+            genders = new Dictionary();
+            departments = new Dictionary();
+        }
+
+        /**
+         * Parte de los diccionarios de la instantánea anterior, para poder copiar sus filas tal cual.
+         */
+        Columns(EmployeeSnapshot previous) {
+            firstNames = new Dictionary(previous.getFirstNames());
+            lastNames = new Dictionary(previous.getLastNames());
+            genders = new Dictionary(previous.getGenders());
+            departments = new Dictionary(previous.getDepartments());
+        }
+
+        /**
+         * @return - Columnas en el orden en que se guardan en el fichero
+         */
+        List<IntColumn> all() {
+            List<IntColumn> all = new ArrayList<>();
+            all.add(empNo);
+            all.add(firstName);
+            all.add(lastName);
+            all.add(gender);
+            all.add(hireDate);
+            all.add(birthDate);
+            all.add(deptEmpNo);
+            all.add(deptNo);
+            all.add(fromDate);
+            all.add(toDate);
+            return all;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.unir.snapshot;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Resultado de crear o actualizar una instantánea: bloques de emp_no en total y releídos de la base de datos,
+ * filas de cada tabla en la instantánea y tiempo empleado.
+ */
+@AllArgsConstructor
+@Getter
+@ToString
+public class SnapshotRefresh {
+    private int buckets;
+    private int changedBuckets;
+    private int employees;
+    private int deptEmp;
+    private long elapsedNanos;
+}